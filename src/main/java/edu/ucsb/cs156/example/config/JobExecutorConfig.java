@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * The `JobExecutorConfig` class defines the executor that runs jobs launched through JobService.
+ *
+ * At most app.jobs.executor.maxConcurrency jobs run at once and at most
+ * app.jobs.executor.queueCapacity more wait for a worker; further launches are rejected so that
+ * a burst of jobs cannot starve the rest of the application. With
+ * app.jobs.executor.mode=virtual the workers are virtual threads, otherwise platform threads.
+ */
+@Configuration
+@Slf4j
+public class JobExecutorConfig {
+
+  /** Bean name of the executor, for {@code @Qualifier(JobExecutorConfig.JOB_EXECUTOR)}. */
+  public static final String JOB_EXECUTOR = "jobExecutor";
+
+  @Value("${app.jobs.executor.mode:platform}")
+  private String mode;
+
+  @Value("${app.jobs.executor.maxConcurrency:4}")
+  private int maxConcurrency;
+
+  @Value("${app.jobs.executor.queueCapacity:100}")
+  private int queueCapacity;
+
+  /**
+   * The bounded executor for jobs.
+   *
+   * @return the executor
+   */
+  @Bean(name = JOB_EXECUTOR)
+  public ThreadPoolTaskExecutor jobExecutor() {
+    log.info(
+        "job executor: mode={} maxConcurrency={} queueCapacity={}",
+        mode,
+        maxConcurrency,
+        queueCapacity);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(maxConcurrency);
+    executor.setMaxPoolSize(maxConcurrency);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("job-");
+    if ("virtual".equals(mode)) {
+      executor.setThreadFactory(Thread.ofVirtual().name("job-", 1).factory());
+    }
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    return executor;
+  }
+}
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * The `JpaAuditingConfig` class turns on JPA auditing so that @CreatedDate and
+ * @LastModifiedDate fields (e.g. Job.createdAt and Job.updatedAt) are filled in.
+ *
+ * It is a separate class rather than an annotation on ExampleApplication so that
+ * controller tests, which do not load JPA, are not affected.
+ */
+@Configuration
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
+public class JpaAuditingConfig {
+
+  /**
+   * Supplies ZonedDateTime values, which is the type used by the audited entities.
+   *
+   * @return the date time provider
+   */
+  @Bean
+  public DateTimeProvider auditingDateTimeProvider() {
+    return () -> Optional.of(ZonedDateTime.now());
+  }
+}
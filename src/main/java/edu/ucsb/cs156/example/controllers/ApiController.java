@@ -1,16 +1,54 @@
 package edu.ucsb.cs156.example.controllers;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Versioned;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
-import org.springframework.beans.factory.annotation.Autowired;
-
+import edu.ucsb.cs156.example.errors.InvalidPageRequestException;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.PageParams;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.EntityStreamer;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.services.bulk.EntityTable;
+import edu.ucsb.cs156.example.services.bulk.EntityTable.EntityColumn;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
-
-import java.util.Map;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
  * This is an abstract class that provides common functionality for all API controllers.
@@ -18,9 +56,32 @@ import java.util.Map;
 
 @Slf4j
 public abstract class ApiController {
+  /** Number of entities on a page when the client does not give a limit. */
+  public static final int DEFAULT_PAGE_SIZE = 100;
+
+  /** Largest page of entities a client may ask for. */
+  public static final int MAX_PAGE_SIZE = 1000;
+
+  /** Response header that holds the cursor of the next page; absent on the last page. */
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  // describing an entity class takes reflection, so each is described once
+  private static final Map<Class<?>, EntityTable> ENTITY_TABLES = new ConcurrentHashMap<>();
+
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private TableVersionService tableVersionService;
+
+  // lazy so that controller tests that never stream need not provide it
+  @Lazy
+  @Autowired
+  private EntityStreamer entityStreamer;
+
   /**
    * This method returns the current user.
    * @return the current user
@@ -38,6 +99,231 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method returns the entities of a repository for an /all endpoint. Without any page
+   * parameters it returns all of them, as /all always has. Otherwise it returns one page, read
+   * with a keyset query (WHERE (sort, id) &gt; cursor ORDER BY sort, id LIMIT n), so every page
+   * costs the same however deep it is. If there is a next page, its cursor is in the
+   * X-Next-Cursor header and its URL in a Link header with rel="next"; the body is a JSON array
+   * either way. With stream, it instead writes all of them as they are read from the database,
+   * as a JSON array (json) or one JSON object per line (ndjson).
+   *
+   * The ETag of the response is the change counter of the table. If the client already has it
+   * (If-None-Match), the response is 304 Not Modified and the entities are not read at all.
+   *
+   * @param <T> the entity type
+   * @param <R> the repository type
+   * @param repository the repository of the entities
+   * @param entityClass the entity class
+   * @param page the page parameters
+   * @return the entities, with the next-page headers if there are more, or 304 if unchanged
+   * @throws InvalidPageRequestException if the sort field is unknown or may be null, or the
+   *     cursor or stream cannot be used
+   */
+  protected <T, R extends CrudRepository<T, ?> & JpaSpecificationExecutor<T>>
+      ResponseEntity<?> page(R repository, Class<T> entityClass, PageParams page) {
+    return page(repository, entityClass, page, version -> repository.findAll());
+  }
+
+  /**
+   * This method is {@link #page(CrudRepository, Class, PageParams)} with all of the entities,
+   * for a request without any page parameters, read from somewhere else, such as a cache. They
+   * are read after the table version that becomes the ETag, and must be at least as new as it.
+   *
+   * @param <T> the entity type
+   * @param <R> the repository type
+   * @param repository the repository of the entities
+   * @param entityClass the entity class
+   * @param page the page parameters
+   * @param readAll returns all of the entities, given the version of the table
+   * @return the entities, with the next-page headers if there are more, or 304 if unchanged
+   * @throws InvalidPageRequestException if the sort field is unknown or may be null, or the
+   *     cursor or stream cannot be used
+   */
+  protected <T, R extends CrudRepository<T, ?> & JpaSpecificationExecutor<T>>
+      ResponseEntity<?> page(
+          R repository,
+          Class<T> entityClass,
+          PageParams page,
+          LongFunction<Iterable<T>> readAll) {
+    // read before the entities, so that a change in between leaves the ETag behind the body
+    // rather than ahead of it
+    long version = tableVersionService.getVersion(entityClass);
+    String etag = etagOf(version);
+    if (currentRequestHeaders().getIfNoneMatch().stream()
+        .anyMatch(tag -> tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag))) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok().eTag(etag);
+
+    boolean paged = page.getAfter() != null || page.getLimit() != null || page.getSort() != null;
+    if (page.getStream() != null) {
+      return stream(ok, entityClass, page.getStream(), paged);
+    }
+    if (!paged) {
+      return ok.body(readAll.apply(version));
+    }
+    EntityTable table = ENTITY_TABLES.computeIfAbsent(entityClass, EntityTable::of);
+    Sort sort = parseSort(table, page.getSort());
+    ScrollPosition position =
+        page.getAfter() == null
+            ? ScrollPosition.keyset()
+            : parseCursor(table, sort, page.getAfter());
+    int limit =
+        page.getLimit() == null
+            ? DEFAULT_PAGE_SIZE
+            : Math.max(1, Math.min(page.getLimit(), MAX_PAGE_SIZE));
+
+    Specification<T> all = (root, query, cb) -> null;
+    Window<T> window =
+        repository.findBy(
+            all, (FetchableFluentQuery<T> q) -> q.sortBy(sort).limit(limit).scroll(position));
+
+    if (!window.hasNext()) {
+      return ok.body(window.getContent());
+    }
+    KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+    String cursor = cursorOf(last.getKeys());
+    String next =
+        ServletUriComponentsBuilder.fromCurrentRequest()
+            .replaceQueryParam("after", cursor)
+            .replaceQueryParam("limit", limit)
+            .toUriString();
+    return ok
+        .header(NEXT_CURSOR_HEADER, cursor)
+        .header(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(next))
+        .body(window.getContent());
+  }
+
+  private <T> ResponseEntity<StreamingResponseBody> stream(
+      ResponseEntity.BodyBuilder ok, Class<T> entityClass, String stream, boolean paged) {
+    EntityStreamer.Format format =
+        switch (stream.toLowerCase(Locale.ROOT)) {
+          case "json" -> EntityStreamer.Format.JSON;
+          case "ndjson" -> EntityStreamer.Format.NDJSON;
+          default -> throw new InvalidPageRequestException("stream must be json or ndjson");
+        };
+    if (paged) {
+      throw new InvalidPageRequestException("stream cannot be used with after, limit or sort");
+    }
+    return ok
+        .contentType(
+            format == EntityStreamer.Format.JSON
+                ? MediaType.APPLICATION_JSON
+                : MediaType.APPLICATION_NDJSON)
+        .body(entityStreamer.stream(entityClass, format));
+  }
+
+  private static HttpHeaders currentRequestHeaders() {
+    HttpServletRequest request =
+        ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+    return new ServletServerHttpRequest(request).getHeaders();
+  }
+
+  /**
+   * This method returns the strong ETag of a version of an entity or table.
+   * @param version the version
+   * @return the ETag
+   */
+  protected static String etagOf(long version) {
+    return "\"%d\"".formatted(version);
+  }
+
+  /**
+   * This method returns an entity with its version as the ETag of the response. A GET with a
+   * matching If-None-Match is answered with 304 Not Modified instead.
+   * @param <T> the entity type
+   * @param entity the entity
+   * @return the response
+   */
+  protected <T extends Versioned> ResponseEntity<T> withETag(T entity) {
+    if (entity.getVersion() == null) {
+      return ResponseEntity.ok(entity);
+    }
+    return ResponseEntity.ok().eTag(etagOf(entity.getVersion())).body(entity);
+  }
+
+  /**
+   * This method checks the If-Match header of an update against the current version of the
+   * entity, so that a client cannot overwrite a change it has not seen.
+   * @param ifMatch the If-Match header, or null to update whatever the version
+   * @param entity the current version of the entity
+   * @throws PreconditionFailedException if the header does not match the version
+   */
+  protected void checkIfMatch(String ifMatch, Versioned entity) {
+    if (ifMatch == null) {
+      return;
+    }
+    String etag = etagOf(entity.getVersion());
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.IF_MATCH, ifMatch);
+    if (headers.getIfMatch().stream().noneMatch(tag -> tag.equals("*") || tag.equals(etag))) {
+      throw new PreconditionFailedException(entity.getClass(), etag);
+    }
+  }
+
+  // e.g. "name,desc" sorts by name, then id, both descending
+  private static Sort parseSort(EntityTable table, String sort) {
+    String idField = table.getIdColumn().field().getName();
+    if (sort == null) {
+      return Sort.by(idField);
+    }
+    String[] parts = sort.split(",", -1);
+    Sort.Direction direction =
+        parts.length == 2 ? Sort.Direction.fromOptionalString(parts[1].trim()).orElse(null) : null;
+    if (parts.length > 2 || (parts.length == 2 && direction == null)) {
+      throw new InvalidPageRequestException("sort must be a field name, then ,asc or ,desc");
+    }
+    String field = parts[0].trim();
+    EntityColumn column =
+        table.getColumns().stream()
+            .filter(c -> c.field().getName().equals(field))
+            .findFirst()
+            .orElseThrow(
+                () ->
+                    new InvalidPageRequestException(
+                        "Cannot sort %s by %s".formatted(table.getName(), field)));
+    // (sort, id) > cursor is never true for a null sort value, so those rows would be skipped
+    if (column.nullable()) {
+      throw new InvalidPageRequestException(
+          "Cannot sort %s by %s, which may be null".formatted(table.getName(), field));
+    }
+    Sort.Direction order = direction == null ? Sort.Direction.ASC : direction;
+    return field.equals(idField)
+        ? Sort.by(order, idField)
+        : Sort.by(order, field).and(Sort.by(order, idField));
+  }
+
+  // a cursor is the sort values of the last entity of a page, as base64url-encoded JSON
+  private String cursorOf(Map<String, Object> keys) {
+    byte[] json = objectMapper.valueToTree(keys).toString().getBytes(StandardCharsets.UTF_8);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+  }
+
+  private KeysetScrollPosition parseCursor(EntityTable table, Sort sort, String cursor) {
+    Set<String> sortFields = sort.stream().map(Sort.Order::getProperty).collect(Collectors.toSet());
+    try {
+      Map<String, Object> values =
+          objectMapper.readValue(
+              Base64.getUrlDecoder().decode(cursor), new TypeReference<Map<String, Object>>() {});
+      if (values == null || !values.keySet().equals(sortFields)) {
+        throw new InvalidPageRequestException("Cursor does not match sort");
+      }
+      // JSON loses the types of the values, e.g. of dates; the fields have them
+      Map<String, Object> keys = new HashMap<>();
+      for (EntityColumn column : table.getColumns()) {
+        String field = column.field().getName();
+        if (values.containsKey(field)) {
+          Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(column.field().getType());
+          keys.put(field, objectMapper.convertValue(values.get(field), type));
+        }
+      }
+      return ScrollPosition.forward(keys);
+    } catch (IllegalArgumentException | IOException e) {
+      throw new InvalidPageRequestException("Invalid cursor");
+    }
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    * @param e the exception
@@ -51,4 +337,47 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  /**
+   * This method handles the JobQueueFullException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ JobQueueFullException.class })
+  @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+  public Object handleJobQueueFullException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles the PreconditionFailedException, and the OptimisticLockingFailureException
+   * of an update that lost a race with another one after its If-Match was checked.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ PreconditionFailedException.class, OptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  public Object handlePreconditionFailedException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles the InvalidPageRequestException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ InvalidPageRequestException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleInvalidPageRequestException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
 }
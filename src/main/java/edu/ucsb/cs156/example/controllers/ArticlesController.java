@@ -2,14 +2,17 @@ package edu.ucsb.cs156.example.controllers;
 
 import java.time.LocalDateTime;
 
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -19,6 +22,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.models.PageParams;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -41,14 +45,14 @@ import lombok.extern.slf4j.Slf4j;
      /** 
       * List all Articles
       * 
+      * @param pageParams after, limit and sort for one page, stream to stream all of them, or none for all of them
       * @return an iterable of Articles
       */
      @Operation(summary= "List all articles")
      @PreAuthorize("hasRole('ROLE_USER')")
      @GetMapping("/all")
-     public Iterable<Articles> allArticles() {
-         Iterable<Articles> articles = articlesRepository.findAll();
-         return articles;
+     public ResponseEntity<?> allArticles(@ParameterObject PageParams pageParams) {
+         return page(articlesRepository, Articles.class, pageParams);
      }
  
      /**
@@ -98,12 +102,12 @@ import lombok.extern.slf4j.Slf4j;
       @Operation(summary= "Get a single article")
       @PreAuthorize("hasRole('ROLE_USER')")
       @GetMapping("")
-      public Articles getById(
+      public ResponseEntity<Articles> getById(
               @Parameter(name="id") @RequestParam Long id) {
           Articles articles = articlesRepository.findById(id)
                   .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
   
-          return articles;
+          return withETag(articles);
       }
 
      /**
@@ -128,18 +132,21 @@ import lombok.extern.slf4j.Slf4j;
       * Update a single article
       * 
       * @param id       id of the article to update
+      * @param ifMatch the ETag of the version being updated, or none to update any version
       * @param incoming the new article
       * @return the updated article object
       */
      @Operation(summary= "Update a single article")
      @PreAuthorize("hasRole('ROLE_ADMIN')")
      @PutMapping("")
-     public Articles updateArticles(
+     public ResponseEntity<Articles> updateArticles(
              @Parameter(name="id") @RequestParam Long id,
+             @Parameter(name="If-Match") @RequestHeader(value = "If-Match", required = false) String ifMatch,
              @RequestBody @Valid Articles incoming) {
  
          Articles articles = articlesRepository.findById(id)
                  .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+         checkIfMatch(ifMatch, articles);
  
          articles.setTitle(incoming.getTitle());
          articles.setUrl(incoming.getUrl());
@@ -147,9 +154,7 @@ import lombok.extern.slf4j.Slf4j;
          articles.setEmail(incoming.getEmail());
          articles.setDateAdded(incoming.getDateAdded());
  
-         articlesRepository.save(articles);
- 
-         return articles;
+         return withETag(articlesRepository.save(articles));
      }
  }
  
\ No newline at end of file
@@ -0,0 +1,244 @@
+package edu.ucsb.cs156.example.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.jobs.ExportJob;
+import edu.ucsb.cs156.example.jobs.ImportJob;
+import edu.ucsb.cs156.example.models.JobResult;
+import edu.ucsb.cs156.example.services.IdSequenceService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.services.bulk.DataFormat;
+import edu.ucsb.cs156.example.services.bulk.EntityTable;
+import edu.ucsb.cs156.example.services.bulk.EntityTableRegistry;
+import edu.ucsb.cs156.example.services.jobs.JobResultStore;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * This is a REST controller for jobs that load or dump whole entity tables.
+ */
+@Tag(name = "Bulk data")
+@RequestMapping("/api/bulk")
+@RestController
+@Slf4j
+public class BulkDataController extends ApiController {
+  @Autowired private JobService jobService;
+
+  @Autowired private EntityTableRegistry entityTableRegistry;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Autowired private TableVersionService tableVersionService;
+
+  @Autowired private IdSequenceService idSequenceService;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private JobResultStore jobResultStore;
+
+  @Value("${app.jobs.import.batchSize:500}")
+  private int importBatchSize;
+
+  @Value("${app.jobs.import.chunkSize:5000}")
+  private int importChunkSize;
+
+  @Value("${app.jobs.export.dir:${java.io.tmpdir}/exports}")
+  private Path exportDir;
+
+  @Value("${app.jobs.export.fetchSize:1000}")
+  private int exportFetchSize;
+
+  /**
+   * Starts a job that imports rows into an entity table.
+   *
+   * @param entity the entity name, e.g. ucsbdiningcommonsmenuitems
+   * @param format csv or json; by default, json for .json and .ndjson files and csv otherwise
+   * @param file the rows
+   * @return the job, or 400 if the entity or format is unknown
+   * @throws IOException if the upload cannot be saved for the job
+   */
+  @Operation(
+      summary = "Import rows into an entity table from a CSV or JSON file",
+      description =
+          "CSV files start with a header of field names; JSON files hold an array of objects or "
+              + "one object per line. Rejected rows are listed in the job log.")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<Object> importRows(
+      @Parameter(name = "entity", description = "entity name, e.g. ucsbdiningcommonsmenuitems")
+          @RequestParam
+          String entity,
+      @Parameter(name = "format", description = "csv or json")
+          @RequestParam(required = false)
+          String format,
+      @Parameter(name = "file", description = "the rows to import") @RequestParam
+          MultipartFile file)
+      throws IOException {
+    Optional<EntityTable> table = entityTableRegistry.find(entity);
+    if (table.isEmpty()) {
+      return unknownEntity(entity);
+    }
+    String formatName = format != null ? format : defaultFormat(file.getOriginalFilename());
+    Optional<DataFormat> importFormat = parseFormat(formatName);
+    if (importFormat.isEmpty()) {
+      return unknownFormat(formatName);
+    }
+
+    // the upload is gone once this request ends, so the job gets its own copy
+    Path upload = Files.createTempFile("import-", "." + formatName);
+    file.transferTo(upload);
+    ImportJob importJob =
+        ImportJob.builder()
+            .table(table.get())
+            .format(importFormat.get())
+            .file(upload)
+            .jdbcTemplate(jdbcTemplate)
+            .transactionTemplate(transactionTemplate)
+            .tableVersionService(tableVersionService)
+            .idSequenceService(idSequenceService)
+            .mapper(mapper)
+            .batchSize(importBatchSize)
+            .chunkSize(importChunkSize)
+            .build();
+    try {
+      return ResponseEntity.ok(jobService.runAsJob(importJob));
+    } catch (RuntimeException e) {
+      Files.deleteIfExists(upload);
+      throw e;
+    }
+  }
+
+  /**
+   * Starts a job that exports all rows of an entity table to a file.
+   *
+   * @param entity the entity name, e.g. ucsbdiningcommonsmenuitems
+   * @param format csv or json (one object per line)
+   * @param gzip whether to compress the file
+   * @return the job, or 400 if the entity or format is unknown
+   */
+  @Operation(
+      summary = "Export an entity table to a CSV or NDJSON file",
+      description =
+          "The file is written by a job; once the job is complete, download it from "
+              + "GET /api/bulk/export?jobId=")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/export")
+  public ResponseEntity<Object> exportRows(
+      @Parameter(name = "entity", description = "entity name, e.g. ucsbdiningcommonsmenuitems")
+          @RequestParam
+          String entity,
+      @Parameter(name = "format", description = "csv or json") @RequestParam(defaultValue = "csv")
+          String format,
+      @Parameter(name = "gzip", description = "compress the file with gzip")
+          @RequestParam(defaultValue = "false")
+          boolean gzip) {
+    Optional<EntityTable> table = entityTableRegistry.find(entity);
+    if (table.isEmpty()) {
+      return unknownEntity(entity);
+    }
+    Optional<DataFormat> exportFormat = parseFormat(format);
+    if (exportFormat.isEmpty()) {
+      return unknownFormat(format);
+    }
+
+    ExportJob exportJob =
+        ExportJob.builder()
+            .table(table.get())
+            .format(exportFormat.get())
+            .gzip(gzip)
+            .directory(exportDir)
+            .jdbcTemplate(jdbcTemplate)
+            .transactionTemplate(transactionTemplate)
+            .mapper(mapper)
+            .fetchSize(exportFetchSize)
+            .build();
+    return ResponseEntity.ok(jobService.runAsJob(exportJob));
+  }
+
+  /**
+   * Downloads the file written by an export job, which is stored as the job's result.
+   *
+   * @param jobId id of the export job
+   * @return the file
+   * @throws EntityNotFoundException if the job has not finished an export
+   */
+  @Operation(summary = "Download the file written by an export job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> downloadExport(
+      @Parameter(name = "jobId", description = "ID of the export job") @RequestParam long jobId) {
+    JobResult result =
+        jobResultStore
+            .find(jobId)
+            .orElseThrow(() -> new EntityNotFoundException(JobResult.class, jobId));
+    String name = "%d-export.%s".formatted(jobId, fileExtension(result.getContentType()));
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(result.getContentType()))
+        .contentLength(result.getSizeBytes())
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(name).build().toString())
+        .body(out -> jobResultStore.copyTo(jobId, out));
+  }
+
+  private ResponseEntity<Object> unknownEntity(String entity) {
+    return ResponseEntity.badRequest()
+        .body(
+            genericMessage(
+                "Unknown entity %s; expected one of %s"
+                    .formatted(entity, entityTableRegistry.getNames())));
+  }
+
+  private ResponseEntity<Object> unknownFormat(String format) {
+    return ResponseEntity.badRequest()
+        .body(genericMessage("Unknown format %s; expected csv or json".formatted(format)));
+  }
+
+  private static Optional<DataFormat> parseFormat(String format) {
+    try {
+      return Optional.of(DataFormat.valueOf(format.toUpperCase(Locale.ROOT)));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static String fileExtension(String contentType) {
+    return switch (contentType) {
+      case "text/csv" -> "csv";
+      case "application/x-ndjson" -> "ndjson";
+      default -> "gz";
+    };
+  }
+
+  private static String defaultFormat(String filename) {
+    String name = Objects.requireNonNullElse(filename, "").toLowerCase(Locale.ROOT);
+    return name.endsWith(".json") || name.endsWith(".ndjson") ? "json" : "csv";
+  }
+}
@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.controllers;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ucsb.cs156.example.models.CacheStats;
+import edu.ucsb.cs156.example.services.cache.ReferenceDataCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * This is a REST controller for getting the hit and miss counts of the in-memory caches.
+ * 
+ * These endpoints are only accessible to users with the role "ROLE_ADMIN".
+ */
+
+@Tag(name="Caches (admin only)")
+@RequestMapping("/api/admin/caches")
+@RestController
+public class CachesController extends ApiController {
+    @Autowired
+    ReferenceDataCache referenceDataCache;
+
+    /**
+     * This method returns the size, hits, misses and evictions of each cache.  Accessible only to users with the role "ROLE_ADMIN".
+     * @return the stats of each cache
+     */
+    @Operation(summary= "Get the stats of the in-memory caches")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("")
+    public List<CacheStats> caches() {
+        return referenceDataCache.getStats();
+    }
+}
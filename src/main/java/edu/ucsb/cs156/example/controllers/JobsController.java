@@ -5,42 +5,95 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.CompressedJobLog;
+import edu.ucsb.cs156.example.models.JobLogRange;
+import edu.ucsb.cs156.example.models.JobProgress;
+import edu.ucsb.cs156.example.models.JobResult;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobSummaryPage;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreamer;
+import edu.ucsb.cs156.example.services.jobs.JobResultStore;
 import edu.ucsb.cs156.example.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "Jobs")
 @RequestMapping("/api/jobs")
 @RestController
 @Slf4j
 public class JobsController extends ApiController {
+  static final String TOTAL_LINES_HEADER = "X-Total-Lines";
+  static final String LINE_OFFSET_HEADER = "X-Line-Offset";
+  static final MediaType TEXT_PLAIN_UTF8 = new MediaType("text", "plain", StandardCharsets.UTF_8);
+
   @Autowired private JobsRepository jobsRepository;
 
   @Autowired private JobService jobService;
 
+  @Autowired private JobLogStreamer jobLogStreamer;
+
+  @Autowired private JobResultStore jobResultStore;
+
   @Autowired ObjectMapper mapper;
 
-  @Operation(summary = "List all jobs")
+  @Operation(
+      summary = "List all jobs",
+      description = "Child jobs are left out; list them with /api/jobs/children.")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/all")
   public Iterable<Job> allJobs() {
-    Iterable<Job> jobs = jobsRepository.findAll();
+    Iterable<Job> jobs = jobsRepository.findAllByParentIdIsNull();
     return jobs;
   }
 
+  @Operation(
+      summary = "List jobs a page at a time, newest first, without their logs",
+      description =
+          "Pass nextBeforeCreatedAt and nextBeforeId from a page as beforeCreatedAt and "
+              + "beforeId to get the page after it.")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/summary")
+  public JobSummaryPage jobSummaries(
+      @Parameter(name = "status", description = "only list jobs with this status")
+          @RequestParam(required = false)
+          String status,
+      @Parameter(name = "beforeCreatedAt", description = "createdAt of the last job already seen")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime beforeCreatedAt,
+      @Parameter(name = "beforeId", description = "id of the last job already seen")
+          @RequestParam(required = false)
+          Long beforeId,
+      @Parameter(name = "size", description = "number of jobs per page (at most 500)")
+          @RequestParam(defaultValue = "50")
+          int size) {
+    return jobService.getJobSummaries(status, beforeCreatedAt, beforeId, size);
+  }
+
   @Operation(summary = "Delete all job records")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("/all")
@@ -62,6 +115,40 @@ public class JobsController extends ApiController {
     return job;
   }
 
+  @Operation(
+      summary = "Get the progress of several jobs",
+      description = "Reads only the status and progress columns, so it is cheap to poll.")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/progress")
+  public List<JobProgress> getJobProgress(
+      @Parameter(name = "ids", description = "comma separated job IDs") @RequestParam
+          List<Long> ids) {
+    return jobsRepository.findProgressByIdIn(ids);
+  }
+
+  @Operation(summary = "List the child jobs of a job, without their logs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/children")
+  public List<JobSummary> getChildJobs(
+      @Parameter(name = "id", description = "ID of the parent job") @RequestParam Long id) {
+    return jobsRepository.findChildSummaries(id);
+  }
+
+  @Operation(
+      summary = "Download the result of a job",
+      description = "Sent with the content type the job saved it with; 404 if it has none.")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/result")
+  public ResponseEntity<StreamingResponseBody> getJobResult(
+      @Parameter(name = "id", description = "ID of the job") @RequestParam Long id) {
+    JobResult result =
+        jobResultStore.find(id).orElseThrow(() -> new EntityNotFoundException(JobResult.class, id));
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(result.getContentType()))
+        .contentLength(result.getSizeBytes())
+        .body(out -> jobResultStore.copyTo(id, out));
+  }
+
   @Operation(summary = "Delete specific job record")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
@@ -78,20 +165,99 @@ public class JobsController extends ApiController {
   @PostMapping("/launch/testjob")
   public Job launchTestJob(
       @Parameter(name = "fail") @RequestParam Boolean fail,
-      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs) {
+      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs,
+      @Parameter(name = "timeoutMs", description = "stop the job after this many milliseconds")
+          @RequestParam(required = false)
+          Long timeoutMs,
+      @Parameter(
+              name = "dedupeKey",
+              description = "if a job launched with this key has not finished, return it instead")
+          @RequestParam(required = false)
+          String dedupeKey) {
 
     TestJob testJob = TestJob.builder().fail(fail).sleepMs(sleepMs).build();
-    return jobService.runAsJob(testJob);
+    return jobService.runAsJob(testJob, timeoutMs, dedupeKey);
   }
 
+  @Operation(
+      summary = "Cancel a job",
+      description =
+          "A queued job is cancelled immediately; a running job is interrupted and gets status "
+              + "cancelled once it stops.")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/cancel")
+  public Job cancelJob(@Parameter(name = "id", description = "ID of the job") @RequestParam Long id) {
+    return jobService.cancelJob(id);
+  }
 
-  @Operation(summary = "Get long job logs")
+  @Operation(
+      summary = "Get long job logs",
+      description =
+          "Returns the whole log, or a range of lines when offset/limit or tail is given. "
+              + "The X-Total-Lines and X-Line-Offset headers give the total number of lines and "
+              + "the line number of the first line returned. A whole log that is stored "
+              + "compressed is sent as stored to clients that accept gzip.")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/logs/{id}")
-  public String getJobLogs(@Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+  public ResponseEntity<?> getJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "offset", description = "line number of the first line (from 0)")
+          @RequestParam(required = false)
+          Long offset,
+      @Parameter(name = "limit", description = "maximum number of lines")
+          @RequestParam(required = false)
+          Long limit,
+      @Parameter(name = "tail", description = "return the last N lines")
+          @RequestParam(required = false)
+          Long tail,
+      @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false)
+          String acceptEncoding) {
 
-    return jobService.getJobLogs(id);
+    if (offset == null && limit == null && tail == null && acceptsGzip(acceptEncoding)) {
+      Optional<CompressedJobLog> compressed = jobService.getCompressedJobLog(id);
+      if (compressed.isPresent()) {
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+            .header(TOTAL_LINES_HEADER, Long.toString(compressed.get().getLineCount()))
+            .header(LINE_OFFSET_HEADER, "0")
+            .contentType(TEXT_PLAIN_UTF8)
+            .body(compressed.get().getGzip());
+      }
+    }
+
+    JobLogRange range = jobService.getJobLogRange(id, offset, limit, tail);
+    return ResponseEntity.ok()
+        .header(TOTAL_LINES_HEADER, Long.toString(range.getTotalLines()))
+        .header(LINE_OFFSET_HEADER, Long.toString(range.getOffset()))
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+        .body(range.getLog());
   }
 
+  // true unless gzip is missing from Accept-Encoding or explicitly refused with q=0
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      if (parts[0].trim().equalsIgnoreCase("gzip")) {
+        return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+      }
+    }
+    return false;
+  }
+
+  @Operation(summary = "Stream new job log lines as server-sent events until the job finishes")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/logs/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "Last-Event-ID", description = "seq of the last line already received")
+          @RequestHeader(name = "Last-Event-ID", required = false)
+          Long lastEventId) {
+
+    return jobLogStreamer.subscribe(id, lastEventId == null ? -1L : lastEventId);
+  }
 
 }
@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.MenuItemReviews;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewsRepository;
+import edu.ucsb.cs156.example.models.PageParams;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,14 +12,17 @@ import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -43,14 +47,14 @@ public class MenuItemReviewsController extends ApiController {
     /**
      * List all menu item reviews
      * 
+     * @param pageParams after, limit and sort for one page, stream to stream all of them, or none for all of them
      * @return an iterable of MenuItemReviews
      */
     @Operation(summary= "List all menu item reviews")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<MenuItemReviews> allMenuItemReviews() {
-        Iterable<MenuItemReviews> reviews = menuItemReviewsRepository.findAll();
-        return reviews;
+    public ResponseEntity<?> allMenuItemReviews(@ParameterObject PageParams pageParams) {
+        return page(menuItemReviewsRepository, MenuItemReviews.class, pageParams);
     }
 
     /**
@@ -100,30 +104,33 @@ public class MenuItemReviewsController extends ApiController {
     @Operation(summary= "Get a single menuitemreviews")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public MenuItemReviews getById(
+    public ResponseEntity<MenuItemReviews> getById(
             @Parameter(name="id") @RequestParam Long id) {
         MenuItemReviews menuItemReviews = menuItemReviewsRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReviews.class, id));
 
-        return menuItemReviews;
+        return withETag(menuItemReviews);
     }
 
     /**
      * Update a single menuitemreviews
      * 
      * @param id       id of the menuitemreviews to update
+     * @param ifMatch the ETag of the version being updated, or none to update any version
      * @param incoming the new menuitemreviews
      * @return the updated menuitemreviews object
      */
     @Operation(summary= "Update a single menuitemreviews")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public MenuItemReviews updateMenuItemReviews(
+    public ResponseEntity<MenuItemReviews> updateMenuItemReviews(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid MenuItemReviews incoming) {
 
         MenuItemReviews menuItemReviews = menuItemReviewsRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReviews.class, id));
+        checkIfMatch(ifMatch, menuItemReviews);
 
         menuItemReviews.setItemId(incoming.getItemId());
         menuItemReviews.setReviewerEmail(incoming.getReviewerEmail());
@@ -131,9 +138,7 @@ public class MenuItemReviewsController extends ApiController {
         menuItemReviews.setComments(incoming.getComments());
         menuItemReviews.setDateReviewed(incoming.getDateReviewed());
 
-        menuItemReviewsRepository.save(menuItemReviews);
-
-        return menuItemReviews;
+        return withETag(menuItemReviewsRepository.save(menuItemReviews));
     }
 
     /**
@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.models.PageParams;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,14 +12,17 @@ import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -42,14 +46,14 @@ public class RecommendationRequestController extends ApiController {
     /**
      * List all Recommendation Requests
      * 
+     * @param pageParams after, limit and sort for one page, stream to stream all of them, or none for all of them
      * @return an iterable of RecommendationRequest
      */
     @Operation(summary= "List all recommendation requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<RecommendationRequest> allRecommendationRequests() {
-        Iterable<RecommendationRequest> requests = recommendationRequestRepository.findAll();
-        return requests;
+    public ResponseEntity<?> allRecommendationRequests(@ParameterObject PageParams pageParams) {
+        return page(recommendationRequestRepository, RecommendationRequest.class, pageParams);
     }
 
     /**
@@ -99,30 +103,33 @@ public class RecommendationRequestController extends ApiController {
     @Operation(summary= "Get a single recommendation request")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public RecommendationRequest getById(
+    public ResponseEntity<RecommendationRequest> getById(
             @Parameter(name="id") @RequestParam Long id) {
         RecommendationRequest recReq = recommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
 
-        return recReq;
+        return withETag(recReq);
     }
 
         /**
      * Update a single recommendation request
      * 
      * @param id       id of the recommendation request to update
+     * @param ifMatch the ETag of the version being updated, or none to update any version
      * @param incoming the new recommendation request
      * @return the updated recommendation request object
      */
     @Operation(summary= "Update a single recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public RecommendationRequest updateRecommendationRequest(
+    public ResponseEntity<RecommendationRequest> updateRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid RecommendationRequest incoming) {
 
         RecommendationRequest request = recommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        checkIfMatch(ifMatch, request);
 
         request.setRequesterEmail(incoming.getRequesterEmail());
         request.setExplanation(incoming.getExplanation());
@@ -131,9 +138,7 @@ public class RecommendationRequestController extends ApiController {
         request.setDone(incoming.getDone());
         request.setProfessorEmail(incoming.getProfessorEmail());
 
-        recommendationRequestRepository.save(request);
-        
-        return request;
+        return withETag(recommendationRequestRepository.save(request));
     }
 
     /**
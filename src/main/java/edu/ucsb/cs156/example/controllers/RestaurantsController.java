@@ -3,18 +3,22 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.models.PageParams;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -35,14 +39,14 @@ public class RestaurantsController extends ApiController {
 
     /**
      * This method returns a list of all restaurants.
+     * @param pageParams after, limit and sort for one page, stream to stream all of them, or none for all of them
      * @return a list of all restaurants
      */
     @Operation(summary = "List all restaurants")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Restaurant> allRestaurants() {
-        Iterable<Restaurant> restaurants = restaurantRepository.findAll();
-        return restaurants;
+    public ResponseEntity<?> allRestaurants(@ParameterObject PageParams pageParams) {
+        return page(restaurantRepository, Restaurant.class, pageParams);
     }
 
     /**
@@ -53,12 +57,12 @@ public class RestaurantsController extends ApiController {
     @Operation(summary = "Get a single restaurant")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Restaurant getById(
+    public ResponseEntity<Restaurant> getById(
             @Parameter(name = "id") @RequestParam Long id) {
         Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
-        return restaurant;
+        return withETag(restaurant);
     }
 
     /**
@@ -102,24 +106,25 @@ public class RestaurantsController extends ApiController {
     /**
      * Update a single restaurant. Accessible only to users with the role "ROLE_ADMIN".
      * @param id id of the restaurant to update
+     * @param ifMatch the ETag of the version being updated, or none to update any version
      * @param incoming the new restaurant contents
      * @return the updated restaurant object
      */
     @Operation(summary = "Update a single restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public Restaurant updateRestaurant(
+    public ResponseEntity<Restaurant> updateRestaurant(
             @Parameter(name = "id") @RequestParam Long id,
+            @Parameter(name="If-Match") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid Restaurant incoming) {
 
         Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        checkIfMatch(ifMatch, restaurant);
 
         restaurant.setName(incoming.getName());
         restaurant.setDescription(incoming.getDescription());
 
-        restaurantRepository.save(restaurant);
-
-        return restaurant;
+        return withETag(restaurantRepository.save(restaurant));
     }
 }
\ No newline at end of file
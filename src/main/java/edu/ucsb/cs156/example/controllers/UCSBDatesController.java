@@ -3,6 +3,8 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.models.PageParams;
+import edu.ucsb.cs156.example.services.cache.ReferenceDataCache;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,14 +13,17 @@ import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -40,17 +45,21 @@ public class UCSBDatesController extends ApiController {
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    ReferenceDataCache referenceDataCache;
+
     /**
      * List all UCSB dates
      * 
+     * @param pageParams after, limit and sort for one page, stream to stream all of them, or none for all of them
      * @return an iterable of UCSBDate
      */
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-        return dates;
+    public ResponseEntity<?> allUCSBDates(@ParameterObject PageParams pageParams) {
+        return page(ucsbDateRepository, UCSBDate.class, pageParams,
+                version -> referenceDataCache.findAll(ucsbDateRepository, UCSBDate.class, version));
     }
 
     /**
@@ -62,12 +71,12 @@ public class UCSBDatesController extends ApiController {
     @Operation(summary= "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDate getById(
+    public ResponseEntity<UCSBDate> getById(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
+        UCSBDate ucsbDate = referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
-        return ucsbDate;
+        return withETag(ucsbDate);
     }
 
     /**
@@ -98,6 +107,7 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        referenceDataCache.evict(UCSBDate.class, savedUcsbDate.getId());
 
         return savedUcsbDate;
     }
@@ -117,6 +127,7 @@ public class UCSBDatesController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
         ucsbDateRepository.delete(ucsbDate);
+        referenceDataCache.evict(UCSBDate.class, id);
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
@@ -124,25 +135,29 @@ public class UCSBDatesController extends ApiController {
      * Update a single date
      * 
      * @param id       id of the date to update
+     * @param ifMatch the ETag of the version being updated, or none to update any version
      * @param incoming the new date
      * @return the updated date object
      */
     @Operation(summary= "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBDate updateUCSBDate(
+    public ResponseEntity<UCSBDate> updateUCSBDate(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDate incoming) {
 
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        checkIfMatch(ifMatch, ucsbDate);
 
         ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
         ucsbDate.setName(incoming.getName());
         ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
 
-        ucsbDateRepository.save(ucsbDate);
+        UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        referenceDataCache.evict(UCSBDate.class, id);
 
-        return ucsbDate;
+        return withETag(savedUcsbDate);
     }
 }
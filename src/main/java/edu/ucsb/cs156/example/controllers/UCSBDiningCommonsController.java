@@ -3,19 +3,24 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.models.PageParams;
+import edu.ucsb.cs156.example.services.cache.ReferenceDataCache;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -35,16 +40,20 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    ReferenceDataCache referenceDataCache;
+
     /**
      * THis method returns a list of all ucsbdiningcommons.
+     * @param pageParams after, limit and sort for one page, stream to stream all of them, or none for all of them
      * @return a list of all ucsbdiningcommons
      */
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    public ResponseEntity<?> allCommonss(@ParameterObject PageParams pageParams) {
+        return page(ucsbDiningCommonsRepository, UCSBDiningCommons.class, pageParams,
+                version -> referenceDataCache.findAll(ucsbDiningCommonsRepository, UCSBDiningCommons.class, version));
     }
 
     /**
@@ -55,12 +64,13 @@ public class UCSBDiningCommonsController extends ApiController {
     @Operation(summary= "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDiningCommons getById(
+    public ResponseEntity<UCSBDiningCommons> getById(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+        UCSBDiningCommons commons = referenceDataCache
+                .findById(ucsbDiningCommonsRepository, UCSBDiningCommons.class, code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
-        return commons;
+        return withETag(commons);
     }
 
     /**
@@ -98,6 +108,7 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(longitude);
 
         UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        referenceDataCache.evict(UCSBDiningCommons.class, code);
 
         return savedCommons;
     }
@@ -116,24 +127,28 @@ public class UCSBDiningCommonsController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
         ucsbDiningCommonsRepository.delete(commons);
+        referenceDataCache.evict(UCSBDiningCommons.class, code);
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
     /**
      * Update a single diningcommons. Accessible only to users with the role "ROLE_ADMIN".
      * @param code code of the diningcommons
+     * @param ifMatch the ETag of the version being updated, or none to update any version
      * @param incoming the new commons contents
      * @return the updated commons object
      */
     @Operation(summary= "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBDiningCommons updateCommons(
+    public ResponseEntity<UCSBDiningCommons> updateCommons(
             @Parameter(name="code") @RequestParam String code,
+            @Parameter(name="If-Match") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDiningCommons incoming) {
 
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        checkIfMatch(ifMatch, commons);
 
 
         commons.setName(incoming.getName());  
@@ -143,8 +158,9 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLatitude(incoming.getLatitude());
         commons.setLongitude(incoming.getLongitude());
 
-        ucsbDiningCommonsRepository.save(commons);
+        UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        referenceDataCache.evict(UCSBDiningCommons.class, code);
 
-        return commons;
+        return withETag(savedCommons);
     }
 }
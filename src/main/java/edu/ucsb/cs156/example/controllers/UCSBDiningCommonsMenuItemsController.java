@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.models.PageParams;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,13 +12,16 @@ import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -42,14 +46,14 @@ public class UCSBDiningCommonsMenuItemsController extends ApiController {
     /**
      * List all UCSB dining commons menu items
      * 
+     * @param pageParams after, limit and sort for one page, stream to stream all of them, or none for all of them
      * @return an iterable of UCSBDiningCommonsMenuitem
      */
     @Operation(summary= "List all ucsb dining commons menu items")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItems() {
-        Iterable<UCSBDiningCommonsMenuItem> items = ucsbDiningCommonsMenuItemRepository.findAll();
-        return items;
+    public ResponseEntity<?> allUCSBDiningCommonsMenuItems(@ParameterObject PageParams pageParams) {
+        return page(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, pageParams);
     }
 
     /**
@@ -89,35 +93,36 @@ public class UCSBDiningCommonsMenuItemsController extends ApiController {
     @Operation(summary= "List a particular ucsb dining commons menu item by id")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDiningCommonsMenuItem getUCSBDiningCommonsMenuItem(@Parameter(name="id") @RequestParam Long id) {
+    public ResponseEntity<UCSBDiningCommonsMenuItem> getUCSBDiningCommonsMenuItem(@Parameter(name="id") @RequestParam Long id) {
         UCSBDiningCommonsMenuItem item = ucsbDiningCommonsMenuItemRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-        return item;
+        return withETag(item);
     }
 
     /**
      * Update a single menu item
      * 
      * @param id       id of the menu item to update
+     * @param ifMatch the ETag of the version being updated, or none to update any version
      * @param incoming the new menu item
      * @return the updated menu item object
      */
     @Operation(summary= "Update a single menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBDiningCommonsMenuItem updateUCSBDiningCommonsMenuItem(
+    public ResponseEntity<UCSBDiningCommonsMenuItem> updateUCSBDiningCommonsMenuItem(
         @Parameter(name="id") @RequestParam Long id,
+        @Parameter(name="If-Match") @RequestHeader(value = "If-Match", required = false) String ifMatch,
         @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
 
         UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
             .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        checkIfMatch(ifMatch, ucsbDiningCommonsMenuItem);
 
         ucsbDiningCommonsMenuItem.setDiningCommonsCode(incoming.getDiningCommonsCode());
         ucsbDiningCommonsMenuItem.setName(incoming.getName());
         ucsbDiningCommonsMenuItem.setStation(incoming.getStation());
 
-        ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonsMenuItem);
-
-        return ucsbDiningCommonsMenuItem;
+        return withETag(ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonsMenuItem));
     }
 
     /**
@@ -3,19 +3,24 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.models.PageParams;
+import edu.ucsb.cs156.example.services.cache.ReferenceDataCache;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -35,16 +40,20 @@ public class UCSBOrganizationController extends ApiController {
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    ReferenceDataCache referenceDataCache;
+
     /**
      * THis method returns a list of all ucsborganizations.
+     * @param pageParams after, limit and sort for one page, stream to stream all of them, or none for all of them
      * @return a list of all ucsborganizations
      */
     @Operation(summary= "List all ucsb organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganization> allOrganizations() {
-        Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-        return organizations;
+    public ResponseEntity<?> allOrganizations(@ParameterObject PageParams pageParams) {
+        return page(ucsbOrganizationRepository, UCSBOrganization.class, pageParams,
+                version -> referenceDataCache.findAll(ucsbOrganizationRepository, UCSBOrganization.class, version));
     }
 
     /**
@@ -55,36 +64,41 @@ public class UCSBOrganizationController extends ApiController {
     @Operation(summary = "Get a single organization")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("") 
-    public UCSBOrganization getById(
+    public ResponseEntity<UCSBOrganization> getById(
         @Parameter(name="orgCode") @RequestParam String orgCode
     ) {
-        UCSBOrganization org = ucsbOrganizationRepository.findById(orgCode)
+        UCSBOrganization org = referenceDataCache
+            .findById(ucsbOrganizationRepository, UCSBOrganization.class, orgCode)
             .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-        return org;
+        return withETag(org);
     }
 
     /**
      * Update a single UCSBOrganization. Accessible only to users with the role "ROLE_ADMIN".
      * @param orgCode       the orgCode (String) – (@Id field)
+     * @param ifMatch the ETag of the version being updated, or none to update any version
      * @param incoming the new organization contents
      * @return the updated UCSBOrganization
      */
     @Operation(summary = "Update a single organization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("") 
-    public UCSBOrganization updateOrganization(
+    public ResponseEntity<UCSBOrganization> updateOrganization(
             @Parameter(name="id") @RequestParam(name="id") String orgCode,
+            @Parameter(name="If-Match") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBOrganization incoming) {
 
         UCSBOrganization org = ucsbOrganizationRepository.findById(orgCode)
             .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+        checkIfMatch(ifMatch, org);
 
         org.setOrgTranslationShort(incoming.getOrgTranslationShort());
         org.setOrgTranslation(incoming.getOrgTranslation());
         org.setInactive(incoming.getInactive());
 
-        ucsbOrganizationRepository.save(org);
-        return org;
+        UCSBOrganization savedOrg = ucsbOrganizationRepository.save(org);
+        referenceDataCache.evict(UCSBOrganization.class, orgCode);
+        return withETag(savedOrg);
     }
 
     /**
@@ -106,9 +120,15 @@ public class UCSBOrganizationController extends ApiController {
         @Parameter(name="inactive") @RequestParam boolean inactive
     ) {
 
-        UCSBOrganization org = new UCSBOrganization(orgCode, orgTranslationShort, orgTranslation, inactive);
+        UCSBOrganization org = UCSBOrganization.builder()
+            .orgCode(orgCode)
+            .orgTranslationShort(orgTranslationShort)
+            .orgTranslation(orgTranslation)
+            .inactive(inactive)
+            .build();
 
         UCSBOrganization savedOrg = ucsbOrganizationRepository.save(org);
+        referenceDataCache.evict(UCSBOrganization.class, orgCode);
         return savedOrg;
     }
 
@@ -127,6 +147,7 @@ public class UCSBOrganizationController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
         ucsbOrganizationRepository.delete(org);
+        referenceDataCache.evict(UCSBOrganization.class, orgCode);
         return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
     }
 }
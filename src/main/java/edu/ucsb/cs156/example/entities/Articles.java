@@ -2,10 +2,14 @@ package edu.ucsb.cs156.example.entities;
 
 import java.time.LocalDateTime;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,10 +23,12 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@EntityListeners(TableVersionListener.class)
 @Entity(name = "articles")
-public class Articles {
+public class Articles implements Versioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "articles_seq")
+  @SequenceGenerator(name = "articles_seq", sequenceName = "articles_seq", allocationSize = 50)
   private long id;
 
   private String title;
@@ -30,4 +36,7 @@ public class Articles {
   private String explanation;
   private String email;
   private LocalDateTime dateAdded;
-}
\ No newline at end of file
+
+  @Version
+  private Long version;
+}
@@ -16,7 +16,8 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EntityListeners(AuditingEntityListener.class)
 public class Job {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "jobs_seq")
+  @SequenceGenerator(name = "jobs_seq", sequenceName = "jobs_seq", allocationSize = 50)
   private long id;
 
   @JsonIgnore
@@ -29,6 +30,51 @@ public class Job {
 
   private String status;
 
+  // for jobs run through the durable queue: the registered job type, its parameters as JSON,
+  // and the worker (pid@host) that claimed it
+  private String type;
+
+  @Column(columnDefinition = "TEXT")
+  private String params;
+
+  private String workerId;
+
+  // refreshed periodically while a node is responsible for the job; see JobLeaseManager
+  private ZonedDateTime heartbeatAt;
+
+  // the job is stopped with status timed_out once it has run this long; null for no limit
+  private Long timeoutMs;
+
+  // set by JobService.runAsJob when the caller gives one, and cleared when the job finishes, so
+  // the unique constraint on it allows one unfinished job per key
+  private String dedupeKey;
+
+  // number of times the job has been started; see RetryPolicy
+  private int attempts;
+
+  // for a job queued again after a failed attempt: JobQueueWorker does not start it before then
+  private ZonedDateTime nextAttemptAt;
+
+  // how soon the job starts compared with other queued jobs; see JobPriority
+  private int priority;
+
+  // for child jobs started through JobContext.runChildren: the id of the job that started them
+  private Long parentId;
+
+  // set by JobService.cancelJob; only ever written by SQL updates so saving a job that a worker
+  // is running cannot clear it
+  @Column(insertable = false, updatable = false)
+  private boolean cancelRequested;
+
+  // progress reported through JobContext.progress and JobContext.increment, written every
+  // app.jobs.progress.flushIntervalMs by JobProgressWriter; counters is a JSON object of
+  // counter name to value
+  private Long progressDone;
+  private Long progressTotal;
+
+  @Column(columnDefinition = "TEXT")
+  private String counters;
+
   // 1048576 is 2^20, which is the max size of a mediumtext in MySQL
   @Column(
       columnDefinition = "TEXT",
@@ -1,9 +1,13 @@
 package edu.ucsb.cs156.example.entities;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,10 +23,12 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@EntityListeners(TableVersionListener.class)
 @Entity(name = "menuitemreviews")
-public class MenuItemReviews {
+public class MenuItemReviews implements Versioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menuitemreviews_seq")
+  @SequenceGenerator(name = "menuitemreviews_seq", sequenceName = "menuitemreviews_seq", allocationSize = 50)
   private long id;
 
   private long itemId;
@@ -30,4 +36,7 @@ public class MenuItemReviews {
   private int stars;
   private String comments;
   private LocalDateTime dateReviewed;
-}
\ No newline at end of file
+
+  @Version
+  private Long version;
+}
@@ -1,9 +1,13 @@
 package edu.ucsb.cs156.example.entities;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,10 +23,12 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@EntityListeners(TableVersionListener.class)
 @Entity(name = "recommendationrequest")
-public class RecommendationRequest {
+public class RecommendationRequest implements Versioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recommendationrequest_seq")
+  @SequenceGenerator(name = "recommendationrequest_seq", sequenceName = "recommendationrequest_seq", allocationSize = 50)
   private long id;
 
   private String requesterEmail;
@@ -31,5 +37,7 @@ public class RecommendationRequest {
   private LocalDateTime dateRequested;
   private LocalDateTime dateNeeded;
   private boolean done;
-  
-}
\ No newline at end of file
+
+  @Version
+  private Long version;
+}
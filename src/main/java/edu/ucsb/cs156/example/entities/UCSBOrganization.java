@@ -1,26 +1,36 @@
 package edu.ucsb.cs156.example.entities;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+@EntityListeners(TableVersionListener.class)
 @Entity(name = "ucsborganizations")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class UCSBOrganization {
+public class UCSBOrganization implements Versioned {
 
     @Id
     private String orgCode;
 
+    @Column(nullable = false)
     private String orgTranslationShort;
 
+    @Column(nullable = false)
     private String orgTranslation;
 
     private boolean inactive;
 
+    @Version
+    private Long version;
+
 }
@@ -0,0 +1,14 @@
+package edu.ucsb.cs156.example.entities;
+
+/**
+ * An entity with a JPA {@code @Version} field, which Hibernate increments on every update. The
+ * API serves the version as the ETag of the entity, and checks it against If-Match on updates.
+ */
+public interface Versioned {
+  /**
+   * Returns the version of the entity.
+   *
+   * @return the version, or null if the entity has not been saved yet
+   */
+  Long getVersion();
+}
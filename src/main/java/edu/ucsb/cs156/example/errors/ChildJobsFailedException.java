@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is thrown by
+ * JobContext.runChildren() when one or more child jobs fail. The exceptions thrown by the child
+ * jobs are attached as the cause (the first one) and as suppressed exceptions (all of them).
+ */
+public class ChildJobsFailedException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param failed number of child jobs that failed
+   * @param total number of child jobs
+   * @param first the exception thrown by the first child job that failed
+   */
+  public ChildJobsFailedException(int failed, int total, Throwable first) {
+    super("%d of %d child jobs failed: %s".formatted(failed, total, first.getMessage()), first);
+  }
+}
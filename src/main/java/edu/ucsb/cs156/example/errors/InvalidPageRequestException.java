@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a client asked for a page of entities with a sort field or cursor that cannot be used.
+ */
+public class InvalidPageRequestException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param message what is wrong with the request
+   */
+  public InvalidPageRequestException(String message) {
+    super(message);
+  }
+}
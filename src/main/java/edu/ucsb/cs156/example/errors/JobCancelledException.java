@@ -0,0 +1,17 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is thrown by
+ * JobContext.checkpoint() to unwind a job that has been cancelled or has timed out.
+ */
+public class JobCancelledException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param jobId id of the job
+   * @param status the status the job is stopped with, e.g. cancelled or timed_out
+   */
+  public JobCancelledException(long jobId, String status) {
+    super("Job %d stopped: %s".formatted(jobId, status));
+  }
+}
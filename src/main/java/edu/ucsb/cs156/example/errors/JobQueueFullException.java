@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a job could not be launched because the job executor is already at capacity.
+ */
+public class JobQueueFullException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param queueCapacity the number of jobs that may wait for a free worker
+   */
+  public JobQueueFullException(int queueCapacity) {
+    super("Job queue is full (%d jobs waiting); try again later".formatted(queueCapacity));
+  }
+}
@@ -0,0 +1,17 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a client asked to update a version of an entity that is no longer the current one.
+ */
+public class PreconditionFailedException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param entityType the class of the entity, e.g. Articles.class
+   * @param etag the ETag of the current version of the entity
+   */
+  public PreconditionFailedException(Class<?> entityType, String etag) {
+    super("%s has been changed; its current ETag is %s".formatted(entityType.getSimpleName(), etag));
+  }
+}
@@ -0,0 +1,163 @@
+package edu.ucsb.cs156.example.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.ucsb.cs156.example.services.bulk.CsvWriter;
+import edu.ucsb.cs156.example.services.bulk.DataFormat;
+import edu.ucsb.cs156.example.services.bulk.EntityTable;
+import edu.ucsb.cs156.example.services.bulk.EntityTable.EntityColumn;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.JobPriority;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import lombok.Builder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Writes all rows of an entity table to a CSV or NDJSON file, optionally gzip-compressed.
+ *
+ * Rows are read in id order from a server-side cursor that fetches fetchSize rows at a time, and
+ * each row is written out as soon as it is read, so memory use does not depend on the size of the
+ * table. The files use the entity field names, as ImportJob expects. The file is written to a
+ * scratch file in directory and, once it is complete, stored as the job's result, so that any
+ * node can serve it from GET /api/bulk/export and it is deleted with the job; the scratch file is
+ * removed either way.
+ */
+@Builder
+@JobPriority(JobPriority.BATCH)
+public class ExportJob implements JobContextConsumer {
+  private final EntityTable table;
+  private final DataFormat format;
+  private final boolean gzip;
+  private final Path directory;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper mapper;
+  private final int fetchSize;
+
+  private interface RowWriter {
+    void write(Object[] values) throws IOException;
+  }
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    long jobId = ctx.getJob().getId();
+    String contentType = contentType(format, gzip);
+    Files.createDirectories(directory);
+    Path part = Files.createTempFile(directory, jobId + "-", ".part");
+    ctx.log("Exporting %s as %s".formatted(table.getName(), contentType));
+    long total =
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table.getTableName(), Long.class);
+
+    try {
+      long[] exported = {0};
+      try (Writer out = writer(part)) {
+        RowWriter rows = format == DataFormat.CSV ? csvRows(out) : jsonRows(out);
+        PreparedStatementCreator select =
+            con -> {
+              PreparedStatement ps =
+                  con.prepareStatement(
+                      table.selectSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+              ps.setFetchSize(fetchSize);
+              return ps;
+            };
+        RowCallbackHandler handler =
+            rs -> {
+              try {
+                rows.write(read(rs));
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+              ctx.progress(++exported[0], total);
+              ctx.checkpoint();
+            };
+        // Postgres only streams from a cursor inside a transaction
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(select, handler));
+      }
+      try (InputStream in = Files.newInputStream(part)) {
+        ctx.saveResult(contentType, in, Files.size(part));
+      }
+      ctx.log(
+          "Exported %d rows; download from /api/bulk/export?jobId=%d"
+              .formatted(exported[0], jobId));
+    } finally {
+      Files.deleteIfExists(part);
+    }
+  }
+
+  /**
+   * Returns the media type of the files written by export jobs.
+   *
+   * @param format the format of the rows
+   * @param gzip whether the file is compressed
+   * @return text/csv, application/x-ndjson or, for a compressed file, application/gzip
+   */
+  static String contentType(DataFormat format, boolean gzip) {
+    if (gzip) {
+      return "application/gzip";
+    }
+    return format == DataFormat.CSV ? "text/csv" : "application/x-ndjson";
+  }
+
+  private Writer writer(Path file) throws IOException {
+    OutputStream out = Files.newOutputStream(file);
+    if (gzip) {
+      out = new GZIPOutputStream(out, 64 * 1024);
+    }
+    return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+  }
+
+  private Object[] read(ResultSet rs) throws SQLException {
+    List<EntityColumn> columns = table.getColumns();
+    Object[] values = new Object[columns.size()];
+    for (int i = 0; i < values.length; i++) {
+      Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(columns.get(i).field().getType());
+      values[i] = rs.getObject(i + 1, type);
+    }
+    return values;
+  }
+
+  private RowWriter csvRows(Writer out) throws IOException {
+    CsvWriter csv = new CsvWriter(out);
+    csv.writeRecord(table.getColumns().stream().map(c -> c.field().getName()).toList());
+    return values -> {
+      List<String> fields = new ArrayList<>(values.length);
+      for (Object value : values) {
+        // Jackson writes values the way ImportJob reads them, e.g. ISO dates
+        fields.add(value == null ? null : mapper.valueToTree(value).asText());
+      }
+      csv.writeRecord(fields);
+    };
+  }
+
+  private RowWriter jsonRows(Writer out) {
+    List<EntityColumn> columns = table.getColumns();
+    return values -> {
+      ObjectNode row = mapper.createObjectNode();
+      for (int i = 0; i < values.length; i++) {
+        row.set(columns.get(i).field().getName(), mapper.valueToTree(values[i]));
+      }
+      out.write(mapper.writeValueAsString(row));
+      out.write('\n');
+    };
+  }
+}
@@ -0,0 +1,258 @@
+package edu.ucsb.cs156.example.jobs;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.ucsb.cs156.example.services.IdSequenceService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.services.bulk.CsvReader;
+import edu.ucsb.cs156.example.services.bulk.DataFormat;
+import edu.ucsb.cs156.example.services.bulk.EntityTable;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.JobPriority;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Builder;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Loads rows into an entity table from an uploaded CSV or JSON file.
+ *
+ * The file is read as a stream, one row at a time. Every row is checked by binding it to the
+ * entity class, so a row with an unknown column or a value of the wrong type is rejected before
+ * it reaches the database. Good rows are inserted with JDBC batches of batchSize rows, one
+ * transaction per chunk of chunkSize rows; if the database refuses a chunk (e.g. a duplicate key)
+ * its rows are inserted one at a time to find the bad ones. Rejected rows are listed in the job
+ * log, and progress is the part of the file read so far.
+ *
+ * A CSV file starts with a header of entity field names (e.g. diningCommonsCode,name,station);
+ * empty fields are null. A JSON file is an array of objects, or one object per line (NDJSON),
+ * with the same field names. Generated ids in the file are ignored; ids that come from a sequence
+ * are reserved from it, a chunk at a time.
+ */
+@Builder
+@JobPriority(JobPriority.BATCH)
+public class ImportJob implements JobContextConsumer {
+  /** Rejected rows beyond this many are counted but not logged one by one. */
+  public static final int MAX_LOGGED_REJECTS = 100;
+
+  private final EntityTable table;
+  private final DataFormat format;
+  // deleted once the import is over
+  private final Path file;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  // counts each committed chunk, as JPA does not see these inserts
+  private final TableVersionService tableVersionService;
+  // reserves the ids of tables whose ids come from a sequence
+  private final IdSequenceService idSequenceService;
+  private final ObjectMapper mapper;
+  private final int batchSize;
+  private final int chunkSize;
+
+  // a row read from the file; values is null if the row is malformed, with the reason in error
+  private record Row(long number, JsonNode values, String error) {}
+
+  record PendingRow(long number, Object[] values) {}
+
+  private interface RowSource {
+    Row next() throws IOException;
+  }
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    try {
+      long totalBytes = Files.size(file);
+      ctx.log("Importing %s into %s".formatted(format, table.getName()));
+      ObjectReader entityReader =
+          mapper
+              .readerFor(table.getEntityClass())
+              .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+      String sql = table.insertSql();
+
+      try (CountingInputStream in = new CountingInputStream(Files.newInputStream(file))) {
+        RowSource rows = format == DataFormat.CSV ? csvRows(in) : jsonRows(in);
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        for (Row row = rows.next(); row != null; row = rows.next()) {
+          Object[] values = row.error() == null ? bind(ctx, entityReader, row) : null;
+          if (values == null) {
+            reject(ctx, row.number(), row.error());
+            continue;
+          }
+          chunk.add(new PendingRow(row.number(), values));
+          if (chunk.size() == chunkSize) {
+            insert(ctx, sql, chunk);
+            chunk.clear();
+            ctx.progress(in.getCount(), totalBytes);
+            ctx.checkpoint();
+          }
+        }
+        insert(ctx, sql, chunk);
+      }
+
+      ctx.progress(totalBytes, totalBytes);
+      long imported = ctx.getCounters().getOrDefault("imported", 0L);
+      long rejected = ctx.getCounters().getOrDefault("rejected", 0L);
+      if (rejected > MAX_LOGGED_REJECTS) {
+        ctx.log("... %d more rejected rows".formatted(rejected - MAX_LOGGED_REJECTS));
+      }
+      ctx.log(
+          "Imported %d rows into %s; rejected %d rows"
+              .formatted(imported, table.getName(), rejected));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  // binds a row to the entity class and returns its insert values, or null if it was rejected
+  private Object[] bind(JobContext ctx, ObjectReader entityReader, Row row) throws IOException {
+    ObjectNode values = (ObjectNode) row.values();
+    String idField = table.getIdColumn().field().getName();
+    if (table.isGeneratedId()) {
+      values.remove(idField);
+    } else if (values.path(idField).asText("").isBlank()) {
+      reject(ctx, row.number(), "missing " + idField);
+      return null;
+    }
+    try {
+      return table.insertValues(entityReader.readValue(values));
+    } catch (JsonProcessingException e) {
+      reject(ctx, row.number(), e.getOriginalMessage());
+      return null;
+    }
+  }
+
+  private void insert(JobContext ctx, String sql, List<PendingRow> chunk) {
+    if (chunk.isEmpty()) {
+      return;
+    }
+    if (table.getIdSequence() != null) {
+      long[] ids = idSequenceService.reserve(table, chunk.size());
+      for (int i = 0; i < ids.length; i++) {
+        // the id is the first insert value
+        chunk.get(i).values()[0] = ids[i];
+      }
+    }
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            jdbcTemplate.batchUpdate(
+                sql,
+                chunk,
+                batchSize,
+                (ps, row) -> new ArgumentPreparedStatementSetter(row.values()).setValues(ps));
+            tableVersionService.increment(table.getEntityClass());
+          });
+      ctx.increment("imported", chunk.size());
+    } catch (DataAccessException e) {
+      // one bad row rolls back the whole chunk; insert its rows one by one to find it
+      for (PendingRow row : chunk) {
+        try {
+          transactionTemplate.executeWithoutResult(
+              status -> {
+                jdbcTemplate.update(sql, row.values());
+                tableVersionService.increment(table.getEntityClass());
+              });
+          ctx.increment("imported");
+        } catch (DataAccessException rowError) {
+          reject(ctx, row.number(), rowError.getMostSpecificCause().getMessage());
+        }
+      }
+    }
+  }
+
+  private void reject(JobContext ctx, long rowNumber, String reason) {
+    if (ctx.increment("rejected") <= MAX_LOGGED_REJECTS) {
+      ctx.log("Row %d rejected: %s".formatted(rowNumber, reason));
+    }
+  }
+
+  private RowSource csvRows(InputStream in) throws IOException {
+    CsvReader csv =
+        new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    List<String> header = csv.readRecord();
+    if (header == null) {
+      return () -> null;
+    }
+    return () -> {
+      List<String> fields = csv.readRecord();
+      if (fields == null) {
+        return null;
+      }
+      // row 1 is the first record after the header
+      long number = csv.getRecordNumber() - 1;
+      if (fields.size() != header.size()) {
+        return new Row(
+            number,
+            null,
+            "expected %d fields, found %d".formatted(header.size(), fields.size()));
+      }
+      ObjectNode values = mapper.createObjectNode();
+      for (int i = 0; i < fields.size(); i++) {
+        if (fields.get(i).isEmpty()) {
+          values.putNull(header.get(i));
+        } else {
+          values.put(header.get(i), fields.get(i));
+        }
+      }
+      return new Row(number, values, null);
+    };
+  }
+
+  private RowSource jsonRows(InputStream in) throws IOException {
+    JsonParser parser = mapper.getFactory().createParser(in);
+    boolean array = parser.nextToken() == JsonToken.START_ARRAY;
+    long[] number = {0};
+    return () -> {
+      JsonToken token = array ? parser.nextToken() : parser.currentToken();
+      if (token == null || token == JsonToken.END_ARRAY) {
+        return null;
+      }
+      JsonNode values = mapper.readTree(parser);
+      if (!array) {
+        parser.nextToken();
+      }
+      number[0]++;
+      return values.isObject()
+          ? new Row(number[0], values, null)
+          : new Row(number[0], null, "not a JSON object");
+    };
+  }
+
+  // counts the bytes read so that progress can be reported against the file size
+  private static class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      count += Math.max(n, 0);
+      return n;
+    }
+
+    long getCount() {
+      return count;
+    }
+  }
+}
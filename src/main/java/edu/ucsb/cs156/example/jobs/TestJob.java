@@ -3,10 +3,14 @@ package edu.ucsb.cs156.example.jobs;
 import edu.ucsb.cs156.example.services.jobs.JobContext;
 import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
 import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 @Builder
+@Jacksonized // so that the job can be stored in the durable job queue
+@Getter
 public class TestJob implements JobContextConsumer {
 
   private boolean fail;
@@ -19,6 +23,7 @@ public class TestJob implements JobContextConsumer {
 
     ctx.log("Hello World! from test job!");
     Thread.sleep(sleepMs);
+    ctx.checkpoint();
     if (fail) {
       throw new Exception("Fail!");
     }
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents the size and the hit, miss and eviction counters of an
+ * in-memory cache since the application started.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class CacheStats {
+  private String name;
+  private int size; // values cached now
+  private int maxSize;
+  private long ttlMs;
+  private long hits;
+  private long misses;
+  private long evictions; // values dropped to make room, not counting expired or invalidated ones
+}
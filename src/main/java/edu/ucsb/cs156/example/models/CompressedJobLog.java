@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents a job log stored gzip-compressed in job_log_archives.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class CompressedJobLog {
+  private long lineCount; // number of lines in the uncompressed log
+  private byte[] gzip; // the log, lines separated by newlines, in gzip format
+}
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents a contiguous range of lines of a job log.
+ *
+ * Line numbers start at 0; totalLines lets a client page backwards from the end of the log.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobLogRange {
+  private long offset; // line number of the first line in log
+  private long totalLines; // number of lines in the whole job log
+  private String log; // the selected lines, separated by newlines
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents the progress of a job, read from the jobs table without
+ * its log.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobProgress {
+  private Long id;
+  private String status;
+  private Long progressDone; // units of work done, or null if the job has not reported any
+  private Long progressTotal; // units of work in the whole job, if known
+  @JsonRawValue private String counters; // JSON object of counter name to value
+  private ZonedDateTime updatedAt;
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that describes the result a job stored in job_results, without its
+ * content.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobResult {
+  private long jobId;
+  private String contentType; // e.g. application/json
+  private long sizeBytes;
+  private ZonedDateTime createdAt;
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents one page of the admin job listing, newest job first.
+ *
+ * To get the next page, pass nextBeforeCreatedAt and nextBeforeId back as beforeCreatedAt and
+ * beforeId; both are null on the last page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobSummaryPage {
+  private List<JobSummary> jobs;
+  private ZonedDateTime nextBeforeCreatedAt;
+  private Long nextBeforeId;
+}
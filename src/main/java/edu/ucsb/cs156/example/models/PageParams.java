@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.models;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class for the query parameters of a page of entities, as taken by the /all
+ * endpoints. Without any of them, /all returns every entity as before.
+ *
+ * Pages are read with keyset pagination: each page ends with a cursor that holds the sort values
+ * of its last entity, and the next page starts right after them. Unlike an offset, a cursor
+ * costs one index lookup however far into the table it is, and pages do not skip or repeat
+ * entities when others are added or deleted in between.
+ *
+ * With stream, /all instead writes every entity as it is read from the database, as a JSON array
+ * or as one JSON object per line (NDJSON), so the server never holds the whole table in memory.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PageParams {
+  @Parameter(description = "cursor from the X-Next-Cursor header of the previous page")
+  private String after;
+
+  @Parameter(description = "number of entities per page (default 100, at most 1000)")
+  private Integer limit;
+
+  @Parameter(
+      description =
+          "field to sort by, one that cannot be null, optionally followed by ,asc or ,desc"
+              + " (default id); ties are broken by id")
+  private String sort;
+
+  @Parameter(
+      description =
+          "json or ndjson to stream all entities as they are read; not with after, limit or sort")
+  private String stream;
+}
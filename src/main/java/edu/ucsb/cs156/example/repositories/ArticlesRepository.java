@@ -1,5 +1,6 @@
 package edu.ucsb.cs156.example.repositories;
 
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,4 +11,4 @@ import edu.ucsb.cs156.example.entities.Articles;
  */
 
 @Repository
-public interface ArticlesRepository extends CrudRepository<Articles, Long> {}
\ No newline at end of file
+public interface ArticlesRepository extends CrudRepository<Articles, Long>, JpaSpecificationExecutor<Articles> {}
\ No newline at end of file
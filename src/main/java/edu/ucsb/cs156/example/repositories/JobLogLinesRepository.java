@@ -0,0 +1,43 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.List;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The JobLogLinesRepository is a repository for JobLogLine entities.
+ */
+@Repository
+public interface JobLogLinesRepository extends CrudRepository<JobLogLine, Long> {
+  /**
+   * This method returns the log lines of a job in the order they were written.
+   * @param jobId id of the job
+   * @return the log lines of the job, ordered by seq
+   */
+  List<JobLogLine> findAllByJobIdOrderBySeqAsc(long jobId);
+
+  /**
+   * This method returns the log lines of a job written after a given line.
+   * @param jobId id of the job
+   * @param seq seq of the last line already seen
+   * @return the log lines of the job with a larger seq, ordered by seq
+   */
+  List<JobLogLine> findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(long jobId, long seq);
+
+  /**
+   * This method returns the log lines of a job whose seq lies in a range.
+   * @param jobId id of the job
+   * @param fromSeq seq of the first line (inclusive)
+   * @param toSeq seq of the last line (inclusive)
+   * @return the log lines in the range, ordered by seq
+   */
+  Iterable<JobLogLine> findAllByJobIdAndSeqBetweenOrderBySeqAsc(long jobId, long fromSeq, long toSeq);
+
+  /**
+   * This method returns the number of lines in the log of a job.
+   * @param jobId id of the job
+   * @return the number of log lines
+   */
+  long countByJobId(long jobId);
+}
@@ -1,8 +1,139 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.models.JobProgress;
+import edu.ucsb.cs156.example.models.JobSummary;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface JobsRepository extends CrudRepository<Job, Long> {}
+public interface JobsRepository extends CrudRepository<Job, Long> {
+  /**
+   * This method returns the number of jobs with a given status.
+   * @param status the status, e.g. queued
+   * @return the number of jobs with that status
+   */
+  long countByStatus(String status);
+
+  /**
+   * This method returns the top-level jobs, leaving out child jobs, which are listed under their
+   * parent instead.
+   * @return all jobs that have no parent
+   */
+  Iterable<Job> findAllByParentIdIsNull();
+
+  /**
+   * This method returns the child jobs of a job, without their logs.
+   * @param parentId id of the parent job
+   * @return summaries of the child jobs, in the order they were created
+   */
+  @Query(
+      "select new edu.ucsb.cs156.example.models.JobSummary("
+          + "j.id, j.status, j.createdAt, j.updatedAt, u.email)"
+          + " from jobs j left join j.createdBy u"
+          + " where j.parentId = :parentId"
+          + " order by j.id")
+  List<JobSummary> findChildSummaries(@Param("parentId") long parentId);
+
+  /**
+   * This method returns the unfinished job with a given dedupe key.
+   * @param dedupeKey the dedupe key
+   * @return the job, if there is one
+   */
+  Optional<Job> findByDedupeKey(String dedupeKey);
+
+  /**
+   * This method returns the current status of a job without loading the rest of the row.
+   * @param id id of the job
+   * @return the status, or null if there is no such job
+   */
+  @Query("select j.status from jobs j where j.id = :id")
+  String findStatusById(@Param("id") long id);
+
+  /**
+   * This method returns the progress of several jobs in one query, without reading their logs.
+   * @param ids ids of the jobs
+   * @return the progress of each job that exists, ordered by id
+   */
+  @Query(
+      "select new edu.ucsb.cs156.example.models.JobProgress("
+          + "j.id, j.status, j.progressDone, j.progressTotal, j.counters, j.updatedAt)"
+          + " from jobs j where j.id in :ids order by j.id")
+  List<JobProgress> findProgressByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method returns the top-level jobs that come after a (createdAt, id) cursor, newest
+   * first, without their logs. Seeking past the cursor instead of using an offset keeps every
+   * page as cheap as the first however far back the admin pages.
+   * @param createdAt createdAt of the last job on the previous page
+   * @param id id of the last job on the previous page
+   * @param pageable the page size; the page number should be 0
+   * @return the next page of job summaries
+   */
+  @Query(
+      "select new edu.ucsb.cs156.example.models.JobSummary("
+          + "j.id, j.status, j.createdAt, j.updatedAt, u.email)"
+          + " from jobs j left join j.createdBy u"
+          + " where j.parentId is null"
+          + " and (j.createdAt < :createdAt or (j.createdAt = :createdAt and j.id < :id))"
+          + " order by j.createdAt desc, j.id desc")
+  List<JobSummary> findSummariesBefore(
+      @Param("createdAt") ZonedDateTime createdAt, @Param("id") long id, Pageable pageable);
+
+  /**
+   * This method is the same as findSummariesBefore, but only returns jobs with a given status.
+   * @param status the status, e.g. error
+   * @param createdAt createdAt of the last job on the previous page
+   * @param id id of the last job on the previous page
+   * @param pageable the page size; the page number should be 0
+   * @return the next page of job summaries
+   */
+  @Query(
+      "select new edu.ucsb.cs156.example.models.JobSummary("
+          + "j.id, j.status, j.createdAt, j.updatedAt, u.email)"
+          + " from jobs j left join j.createdBy u"
+          + " where j.parentId is null and j.status = :status"
+          + " and (j.createdAt < :createdAt or (j.createdAt = :createdAt and j.id < :id))"
+          + " order by j.createdAt desc, j.id desc")
+  List<JobSummary> findSummariesByStatusBefore(
+      @Param("status") String status,
+      @Param("createdAt") ZonedDateTime createdAt,
+      @Param("id") long id,
+      Pageable pageable);
+
+  /**
+   * This method cancels a job that no worker is running: one that has not started yet, or one
+   * waiting to be retried.
+   * @param id id of the job
+   * @return 1 if the job was cancelled, 0 if it was not queued
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      value =
+          "UPDATE jobs SET status = 'cancelled', dedupe_key = NULL, updated_at = CURRENT_TIMESTAMP"
+              + " WHERE id = :id AND status = 'queued'",
+      nativeQuery = true)
+  int cancelIfQueued(@Param("id") long id);
+
+  /**
+   * This method asks the worker running a job to stop it.
+   * @param id id of the job
+   * @return 1 if the job is running, 0 otherwise
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      value = "UPDATE jobs SET cancel_requested = TRUE WHERE id = :id AND status = 'running'",
+      nativeQuery = true)
+  int requestCancel(@Param("id") long id);
+}
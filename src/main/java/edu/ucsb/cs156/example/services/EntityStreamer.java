@@ -0,0 +1,124 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaQuery;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Writes every entity of a table to an HTTP response as it is read, for the /all endpoints in
+ * streaming mode.
+ *
+ * Entities are read through a JPA result stream backed by a database cursor that fetches
+ * fetchSize rows at a time. Each entity is serialized on its own and then detached, so neither
+ * the persistence context nor the response buffer grows with the size of the table.
+ */
+@Service
+public class EntityStreamer {
+  /** How the entities are laid out in the response. */
+  public enum Format {
+    /** One JSON array, the same as /all without streaming. */
+    JSON,
+    /** One JSON object per line. */
+    NDJSON
+  }
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Value("${app.api.stream.fetchSize:1000}")
+  private int fetchSize;
+
+  /**
+   * Returns a response body that writes all entities of a class.
+   *
+   * @param <T> the entity type
+   * @param entityClass the entity class
+   * @param format how to lay out the entities
+   * @return the response body
+   */
+  public <T> StreamingResponseBody stream(Class<T> entityClass, Format format) {
+    return out -> write(entityClass, format, out);
+  }
+
+  /**
+   * Writes all entities of a class.
+   *
+   * @param <T> the entity type
+   * @param entityClass the entity class
+   * @param format how to lay out the entities
+   * @param out where to write them; it is flushed but not closed
+   * @throws IOException if the entities cannot be written, e.g. because the client went away
+   */
+  public <T> void write(Class<T> entityClass, Format format, OutputStream out) throws IOException {
+    ObjectWriter writer = mapper.writerFor(entityClass);
+    OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+    try {
+      // Postgres only streams from a cursor inside a transaction
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            CriteriaQuery<T> query = entityManager.getCriteriaBuilder().createQuery(entityClass);
+            query.select(query.from(entityClass));
+            try (Stream<T> entities =
+                entityManager
+                    .createQuery(query)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .getResultStream()) {
+              writeAll(entities.iterator(), writer, format, buffered);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    buffered.flush();
+  }
+
+  private <T> void writeAll(
+      Iterator<T> entities, ObjectWriter writer, Format format, OutputStream out)
+      throws IOException {
+    boolean array = format == Format.JSON;
+    if (array) {
+      out.write('[');
+    }
+    boolean first = true;
+    while (entities.hasNext()) {
+      T entity = entities.next();
+      if (array && !first) {
+        out.write(',');
+      }
+      out.write(writer.writeValueAsBytes(entity));
+      if (!array) {
+        out.write('\n');
+      }
+      entityManager.detach(entity);
+      first = false;
+    }
+    if (array) {
+      out.write(']');
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.Hibernate;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * JPA entity listener that counts every insert, update and delete of an entity in its table's
+ * counter. Hibernate runs it during the flush, in the transaction of the change. Hibernate gets
+ * it from Spring, which autowires it.
+ *
+ * Each table that changed is counted once per transaction, just before it commits, rather than
+ * once per row; an UPDATE of the counter after every insert would undo JDBC batching.
+ */
+public class TableVersionListener {
+  @Autowired private TableVersionService tableVersionService;
+
+  // lazy, as Hibernate may create the listener while it is still creating the entity managers
+  @Lazy @Autowired private EntityManager entityManager;
+
+  // the tables changed in the current transaction of each session
+  private final Map<SessionImplementor, Set<Class<?>>> changedTables = new ConcurrentHashMap<>();
+
+  /**
+   * Counts a change to the table of an entity.
+   *
+   * @param entity the entity that was inserted, updated or deleted
+   */
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  public void changed(Object entity) {
+    SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+    changedTables.computeIfAbsent(session, this::countBeforeCommit).add(Hibernate.getClass(entity));
+  }
+
+  private Set<Class<?>> countBeforeCommit(SessionImplementor session) {
+    Set<Class<?>> tables = new LinkedHashSet<>();
+    ActionQueue actionQueue = session.getActionQueue();
+    // Hibernate runs these after its last flush, before the commit, and after the rollback
+    actionQueue.registerProcess(
+        (BeforeTransactionCompletionProcess)
+            s -> {
+              changedTables.remove(session);
+              tables.forEach(tableVersionService::increment);
+            });
+    actionQueue.registerProcess(
+        (AfterTransactionCompletionProcess) (success, s) -> changedTables.remove(session));
+    return tables;
+  }
+}
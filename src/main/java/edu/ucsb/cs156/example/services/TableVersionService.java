@@ -0,0 +1,59 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.services.bulk.EntityTable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Counts the changes to each entity table, for the ETags of the /all endpoints.
+ *
+ * The counters are rows of table_versions, by entity name. A change increments its table's
+ * counter in the same transaction, so a client that saw a counter value has seen every change up
+ * to it; whether anything changed since is one primary key lookup, however big the table is. JPA
+ * writes are counted by {@link TableVersionListener}; bulk imports count their own.
+ */
+@Service
+public class TableVersionService {
+  static final String SELECT_SQL = "SELECT version FROM table_versions WHERE name = ?";
+
+  static final String INCREMENT_SQL =
+      "UPDATE table_versions SET version = version + 1 WHERE name = ?";
+
+  static final String INSERT_SQL = "INSERT INTO table_versions (name, version) VALUES (?, 1)";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private final Map<Class<?>, String> names = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the number of changes to an entity table.
+   *
+   * @param entityClass the entity class
+   * @return the counter, which only ever goes up
+   */
+  public long getVersion(Class<?> entityClass) {
+    List<Long> versions = jdbcTemplate.queryForList(SELECT_SQL, Long.class, nameOf(entityClass));
+    return versions.isEmpty() ? 0 : versions.get(0);
+  }
+
+  /**
+   * Counts a change to an entity table. Call it in the transaction that makes the change.
+   *
+   * @param entityClass the entity class
+   */
+  public void increment(Class<?> entityClass) {
+    String name = nameOf(entityClass);
+    // Liquibase adds a row for each table; this is for one added since
+    if (jdbcTemplate.update(INCREMENT_SQL, name) == 0) {
+      jdbcTemplate.update(INSERT_SQL, name);
+    }
+  }
+
+  private String nameOf(Class<?> entityClass) {
+    return names.computeIfAbsent(entityClass, c -> EntityTable.of(c).getName());
+  }
+}
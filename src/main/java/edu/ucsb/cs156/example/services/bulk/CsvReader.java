@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV records (RFC 4180) one at a time from a stream, so that a file of any size is read in
+ * constant memory. Fields may be quoted with double quotes, and quoted fields may contain commas,
+ * line breaks and doubled quotes. Records end with LF or CRLF.
+ */
+public class CsvReader {
+  private final Reader reader;
+  private int peeked = -2;
+  private long recordNumber;
+
+  /**
+   * @param reader the CSV text; should be buffered
+   */
+  public CsvReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @return the fields of the record, or null at the end of the input
+   * @throws IOException if the input cannot be read or a quoted field is not closed
+   */
+  public List<String> readRecord() throws IOException {
+    if (peek() == -1) {
+      return null;
+    }
+    recordNumber++;
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    while (true) {
+      int c = next();
+      if (c == '"' && field.isEmpty()) {
+        readQuoted(field);
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\r' && peek() == '\n') {
+        next();
+        break;
+      } else if (c == '\n' || c == -1) {
+        break;
+      } else {
+        field.append((char) c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /**
+   * Returns the number of the record last read.
+   *
+   * @return the record number, from 1 for the first record
+   */
+  public long getRecordNumber() {
+    return recordNumber;
+  }
+
+  private void readQuoted(StringBuilder field) throws IOException {
+    while (true) {
+      int c = next();
+      if (c == -1) {
+        throw new IOException("Unclosed quote in record %d".formatted(recordNumber));
+      }
+      if (c == '"') {
+        if (peek() != '"') {
+          return;
+        }
+        next();
+      }
+      field.append((char) c);
+    }
+  }
+
+  private int peek() throws IOException {
+    if (peeked == -2) {
+      peeked = reader.read();
+    }
+    return peeked;
+  }
+
+  private int next() throws IOException {
+    int c = peek();
+    peeked = -2;
+    return c;
+  }
+}
@@ -0,0 +1,46 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes CSV records (RFC 4180) that {@link CsvReader} reads back. Fields are quoted only when
+ * they contain a comma, a double quote or a line break; null fields are written as empty fields.
+ */
+public class CsvWriter {
+  private final Writer writer;
+
+  /**
+   * @param writer where the CSV text goes; should be buffered
+   */
+  public CsvWriter(Writer writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Writes one record, ending with CRLF.
+   *
+   * @param fields the fields of the record
+   * @throws IOException if the output cannot be written
+   */
+  public void writeRecord(List<String> fields) throws IOException {
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      writer.write(escape(fields.get(i)));
+    }
+    writer.write("\r\n");
+  }
+
+  static String escape(String field) {
+    if (field == null) {
+      return "";
+    }
+    if (field.chars().noneMatch(c -> c == ',' || c == '"' || c == '\r' || c == '\n')) {
+      return field;
+    }
+    return '"' + field.replace("\"", "\"\"") + '"';
+  }
+}
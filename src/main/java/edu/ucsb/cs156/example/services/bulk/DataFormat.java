@@ -0,0 +1,10 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+/**
+ * File formats of bulk imports and exports. CSV files start with a header of entity field names;
+ * JSON files hold one object per row, with the same field names.
+ */
+public enum DataFormat {
+  CSV,
+  JSON
+}
@@ -0,0 +1,203 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * How an entity class maps onto its table, for bulk jobs that read and write rows with plain JDBC
+ * instead of going through JPA one entity at a time. Table and column names follow the naming
+ * strategy Spring Boot configures for Hibernate, e.g. field quarterYYYYQ is column quarteryyyyq
+ * and field dateAdded is column date_added. The {@code @Version} field is not one of the columns.
+ *
+ * Generated ids come from the database (IDENTITY), which inserts leave out, or from a sequence
+ * ({@code @SequenceGenerator}), which inserts must set, from ids reserved the way Hibernate does.
+ */
+@Getter
+public class EntityTable {
+  /** One persistent field of the entity. */
+  public record EntityColumn(Field field, String name) {
+    /**
+     * Reads the value of the field.
+     *
+     * @param entity an instance of the entity
+     * @return the value of the field
+     */
+    public Object get(Object entity) {
+      return ReflectionUtils.getField(field, entity);
+    }
+
+    /**
+     * Tells whether the column can hold null: it can unless it is the id, has a primitive type or
+     * is mapped with {@code @Column(nullable = false)}.
+     *
+     * @return true if the column can be null
+     */
+    public boolean nullable() {
+      Column column = field.getAnnotation(Column.class);
+      return !field.isAnnotationPresent(Id.class)
+          && !field.getType().isPrimitive()
+          && (column == null || column.nullable());
+    }
+  }
+
+  private final String name;
+  private final Class<?> entityClass;
+  private final String tableName;
+  private final EntityColumn idColumn;
+  private final boolean generatedId;
+  // the sequence of a generated id, or null if the database generates it
+  private final SequenceGenerator idSequence;
+  private final List<EntityColumn> columns;
+
+  private EntityTable(
+      String name,
+      Class<?> entityClass,
+      String tableName,
+      EntityColumn idColumn,
+      boolean generatedId,
+      SequenceGenerator idSequence,
+      List<EntityColumn> columns) {
+    this.name = name;
+    this.entityClass = entityClass;
+    this.tableName = tableName;
+    this.idColumn = idColumn;
+    this.generatedId = generatedId;
+    this.idSequence = idSequence;
+    this.columns = columns;
+  }
+
+  /**
+   * Describes the table of an entity class.
+   *
+   * @param entityClass a class annotated with {@code @Entity} that has an {@code @Id} field
+   * @return the description
+   * @throws IllegalArgumentException if the class is not an entity with an id
+   */
+  public static EntityTable of(Class<?> entityClass) {
+    Entity entity = entityClass.getAnnotation(Entity.class);
+    if (entity == null) {
+      throw new IllegalArgumentException("%s is not an entity".formatted(entityClass.getName()));
+    }
+    String name = entity.name().isEmpty() ? entityClass.getSimpleName() : entity.name();
+
+    EntityColumn idColumn = null;
+    boolean generatedId = false;
+    SequenceGenerator idSequence = null;
+    List<EntityColumn> columns = new ArrayList<>();
+    for (Field field : entityClass.getDeclaredFields()) {
+      // the database starts versions at 0 and Hibernate increments them
+      if (Modifier.isStatic(field.getModifiers()) || field.isAnnotationPresent(Version.class)) {
+        continue;
+      }
+      ReflectionUtils.makeAccessible(field);
+      Column column = field.getAnnotation(Column.class);
+      String columnName =
+          column != null && !column.name().isEmpty()
+              ? column.name()
+              : physicalName(field.getName());
+      EntityColumn entityColumn = new EntityColumn(field, columnName);
+      if (field.isAnnotationPresent(Id.class)) {
+        idColumn = entityColumn;
+        generatedId = field.isAnnotationPresent(GeneratedValue.class);
+        idSequence = field.getAnnotation(SequenceGenerator.class);
+        columns.add(0, entityColumn);
+      } else {
+        columns.add(entityColumn);
+      }
+    }
+    if (idColumn == null) {
+      throw new IllegalArgumentException("%s has no @Id field".formatted(entityClass.getName()));
+    }
+    return new EntityTable(
+        name.toLowerCase(Locale.ROOT),
+        entityClass,
+        physicalName(name),
+        idColumn,
+        generatedId,
+        idSequence,
+        List.copyOf(columns));
+  }
+
+  /**
+   * Returns the columns that an insert sets: all of them, less the id if the database generates
+   * it.
+   *
+   * @return the columns, in table order
+   */
+  public List<EntityColumn> getInsertColumns() {
+    return generatedId && idSequence == null ? columns.subList(1, columns.size()) : columns;
+  }
+
+  /**
+   * Returns an INSERT statement with one parameter per insert column.
+   *
+   * @return the SQL
+   */
+  public String insertSql() {
+    List<EntityColumn> insertColumns = getInsertColumns();
+    return "INSERT INTO %s (%s) VALUES (%s)"
+        .formatted(
+            tableName,
+            insertColumns.stream().map(EntityColumn::name).collect(Collectors.joining(", ")),
+            insertColumns.stream().map(c -> "?").collect(Collectors.joining(", ")));
+  }
+
+  /**
+   * Returns the values of the insert columns of an entity, in the order of {@link #insertSql()}.
+   *
+   * @param entity an instance of the entity
+   * @return the values
+   */
+  public Object[] insertValues(Object entity) {
+    return getInsertColumns().stream().map(c -> c.get(entity)).toArray();
+  }
+
+  /**
+   * Returns a SELECT statement for all columns of all rows, in id order.
+   *
+   * @return the SQL
+   */
+  public String selectSql() {
+    return "SELECT %s FROM %s ORDER BY %s"
+        .formatted(
+            columns.stream().map(EntityColumn::name).collect(Collectors.joining(", ")),
+            tableName,
+            idColumn.name());
+  }
+
+  /**
+   * Converts a Java name to a table or column name the way Spring Boot's
+   * CamelCaseToUnderscoresNamingStrategy does: an underscore goes before every upper case letter
+   * that is between two lower case letters or digits, and everything is lower case.
+   *
+   * @param logicalName a class, entity or field name
+   * @return the physical name
+   */
+  static String physicalName(String logicalName) {
+    StringBuilder builder = new StringBuilder(logicalName.replace('.', '_'));
+    for (int i = 1; i < builder.length() - 1; i++) {
+      if (isUnderscoreRequired(builder.charAt(i - 1), builder.charAt(i), builder.charAt(i + 1))) {
+        builder.insert(i++, '_');
+      }
+    }
+    return builder.toString().toLowerCase(Locale.ROOT);
+  }
+
+  private static boolean isUnderscoreRequired(char before, char current, char after) {
+    return (Character.isLowerCase(before) || Character.isDigit(before))
+        && Character.isUpperCase(current)
+        && (Character.isLowerCase(after) || Character.isDigit(after));
+  }
+}
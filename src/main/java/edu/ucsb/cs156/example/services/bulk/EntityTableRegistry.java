@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReviews;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Service;
+
+/**
+ * The entity tables that bulk import and export jobs may read and write, by entity name (the
+ * name in {@code @Entity(name = ...)}, which is also the path of the entity's API, e.g.
+ * ucsbdiningcommonsmenuitems). Users and jobs are deliberately not registered.
+ */
+@Service
+public class EntityTableRegistry {
+  private final Map<String, EntityTable> tables = new ConcurrentHashMap<>();
+
+  public EntityTableRegistry() {
+    register(Articles.class);
+    register(HelpRequest.class);
+    register(MenuItemReviews.class);
+    register(RecommendationRequest.class);
+    register(Restaurant.class);
+    register(UCSBDate.class);
+    register(UCSBDiningCommons.class);
+    register(UCSBDiningCommonsMenuItem.class);
+    register(UCSBOrganization.class);
+  }
+
+  /**
+   * Registers an entity class under its entity name.
+   *
+   * @param entityClass the entity class
+   */
+  public void register(Class<?> entityClass) {
+    EntityTable table = EntityTable.of(entityClass);
+    tables.put(table.getName(), table);
+  }
+
+  /**
+   * Looks up a registered entity table.
+   *
+   * @param name the entity name, e.g. articles
+   * @return the table, or empty if no entity of that name is registered
+   */
+  public Optional<EntityTable> find(String name) {
+    return Optional.ofNullable(tables.get(name));
+  }
+
+  /**
+   * Returns the names of the registered entities.
+   *
+   * @return the names, sorted
+   */
+  public Set<String> getNames() {
+    return new TreeSet<>(tables.keySet());
+  }
+}
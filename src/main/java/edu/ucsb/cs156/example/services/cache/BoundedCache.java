@@ -0,0 +1,140 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import edu.ucsb.cs156.example.models.CacheStats;
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory cache of at most maxSize values, each of which expires ttlMs after it was loaded,
+ * or sooner if the caller finds it stale. When it is full, loading another value evicts the least
+ * recently used one. It counts its hits, misses and evictions for {@link CacheStats}.
+ *
+ * Values are loaded outside the lock, so a slow load does not hold up the other keys; a value
+ * whose load overlapped an invalidation is returned but not kept, since it may be the one that
+ * was invalidated. Null values are not cached.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedCache<K, V> {
+  private record Cached<V>(V value, long expiresAt) {}
+
+  private final String name;
+  private final int maxSize;
+  private final long ttlMs;
+  private final Clock clock;
+
+  // in access order, so the eldest entry is the least recently used one
+  private final LinkedHashMap<K, Cached<V>> entries;
+
+  // incremented by every invalidation, so a load can tell whether one overlapped it
+  private long generation;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param name the name of the cache in its stats
+   * @param maxSize the most values to keep
+   * @param ttlMs how long to keep each value, in milliseconds
+   * @param clock the clock that times the values out
+   */
+  public BoundedCache(String name, int maxSize, long ttlMs, Clock clock) {
+    this.name = name;
+    this.maxSize = maxSize;
+    this.ttlMs = ttlMs;
+    this.clock = clock;
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, Cached<V>> eldest) {
+            boolean full = size() > BoundedCache.this.maxSize;
+            if (full) {
+              evictions++;
+            }
+            return full;
+          }
+        };
+  }
+
+  /**
+   * Returns the value for a key, loading it if it is not cached or has expired.
+   *
+   * @param key the key
+   * @param loader loads the value for the key, or returns null if there is none
+   * @return the value, or null if there is none
+   */
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    return get(key, value -> false, loader);
+  }
+
+  /**
+   * Returns the value for a key, loading it if it is not cached, has expired or is stale.
+   *
+   * @param key the key
+   * @param stale tells whether a cached value is out of date and must be loaded again
+   * @param loader loads the value for the key, or returns null if there is none
+   * @return the value, or null if there is none
+   */
+  public V get(K key, Predicate<? super V> stale, Function<? super K, ? extends V> loader) {
+    long loadGeneration;
+    synchronized (this) {
+      Cached<V> cached = entries.get(key);
+      if (cached != null && cached.expiresAt() > clock.millis() && !stale.test(cached.value())) {
+        hits++;
+        return cached.value();
+      }
+      if (cached != null) {
+        entries.remove(key);
+      }
+      misses++;
+      loadGeneration = generation;
+    }
+    V value = loader.apply(key);
+    synchronized (this) {
+      if (value != null && generation == loadGeneration) {
+        entries.put(key, new Cached<>(value, clock.millis() + ttlMs));
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Removes the value for a key, if it is cached.
+   *
+   * @param key the key
+   */
+  public synchronized void invalidate(K key) {
+    entries.remove(key);
+    generation++;
+  }
+
+  /** Removes all of the values. */
+  public synchronized void invalidateAll() {
+    entries.clear();
+    generation++;
+  }
+
+  /**
+   * Returns the size and counters of the cache.
+   *
+   * @return the stats, as of now
+   */
+  public synchronized CacheStats stats() {
+    return CacheStats.builder()
+        .name(name)
+        .size(entries.size())
+        .maxSize(maxSize)
+        .ttlMs(ttlMs)
+        .hits(hits)
+        .misses(misses)
+        .evictions(evictions)
+        .build();
+  }
+}
@@ -0,0 +1,122 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import edu.ucsb.cs156.example.models.CacheStats;
+import edu.ucsb.cs156.example.services.bulk.EntityTable;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+
+/**
+ * Caches reference data, the entities that are read on nearly every request and rarely written
+ * (dining commons, organizations and dates), in front of their repositories.
+ *
+ * Each entity class has its own {@link BoundedCache}, holding the entities by id and the list of
+ * all of them. The controllers that write them call {@link #evict} after each change, which drops
+ * that entity and the list. The list is also kept with the table version it was read at (see
+ * {@link edu.ucsb.cs156.example.services.TableVersionService}) and read again once the table has
+ * a newer one, so that changes made elsewhere (bulk imports, other instances of the application)
+ * never leave an /all response older than its ETag. An entity by id may be up to ttlMs old; its
+ * ETag is its own version, and updates check that against the database.
+ */
+@Service
+public class ReferenceDataCache {
+  // the key of the list of all the entities, which cannot be the id of one
+  private static final Object ALL = new Object();
+
+  // the list of all the entities, as of a version of their table
+  private record TableSnapshot(long version, List<?> entities) {}
+
+  @Value("${app.cache.reference.maxSize:1000}")
+  private int maxSize;
+
+  @Value("${app.cache.reference.ttlMs:600000}")
+  private long ttlMs;
+
+  private Clock clock = Clock.systemUTC();
+
+  private final Map<Class<?>, BoundedCache<Object, Object>> caches = new ConcurrentHashMap<>();
+
+  /**
+   * Returns an entity by id, from the cache or else from its repository.
+   *
+   * @param <T> the entity type
+   * @param <ID> the id type
+   * @param repository the repository of the entities
+   * @param entityClass the entity class
+   * @param id the id of the entity
+   * @return the entity, or empty if there is none with that id
+   */
+  public <T, ID> Optional<T> findById(CrudRepository<T, ID> repository, Class<T> entityClass, ID id) {
+    Object entity = cacheOf(entityClass).get(id, key -> repository.findById(id).orElse(null));
+    return Optional.ofNullable(entityClass.cast(entity));
+  }
+
+  /**
+   * Returns all of the entities, from the cache or else from their repository. The cached list is
+   * only used if it was read at the given version of the table or a later one.
+   *
+   * @param <T> the entity type
+   * @param repository the repository of the entities
+   * @param entityClass the entity class
+   * @param version the version of the table, read before calling this
+   * @return all of the entities, as an unmodifiable list
+   */
+  @SuppressWarnings("unchecked")
+  public <T> List<T> findAll(CrudRepository<T, ?> repository, Class<T> entityClass, long version) {
+    TableSnapshot snapshot =
+        (TableSnapshot)
+            cacheOf(entityClass)
+                .get(
+                    ALL,
+                    cached -> ((TableSnapshot) cached).version() < version,
+                    key -> {
+                      List<T> all = new ArrayList<>();
+                      repository.findAll().forEach(all::add);
+                      return new TableSnapshot(version, Collections.unmodifiableList(all));
+                    });
+    return (List<T>) snapshot.entities();
+  }
+
+  /**
+   * Drops an entity, and the list of all of them, after it has been created, updated or deleted.
+   *
+   * @param entityClass the entity class
+   * @param id the id of the entity
+   */
+  public void evict(Class<?> entityClass, Object id) {
+    BoundedCache<Object, Object> cache = cacheOf(entityClass);
+    cache.invalidate(id);
+    cache.invalidate(ALL);
+  }
+
+  /** Drops everything that is cached. */
+  public void clear() {
+    caches.values().forEach(BoundedCache::invalidateAll);
+  }
+
+  /**
+   * Returns the stats of the cache of each entity class that has been used, by name.
+   *
+   * @return the stats
+   */
+  public List<CacheStats> getStats() {
+    return caches.values().stream()
+        .map(BoundedCache::stats)
+        .sorted(Comparator.comparing(CacheStats::getName))
+        .toList();
+  }
+
+  private BoundedCache<Object, Object> cacheOf(Class<?> entityClass) {
+    return caches.computeIfAbsent(
+        entityClass,
+        c -> new BoundedCache<>(EntityTable.of(c).getName(), maxSize, ttlMs, clock));
+  }
+}
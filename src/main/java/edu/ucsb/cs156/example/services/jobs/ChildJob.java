@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+/**
+ * A unit of work that a job hands to {@link JobContext#runChildren(java.util.List)} to run as a
+ * child job, in parallel with its siblings.
+ *
+ * @param <T> type of the result passed back to the parent job
+ */
+@FunctionalInterface
+public interface ChildJob<T> {
+  T run(JobContext ctx) throws Exception;
+}
@@ -1,20 +1,278 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
-import lombok.AllArgsConstructor;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-@AllArgsConstructor
 @Slf4j
 public class JobContext {
-  private JobsRepository jobsRepository;
-  private Job job;
+  private final JobsRepository jobsRepository;
+  private final JobLogWriter jobLogWriter;
+  @Getter private final Job job;
 
+  private long nextSeq;
+
+  // why the job was asked to stop (cancelled or timed_out), or null while it may keep running
+  private volatile String stopReason;
+
+  // the thread running the job, interrupted by stop(); cleared once the job has returned so that
+  // a late stop() cannot interrupt whatever that thread runs next
+  private Thread worker;
+  private boolean finished;
+
+  // set by JobService when it runs the job; parent is the context of the job that started this
+  // one through runChildren, if any, and a stopped parent stops its children too
+  private JobService jobService;
+  private JobContext parent;
+
+  // progress is only kept here; JobProgressWriter copies it to the jobs table periodically
+  private volatile long progressDone = -1;
+  private volatile long progressTotal = -1;
+  private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+  private final AtomicBoolean progressChanged = new AtomicBoolean();
+
+  public JobContext(JobsRepository jobsRepository, JobLogWriter jobLogWriter, Job job) {
+    this(jobsRepository, jobLogWriter, job, 0);
+  }
+
+  /**
+   * @param jobsRepository the jobs repository
+   * @param jobLogWriter where log lines are sent, or null to discard them
+   * @param job the job being run
+   * @param firstSeq seq of the first line this context logs; non-zero when a job is restarted
+   *     and already has log lines
+   */
+  public JobContext(
+      JobsRepository jobsRepository, JobLogWriter jobLogWriter, Job job, long firstSeq) {
+    this.jobsRepository = jobsRepository;
+    this.jobLogWriter = jobLogWriter;
+    this.job = job;
+    this.nextSeq = firstSeq;
+  }
+
+  /**
+   * Appends a line to the job log. The line is handed to the write-behind JobLogWriter, so the
+   * cost of logging does not depend on how long the log already is and does not wait on the
+   * database.
+   *
+   * @param message the line to append
+   */
   public void log(String message) {
     log.info("Job %s: %s".formatted(job.getId(), message));
-    String previousLog = job.getLog() == null ? "" : (job.getLog() + "\n");
-    job.setLog(previousLog + message);
-    if (jobsRepository != null) jobsRepository.save(job);
+    JobLogLine line =
+        JobLogLine.builder()
+            .jobId(job.getId())
+            .seq(nextSeq++)
+            .loggedAt(ZonedDateTime.now())
+            .message(message)
+            .build();
+    if (jobLogWriter != null) jobLogWriter.append(line);
+  }
+
+  /**
+   * Reports how far the job has got. This only updates memory, so it is cheap enough to call for
+   * every unit of work; the latest value is written to the job record every
+   * app.jobs.progress.flushIntervalMs and when the job finishes.
+   *
+   * @param done units of work done so far
+   * @param total units of work in the whole job
+   */
+  public void progress(long done, long total) {
+    progressDone = done;
+    progressTotal = total;
+    progressChanged.set(true);
+  }
+
+  /**
+   * Adds one to a named counter, e.g. rows imported or rows skipped.
+   *
+   * @param counter name of the counter
+   * @return the new value of the counter
+   */
+  public long increment(String counter) {
+    return increment(counter, 1);
+  }
+
+  /**
+   * Adds to a named counter. Like {@link #progress(long, long)}, this only updates memory.
+   *
+   * @param counter name of the counter
+   * @param delta amount to add
+   * @return the new value of the counter
+   */
+  public long increment(String counter, long delta) {
+    long value = counters.computeIfAbsent(counter, name -> new AtomicLong()).addAndGet(delta);
+    progressChanged.set(true);
+    return value;
+  }
+
+  /**
+   * @return units of work done, or null if the job has not reported progress
+   */
+  public Long getProgressDone() {
+    return progressDone < 0 ? null : progressDone;
+  }
+
+  /**
+   * @return units of work in the whole job, or null if the job has not reported progress
+   */
+  public Long getProgressTotal() {
+    return progressTotal < 0 ? null : progressTotal;
+  }
+
+  /**
+   * @return a snapshot of the counters, sorted by name
+   */
+  public Map<String, Long> getCounters() {
+    Map<String, Long> snapshot = new TreeMap<>();
+    counters.forEach((name, value) -> snapshot.put(name, value.get()));
+    return snapshot;
+  }
+
+  /**
+   * Returns whether progress or counters changed since the last call, and resets the flag.
+   *
+   * @return true if there is progress that has not been written yet
+   */
+  boolean takeProgressChange() {
+    return progressChanged.getAndSet(false);
+  }
+
+  /**
+   * Runs work as child jobs of this job and waits for all of them. Each child gets its own row in
+   * the jobs table, linked to this job, with its own status and log. Children run in parallel on
+   * the job executor; this job's thread runs children too while it waits, so fanning out never
+   * ties up executor threads that children need. This job's progress counts finished children.
+   *
+   * @param <T> type of the results
+   * @param children the work to do, one child job per element
+   * @return the result of each child, in the order the children were given
+   * @throws edu.ucsb.cs156.example.errors.ChildJobsFailedException if any child failed
+   * @throws JobCancelledException if this job was cancelled or timed out meanwhile
+   * @throws IllegalStateException if this job was not started by JobService
+   */
+  public <T> List<T> runChildren(List<? extends ChildJob<T>> children) {
+    if (jobService == null) {
+      throw new IllegalStateException("Child jobs can only be started by a job run by JobService");
+    }
+    return jobService.runChildren(this, children);
+  }
+
+  /**
+   * Stores the result of the job, replacing any result saved earlier. The result is kept apart
+   * from the job record and is downloaded from GET /api/jobs/result, so it may be large.
+   *
+   * @param contentType media type of the result, e.g. application/json
+   * @param data the result
+   * @throws IllegalStateException if this job was not started by JobService
+   */
+  public void saveResult(String contentType, byte[] data) {
+    saveResult(contentType, new ByteArrayInputStream(data), data.length);
+  }
+
+  /**
+   * Stores the result of the job from a stream, as {@link #saveResult(String, byte[])} does,
+   * without holding it in memory.
+   *
+   * @param contentType media type of the result, e.g. text/csv
+   * @param data the result; read to the end but not closed
+   * @param sizeBytes number of bytes in data
+   * @throws IllegalStateException if this job was not started by JobService
+   */
+  public void saveResult(String contentType, InputStream data, long sizeBytes) {
+    if (jobService == null) {
+      throw new IllegalStateException("Results can only be saved by a job run by JobService");
+    }
+    jobService.saveResult(this, contentType, data, sizeBytes);
+    log("Saved result: %d bytes of %s".formatted(sizeBytes, contentType));
+  }
+
+  /**
+   * Whether the job has been cancelled or has timed out. Long-running jobs should check this (or
+   * call {@link #checkpoint()}) between units of work and stop as soon as it is true.
+   *
+   * @return true if the job should stop
+   */
+  public boolean isCancelled() {
+    return getStopReason() != null;
+  }
+
+  /**
+   * Throws if the job has been cancelled or has timed out, so that job code can give up at a safe
+   * point with a single call.
+   *
+   * @throws JobCancelledException if the job should stop
+   */
+  public void checkpoint() {
+    String reason = getStopReason();
+    if (reason != null) {
+      throw new JobCancelledException(job.getId(), reason);
+    }
+  }
+
+  /**
+   * @return the status the job is being stopped with, or null if it has not been asked to stop
+   */
+  public String getStopReason() {
+    String reason = stopReason;
+    return reason != null || parent == null ? reason : parent.getStopReason();
+  }
+
+  /**
+   * Connects the context to the service running the job.
+   *
+   * @param jobService the service running the job
+   * @param parent context of the parent job, or null for a top-level job
+   */
+  void attach(JobService jobService, JobContext parent) {
+    this.jobService = jobService;
+    this.parent = parent;
+  }
+
+  /** Records the calling thread as the one running the job. */
+  synchronized void start() {
+    worker = Thread.currentThread();
+  }
+
+  /**
+   * Asks the job to stop and interrupts its thread, so that blocking calls such as sleeps and I/O
+   * give up too. Only the first reason is kept.
+   *
+   * @param reason the status to give the job, cancelled or timed_out
+   * @return false if the job had already returned
+   */
+  synchronized boolean stop(String reason) {
+    if (finished) {
+      return false;
+    }
+    if (stopReason == null) {
+      stopReason = reason;
+    }
+    if (worker != null) {
+      worker.interrupt();
+    }
+    return true;
+  }
+
+  /** Marks the job as returned; must be called on the thread that ran it. */
+  void finish() {
+    synchronized (this) {
+      finished = true;
+      worker = null;
+    }
+    // the pool thread goes on to run other jobs, so drop any interrupt meant for this one
+    Thread.interrupted();
   }
 }
@@ -0,0 +1,148 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Heartbeat leases for jobs.
+ *
+ * Every node refreshes heartbeat_at on the jobs it is responsible for. A queued or running job
+ * whose heartbeat is older than app.jobs.lease.timeoutMs has lost its worker, as has
+ * a running job with no heartbeat at all (written before leases existed). Jobs from the durable
+ * queue are put back in the queue so that another worker restarts them; jobs that cannot be
+ * rebuilt (e.g. lambdas) are marked as errors, and jobs that were being cancelled are marked as
+ * cancelled.
+ *
+ * The heartbeat also picks up cancellations requested on other nodes for jobs running here.
+ */
+@Service
+@Slf4j
+public class JobLeaseManager {
+  static final String HEARTBEAT_SQL =
+      "UPDATE jobs SET heartbeat_at = ? WHERE id = ? AND worker_id = ?";
+
+  static final String CANCEL_REQUESTED_SQL =
+      "SELECT id FROM jobs WHERE status = 'running' AND cancel_requested = TRUE AND worker_id = ?";
+
+  // running rows without a heartbeat predate leases and have no live worker either
+  static final String EXPIRED_CONDITION =
+      "status IN ('queued', 'running')"
+          + " AND (heartbeat_at < ? OR (status = 'running' AND heartbeat_at IS NULL))";
+
+  static final String EXPIRED_SQL =
+      "SELECT id, type, worker_id, cancel_requested FROM jobs WHERE " + EXPIRED_CONDITION;
+
+  static final String REQUEUE_EXPIRED_SQL =
+      "UPDATE jobs SET status = 'queued', worker_id = NULL, heartbeat_at = NULL, updated_at = ?"
+          + " WHERE id = ? AND "
+          + EXPIRED_CONDITION;
+
+  static final String FAIL_EXPIRED_SQL =
+      "UPDATE jobs SET status = 'error', dedupe_key = NULL, updated_at = ? WHERE id = ? AND "
+          + EXPIRED_CONDITION;
+
+  static final String CANCEL_EXPIRED_SQL =
+      "UPDATE jobs SET status = 'cancelled', dedupe_key = NULL, updated_at = ? WHERE id = ? AND "
+          + EXPIRED_CONDITION;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private JobService jobService;
+
+  @Autowired private JobLogWriter jobLogWriter;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Value("${app.jobs.lease.timeoutMs:60000}")
+  private long leaseTimeoutMs;
+
+  /**
+   * Refreshes the lease of every job this node is responsible for, and stops the ones that have
+   * been cancelled through another node.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.lease.heartbeatIntervalMs:10000}")
+  public void heartbeat() {
+    List<Long> jobIds = new ArrayList<>(jobService.getOwnedJobIds());
+    if (jobIds.isEmpty()) {
+      return;
+    }
+    Timestamp now = Timestamp.from(Instant.now());
+    jdbcTemplate.batchUpdate(
+        HEARTBEAT_SQL,
+        jobIds,
+        jobIds.size(),
+        (ps, jobId) -> {
+          ps.setTimestamp(1, now);
+          ps.setLong(2, jobId);
+          ps.setString(3, JobQueueWorker.WORKER_ID);
+        });
+
+    for (Long jobId :
+        jdbcTemplate.queryForList(CANCEL_REQUESTED_SQL, Long.class, JobQueueWorker.WORKER_ID)) {
+      jobService.stopRunningJob(jobId, "cancelled");
+    }
+  }
+
+  /** Requeues, fails or cancels jobs whose lease has expired. */
+  @Scheduled(fixedDelayString = "${app.jobs.lease.reapIntervalMs:30000}")
+  public void reap() {
+    Instant now = Instant.now();
+    Timestamp cutoff = Timestamp.from(now.minusMillis(leaseTimeoutMs));
+    List<ExpiredJob> expired =
+        jdbcTemplate.query(
+            EXPIRED_SQL,
+            (rs, rowNum) ->
+                new ExpiredJob(
+                    rs.getLong("id"),
+                    rs.getString("type"),
+                    rs.getString("worker_id"),
+                    rs.getBoolean("cancel_requested")),
+            cutoff);
+
+    for (ExpiredJob job : expired) {
+      String sql;
+      String outcome;
+      if (job.cancelRequested()) {
+        sql = CANCEL_EXPIRED_SQL;
+        outcome = "job cancelled";
+      } else if (job.type() != null) {
+        sql = REQUEUE_EXPIRED_SQL;
+        outcome = "job requeued";
+      } else {
+        sql = FAIL_EXPIRED_SQL;
+        outcome = "job abandoned";
+      }
+      int updated = jdbcTemplate.update(sql, Timestamp.from(now), job.id(), cutoff);
+      if (updated == 0) {
+        continue; // heartbeat arrived or another node reaped it first
+      }
+      log.warn("Job {} lost its worker {}; {}", job.id(), job.workerId(), outcome);
+      // lines still buffered here would otherwise share a seq with the notice
+      jobLogWriter.flush();
+      jobLogWriter.append(
+          JobLogLine.builder()
+              .jobId(job.id())
+              .seq(jobLogLinesRepository.countByJobId(job.id()))
+              .loggedAt(ZonedDateTime.now())
+              .message(
+                  "Worker %s stopped sending heartbeats; %s".formatted(job.workerId(), outcome))
+              .build());
+    }
+    if (!expired.isEmpty()) {
+      jobLogWriter.flush();
+    }
+  }
+
+  private record ExpiredJob(long id, String type, String workerId, boolean cancelRequested) {}
+}
@@ -0,0 +1,172 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.CompressedJobLog;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Compressed storage for the logs of finished jobs.
+ *
+ * When a job finishes with a log of at least app.jobs.log.compressThresholdBytes bytes, its
+ * job_log_lines rows are replaced by a single gzip-compressed copy of the log in
+ * job_log_archives. Readers only decompress when a job has no log lines, and the logs endpoint
+ * can send the stored bytes as they are to clients that accept gzip. The archive records its line
+ * count, so a range or tail of it is read by decompressing up to its last line, keeping only the
+ * lines in the range.
+ */
+@Service
+public class JobLogArchiver {
+  static final String INSERT_SQL =
+      "INSERT INTO job_log_archives (job_id, line_count, log_gzip) VALUES (?, ?, ?)";
+
+  static final String DELETE_LINES_SQL = "DELETE FROM job_log_lines WHERE job_id = ?";
+
+  static final String SELECT_SQL =
+      "SELECT line_count, log_gzip FROM job_log_archives WHERE job_id = ?";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Value("${app.jobs.log.compressThresholdBytes:65536}")
+  private long compressThresholdBytes;
+
+  /**
+   * Replaces the log lines of a finished job with a compressed copy, if the log is big enough to
+   * be worth it. Both happen in one transaction, so a reader sees either the lines or the copy.
+   *
+   * @param jobId id of the job
+   * @return true if the log was compressed
+   * @throws IOException if the log cannot be compressed
+   */
+  @Transactional
+  public boolean archive(long jobId) throws IOException {
+    List<JobLogLine> lines = jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId);
+    StringJoiner joiner = new StringJoiner("\n");
+    lines.forEach(line -> joiner.add(line.getMessage()));
+    byte[] log = joiner.toString().getBytes(StandardCharsets.UTF_8);
+    if (lines.isEmpty() || log.length < compressThresholdBytes) {
+      return false;
+    }
+
+    // count lines the way readers will split them, in case a message contains a newline
+    long lineCount = splitLines(joiner.toString()).size();
+    jdbcTemplate.update(INSERT_SQL, jobId, lineCount, gzip(log));
+    jdbcTemplate.update(DELETE_LINES_SQL, jobId);
+    return true;
+  }
+
+  /**
+   * Returns the compressed log of a job without decompressing it.
+   *
+   * @param jobId id of the job
+   * @return the compressed log, or empty if the log of the job is not compressed
+   */
+  public Optional<CompressedJobLog> findCompressed(long jobId) {
+    return jdbcTemplate
+        .query(
+            SELECT_SQL,
+            (rs, rowNum) ->
+                CompressedJobLog.builder()
+                    .lineCount(rs.getLong("line_count"))
+                    .gzip(rs.getBytes("log_gzip"))
+                    .build(),
+            jobId)
+        .stream()
+        .findFirst();
+  }
+
+  /**
+   * Returns the lines of a compressed log.
+   *
+   * @param jobId id of the job
+   * @return the lines, or empty if the log of the job is not compressed
+   */
+  public Optional<List<String>> readLines(long jobId) {
+    return findCompressed(jobId)
+        .map(
+            compressed ->
+                splitLines(new String(gunzip(compressed.getGzip()), StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Passes on a range of lines of a compressed log as it decompresses it, so that only those
+   * lines are held in memory, and stops decompressing after the last of them. Lines are split the
+   * way {@link #readLines} splits them.
+   *
+   * @param compressed the compressed log
+   * @param from number of the first line to pass on, from 0
+   * @param to number of the line after the last one to pass on
+   * @param action called with each line and its number, in order
+   */
+  public static void forEachLine(
+      CompressedJobLog compressed, long from, long to, ObjLongConsumer<String> action) {
+    try (Reader reader =
+        new InputStreamReader(
+            new GZIPInputStream(new ByteArrayInputStream(compressed.getGzip())),
+            StandardCharsets.UTF_8)) {
+      StringBuilder line = new StringBuilder();
+      long number = 0;
+      char[] buffer = new char[8192];
+      int read;
+      while (number < to && (read = reader.read(buffer)) != -1) {
+        for (int i = 0; i < read && number < to; i++) {
+          if (buffer[i] == '\n') {
+            if (number >= from) {
+              action.accept(line.toString(), number);
+            }
+            line.setLength(0);
+            number++;
+          } else if (number >= from) {
+            line.append(buffer[i]);
+          }
+        }
+      }
+      // the text after the last newline is a line too, even if it is empty
+      if (number >= from && number < to) {
+        action.accept(line.toString(), number);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static List<String> splitLines(String log) {
+    return Arrays.asList(log.split("\n", -1));
+  }
+
+  static byte[] gzip(byte[] data) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(data);
+    }
+    return bytes.toByteArray();
+  }
+
+  static byte[] gunzip(byte[] data) {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
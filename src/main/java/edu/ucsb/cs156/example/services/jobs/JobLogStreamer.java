@@ -0,0 +1,215 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Live tail of job logs over server-sent events.
+ *
+ * Each event carries one log line; the event id is the line's seq, so a client that reconnects
+ * with Last-Event-ID only receives the lines it missed. The stream is closed once the job
+ * reaches a finished status.
+ *
+ * Lines of a job running on this node are sent as they are logged. A job from the durable queue
+ * may run on another node, though; the streams of such jobs are fed from job_log_lines every
+ * streamPollIntervalMs, and closed once the jobs table says the job has finished.
+ */
+@Service
+@Slf4j
+public class JobLogStreamer {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Lazy @Autowired private JobLogWriter jobLogWriter;
+
+  @Autowired private JobLogArchiver jobLogArchiver;
+
+  @Lazy @Autowired private JobService jobService;
+
+  @Value("${app.jobs.log.streamTimeoutMs:1800000}")
+  private long streamTimeoutMs;
+
+  private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+  /**
+   * Opens a stream of the log lines of a job written after a given seq.
+   *
+   * @param jobId id of the job
+   * @param afterSeq only lines with a larger seq are sent; -1 sends the whole log
+   * @return the emitter for the response
+   */
+  public SseEmitter subscribe(long jobId, long afterSeq) {
+    jobsRepository.findById(jobId).orElseThrow(() -> new EntityNotFoundException(Job.class, jobId));
+
+    SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+    Subscriber subscriber = new Subscriber(emitter, afterSeq);
+
+    // register before replaying so that no line logged in between is missed;
+    // lines seen twice are filtered out by seq
+    subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>()).add(subscriber);
+    emitter.onCompletion(() -> unsubscribe(jobId, subscriber));
+    emitter.onTimeout(() -> unsubscribe(jobId, subscriber));
+    emitter.onError(e -> unsubscribe(jobId, subscriber));
+
+    jobLogWriter.flush();
+    List<JobLogLine> lines =
+        jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(jobId, afterSeq);
+    for (JobLogLine line : lines) {
+      subscriber.send(line);
+    }
+    if (lines.isEmpty()) {
+      // the job may have finished and had its log compressed
+      sendArchivedLinesAfter(jobId, afterSeq, subscriber::send);
+    }
+
+    // re-read the status: the job may have finished before we registered
+    String status = jobsRepository.findById(jobId).map(Job::getStatus).orElse(null);
+    if (status == null || JobService.FINISHED_STATUSES.contains(status)) {
+      unsubscribe(jobId, subscriber);
+      subscriber.complete();
+    }
+    return emitter;
+  }
+
+  /**
+   * Sends the lines of jobs that are not running on this node to their streams, and closes the
+   * streams of those that have finished.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.streamPollIntervalMs:1000}")
+  public void pollOtherNodes() {
+    for (Map.Entry<Long, List<Subscriber>> entry : subscribers.entrySet()) {
+      long jobId = entry.getKey();
+      List<Subscriber> jobSubscribers = List.copyOf(entry.getValue());
+      if (jobService.isRunningHere(jobId) || jobSubscribers.isEmpty()) {
+        continue;
+      }
+      // the status first: a job's lines are all written before it is saved as finished
+      String status = jobsRepository.findStatusById(jobId);
+      long afterSeq = jobSubscribers.stream().mapToLong(Subscriber::lastSeq).min().getAsLong();
+      List<JobLogLine> lines =
+          jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(jobId, afterSeq);
+      for (JobLogLine line : lines) {
+        jobSubscribers.forEach(subscriber -> subscriber.send(line));
+      }
+      if (status == null || JobService.FINISHED_STATUSES.contains(status)) {
+        if (lines.isEmpty()) {
+          // the job may have had its log compressed as it finished
+          sendArchivedLinesAfter(
+              jobId, afterSeq, line -> jobSubscribers.forEach(subscriber -> subscriber.send(line)));
+        }
+        complete(jobId);
+      }
+    }
+  }
+
+  /**
+   * Sends a freshly logged line to every open stream of its job.
+   *
+   * @param line the line that was logged
+   */
+  public void publish(JobLogLine line) {
+    List<Subscriber> jobSubscribers = subscribers.get(line.getJobId());
+    if (jobSubscribers == null) {
+      return;
+    }
+    for (Subscriber subscriber : jobSubscribers) {
+      subscriber.send(line);
+    }
+  }
+
+  /**
+   * Closes every open stream of a job; called once the job has finished and its log is flushed.
+   *
+   * @param jobId id of the job
+   */
+  public void complete(long jobId) {
+    List<Subscriber> jobSubscribers = subscribers.remove(jobId);
+    if (jobSubscribers == null) {
+      return;
+    }
+    for (Subscriber subscriber : jobSubscribers) {
+      subscriber.complete();
+    }
+  }
+
+  // sends the lines of a compressed log as they are decompressed, numbered from 0
+  void sendArchivedLinesAfter(long jobId, long afterSeq, Consumer<JobLogLine> send) {
+    jobLogArchiver
+        .findCompressed(jobId)
+        .ifPresent(
+            compressed ->
+                JobLogArchiver.forEachLine(
+                    compressed,
+                    Math.max(0, afterSeq + 1),
+                    compressed.getLineCount(),
+                    (message, seq) ->
+                        send.accept(
+                            JobLogLine.builder().jobId(jobId).seq(seq).message(message).build())));
+  }
+
+  int subscriberCount(long jobId) {
+    List<Subscriber> jobSubscribers = subscribers.get(jobId);
+    return jobSubscribers == null ? 0 : jobSubscribers.size();
+  }
+
+  private void unsubscribe(long jobId, Subscriber subscriber) {
+    subscribers.computeIfPresent(
+        jobId,
+        (id, list) -> {
+          list.remove(subscriber);
+          return list.isEmpty() ? null : list;
+        });
+  }
+
+  private static class Subscriber {
+    private final SseEmitter emitter;
+    private long lastSeq;
+
+    Subscriber(SseEmitter emitter, long lastSeq) {
+      this.emitter = emitter;
+      this.lastSeq = lastSeq;
+    }
+
+    synchronized long lastSeq() {
+      return lastSeq;
+    }
+
+    synchronized void send(JobLogLine line) {
+      if (line.getSeq() <= lastSeq) {
+        return;
+      }
+      try {
+        emitter.send(
+            SseEmitter.event()
+                .id(Long.toString(line.getSeq()))
+                .name("log")
+                .data(line.getMessage()));
+        lastSeq = line.getSeq();
+      } catch (IOException | IllegalStateException e) {
+        log.debug("Dropping job log subscriber: {}", e.getMessage());
+        emitter.completeWithError(e);
+      }
+    }
+
+    synchronized void complete() {
+      emitter.complete();
+    }
+  }
+}
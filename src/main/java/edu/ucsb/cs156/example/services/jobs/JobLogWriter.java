@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Write-behind buffer for job log lines.
+ *
+ * Log calls only enqueue a line; lines are written to job_log_lines as JDBC batches when
+ * batchSize lines are pending, every flushIntervalMs, and whenever a job finishes.
+ *
+ * A batch holds the lines of every job, so when one fails its lines are written again one at a
+ * time: a line that the database rejects (e.g. its job has been deleted) is dropped on its own,
+ * and if the database cannot be reached the lines go back on the queue for the next flush.
+ */
+@Service
+@Slf4j
+public class JobLogWriter {
+  static final String INSERT_SQL =
+      "INSERT INTO job_log_lines (job_id, seq, logged_at, message) VALUES (?, ?, ?, ?)";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private JobLogStreamer jobLogStreamer;
+
+  @Lazy @Autowired private JobLogWriter self;
+
+  @Value("${app.jobs.log.batchSize:100}")
+  private int batchSize;
+
+  private final ConcurrentLinkedQueue<JobLogLine> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+
+  /**
+   * Queues a line for writing and passes it on to live log streams; never blocks on the
+   * database.
+   *
+   * @param line the line to write
+   */
+  public void append(JobLogLine line) {
+    pending.add(line);
+    jobLogStreamer.publish(line);
+    if (pendingCount.incrementAndGet() % batchSize == 0) {
+      self.flushAsync();
+    }
+  }
+
+  /** Flushes pending lines on the async executor once a full batch is waiting. */
+  @Async
+  public void flushAsync() {
+    flush();
+  }
+
+  /** Writes every pending line to the database in batches of at most batchSize rows. */
+  @Scheduled(fixedDelayString = "${app.jobs.log.flushIntervalMs:500}")
+  public synchronized void flush() {
+    List<JobLogLine> batch = new ArrayList<>();
+    JobLogLine line;
+    while ((line = pending.poll()) != null) {
+      pendingCount.decrementAndGet();
+      batch.add(line);
+      if (batch.size() == batchSize) {
+        write(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      write(batch);
+    }
+  }
+
+  private void write(List<JobLogLine> batch) {
+    log.debug("Writing {} job log lines", batch.size());
+    try {
+      jdbcTemplate.batchUpdate(
+          INSERT_SQL,
+          batch,
+          batch.size(),
+          (ps, line) -> {
+            ps.setLong(1, line.getJobId());
+            ps.setLong(2, line.getSeq());
+            ps.setObject(3, line.getLoggedAt().toOffsetDateTime());
+            ps.setString(4, line.getMessage());
+          });
+    } catch (DataAccessException e) {
+      log.warn("Writing {} job log lines failed, writing them one at a time", batch.size(), e);
+      for (int i = 0; i < batch.size(); i++) {
+        try {
+          writeOne(batch.get(i));
+        } catch (DataAccessException notWritten) {
+          requeue(batch.subList(i, batch.size()));
+          throw notWritten;
+        }
+      }
+    }
+  }
+
+  private void writeOne(JobLogLine line) {
+    try {
+      jdbcTemplate.update(
+          INSERT_SQL,
+          line.getJobId(),
+          line.getSeq(),
+          line.getLoggedAt().toOffsetDateTime(),
+          line.getMessage());
+    } catch (DuplicateKeyException e) {
+      // some databases keep the rows of a failed batch that came before the bad one
+      log.debug("Job log line {} of job {} is already written", line.getSeq(), line.getJobId());
+    } catch (DataIntegrityViolationException e) {
+      log.warn(
+          "Dropping job log line {} of job {}: {}",
+          line.getSeq(),
+          line.getJobId(),
+          e.getMessage());
+    }
+  }
+
+  private void requeue(List<JobLogLine> lines) {
+    pending.addAll(lines);
+    pendingCount.addAndGet(lines.size());
+  }
+}
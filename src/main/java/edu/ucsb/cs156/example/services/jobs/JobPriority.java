@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets how soon queued jobs of a type start compared with other queued jobs. JobQueueWorker
+ * starts jobs of a higher priority first; among jobs of the same priority, it starts those of the
+ * users with the fewest running jobs first, then the oldest. A job moves up one priority for
+ * every app.jobs.queue.agingMs it waits, so batch jobs are held back but never starved. Jobs
+ * without this annotation have priority NORMAL.
+ *
+ * <pre>
+ * &#64;JobPriority(JobPriority.BATCH)
+ * public class ImportJob implements JobContextConsumer { ... }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface JobPriority {
+  /** Long-running bulk work that can wait. */
+  int BATCH = -1;
+
+  /** The default. */
+  int NORMAL = 0;
+
+  /** Short jobs that someone is waiting for. */
+  int INTERACTIVE = 1;
+
+  /**
+   * @return BATCH, NORMAL or INTERACTIVE
+   */
+  int value() default NORMAL;
+}
@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Periodic writer for job progress.
+ *
+ * JobContext.progress and JobContext.increment only update memory. Every flushIntervalMs the
+ * jobs whose progress changed are written with a single JDBC batch that touches the progress
+ * columns and updated_at only, so reporting progress never rewrites the job row or its log.
+ */
+@Service
+public class JobProgressWriter {
+  static final String UPDATE_SQL =
+      "UPDATE jobs SET progress_done = ?, progress_total = ?, counters = ?, updated_at = ?"
+          + " WHERE id = ?";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private ObjectMapper mapper;
+
+  private final Set<JobContext> tracked = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Starts writing the progress of a running job.
+   *
+   * @param context the context of the job
+   */
+  public void track(JobContext context) {
+    tracked.add(context);
+  }
+
+  /**
+   * Stops writing the progress of a job and copies its final progress onto the job record, to be
+   * saved along with its final status.
+   *
+   * @param context the context of the job
+   */
+  public void release(JobContext context) {
+    tracked.remove(context);
+    Job job = context.getJob();
+    job.setProgressDone(context.getProgressDone());
+    job.setProgressTotal(context.getProgressTotal());
+    job.setCounters(countersJson(context));
+  }
+
+  /** Writes the progress of every tracked job that has changed since the last flush. */
+  @Scheduled(fixedDelayString = "${app.jobs.progress.flushIntervalMs:2000}")
+  public void flush() {
+    List<JobContext> changed = new ArrayList<>();
+    for (JobContext context : tracked) {
+      if (context.takeProgressChange()) {
+        changed.add(context);
+      }
+    }
+    if (changed.isEmpty()) {
+      return;
+    }
+    Timestamp now = Timestamp.from(Instant.now());
+    jdbcTemplate.batchUpdate(
+        UPDATE_SQL,
+        changed,
+        changed.size(),
+        (ps, context) -> {
+          ps.setObject(1, context.getProgressDone(), Types.BIGINT);
+          ps.setObject(2, context.getProgressTotal(), Types.BIGINT);
+          ps.setString(3, countersJson(context));
+          ps.setTimestamp(4, now);
+          ps.setLong(5, context.getJob().getId());
+        });
+  }
+
+  private String countersJson(JobContext context) {
+    Map<String, Long> counters = context.getCounters();
+    if (counters.isEmpty()) {
+      return null;
+    }
+    try {
+      return mapper.writeValueAsString(counters);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(
+          "Cannot write counters of job %d".formatted(context.getJob().getId()), e);
+    }
+  }
+}
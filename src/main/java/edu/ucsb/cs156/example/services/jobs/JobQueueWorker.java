@@ -0,0 +1,265 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Pulls queued jobs out of the jobs table and runs them on the job executor.
+ *
+ * Every node polls the table and claims as many jobs as it has free workers. The candidates are
+ * the durable jobs that any node may run plus the local jobs (e.g. lambdas) launched on this node,
+ * which only this node can run. They are started in this order:
+ *
+ * <ol>
+ *   <li>highest {@link JobPriority} first, where a job gains one priority level for every agingMs
+ *       it has waited, up to INTERACTIVE, so that batch jobs are never starved;
+ *   <li>then jobs of the users with the fewest running jobs, so that one user launching many
+ *       jobs does not hold up everyone else;
+ *   <li>then the oldest.
+ * </ol>
+ *
+ * On PostgreSQL a claim is a single UPDATE whose subquery uses SELECT ... FOR UPDATE SKIP LOCKED,
+ * so competing nodes never wait on each other; on other databases (e.g. H2) a job is claimed with
+ * a compare-and-set UPDATE that only succeeds while its status is still queued.
+ */
+@Service
+@Slf4j
+public class JobQueueWorker {
+  /** Identifies this node in the worker_id column. */
+  public static final String WORKER_ID = ManagementFactory.getRuntimeMXBean().getName();
+
+  // child jobs are queued too, but their parent runs them (see JobService.runChildren); a job
+  // queued again after a failed attempt waits for its back-off, and ages from then on
+  static final String CANDIDATES_SQL =
+      "SELECT id, created_by_id, priority, COALESCE(next_attempt_at, created_at) AS queued_at"
+          + " FROM jobs WHERE status = 'queued' AND parent_id IS NULL"
+          + " AND (next_attempt_at IS NULL OR next_attempt_at <= ?)"
+          + " AND (type IS NOT NULL OR worker_id = ?) ORDER BY id LIMIT ?";
+
+  // when the durable queue is disabled this node still runs its own local jobs
+  static final String LOCAL_CANDIDATES_SQL =
+      "SELECT id, created_by_id, priority, COALESCE(next_attempt_at, created_at) AS queued_at"
+          + " FROM jobs WHERE status = 'queued' AND parent_id IS NULL"
+          + " AND (next_attempt_at IS NULL OR next_attempt_at <= ?)"
+          + " AND type IS NULL AND worker_id = ? ORDER BY id LIMIT ?";
+
+  static final String RUNNING_BY_CREATOR_SQL =
+      "SELECT created_by_id, COUNT(*) FROM jobs WHERE status = 'running' GROUP BY created_by_id";
+
+  static final String CLAIM_SKIP_LOCKED_SQL =
+      "UPDATE jobs SET status = 'running', worker_id = ?, updated_at = ?, heartbeat_at = ?"
+          + " WHERE id = ("
+          + "SELECT id FROM jobs WHERE id = ? AND status = 'queued' FOR UPDATE SKIP LOCKED)"
+          + " RETURNING id";
+
+  static final String CLAIM_SQL =
+      "UPDATE jobs SET status = 'running', worker_id = ?, updated_at = ?, heartbeat_at = ?"
+          + " WHERE id = ? AND status = 'queued'";
+
+  static final String RELEASE_SQL =
+      "UPDATE jobs SET status = 'queued', worker_id = NULL, heartbeat_at = NULL"
+          + " WHERE id = ? AND worker_id = ?";
+
+  // a local job can only run on this node, so it stays assigned to it
+  static final String RELEASE_LOCAL_SQL =
+      "UPDATE jobs SET status = 'queued' WHERE id = ? AND worker_id = ?";
+
+  /**
+   * A job waiting in the queue.
+   *
+   * @param id id of the job
+   * @param createdById id of the user who launched it, or null
+   * @param priority priority it was launched with; see {@link JobPriority}
+   * @param queuedAt when it was launched
+   */
+  record QueuedJob(long id, Long createdById, int priority, Instant queuedAt) {}
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobTypeRegistry jobTypeRegistry;
+
+  @Autowired private JobService jobService;
+
+  @Autowired
+  @Qualifier(JobExecutorConfig.JOB_EXECUTOR)
+  private ThreadPoolTaskExecutor jobExecutor;
+
+  @Value("${app.jobs.queue.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.jobs.executor.maxConcurrency:4}")
+  private int maxConcurrency;
+
+  // at most this many jobs can be waiting, so every candidate is looked at
+  @Value("${app.jobs.executor.queueCapacity:100}")
+  private int queueCapacity;
+
+  @Value("${app.jobs.queue.agingMs:300000}")
+  private long agingMs;
+
+  private Boolean skipLocked;
+
+  /**
+   * Claims queued jobs while this node has free workers and starts them, in the order described
+   * above. JobService also calls this when a local job is launched, so that it starts at once if
+   * a worker is free.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.pollIntervalMs:1000}")
+  public void poll() {
+    if (freeWorkers() <= 0) {
+      return;
+    }
+    List<QueuedJob> candidates = new ArrayList<>(candidates());
+    if (candidates.isEmpty()) {
+      return;
+    }
+    Map<Long, Long> running = runningByCreator();
+    Comparator<QueuedJob> order = order(running, Instant.now(), agingMs);
+    while (freeWorkers() > 0 && !candidates.isEmpty()) {
+      QueuedJob next = Collections.min(candidates, order);
+      candidates.remove(next);
+      if (claim(next.id())) {
+        // the order sees the new running count, so a user's jobs take turns with others'
+        running.merge(next.createdById(), 1L, Long::sum);
+        start(next.id());
+      }
+    }
+  }
+
+  /**
+   * Returns the order in which queued jobs are started.
+   *
+   * @param running number of running jobs of each user, by user id (null for jobs without one)
+   * @param now the current time
+   * @param agingMs milliseconds of waiting that raise a job one priority level
+   * @return a comparator that sorts the job to start next first
+   */
+  static Comparator<QueuedJob> order(Map<Long, Long> running, Instant now, long agingMs) {
+    return Comparator.comparingLong((QueuedJob job) -> -effectivePriority(job, now, agingMs))
+        .thenComparingLong(job -> running.getOrDefault(job.createdById(), 0L))
+        .thenComparingLong(QueuedJob::id);
+  }
+
+  /**
+   * Returns the priority of a queued job, raised by the time it has waited.
+   *
+   * @param job the job
+   * @param now the current time
+   * @param agingMs milliseconds of waiting that raise a job one priority level
+   * @return the priority, at most INTERACTIVE
+   */
+  static long effectivePriority(QueuedJob job, Instant now, long agingMs) {
+    long waitedMs = Math.max(0, Duration.between(job.queuedAt(), now).toMillis());
+    return Math.min(JobPriority.INTERACTIVE, job.priority() + waitedMs / agingMs);
+  }
+
+  int freeWorkers() {
+    return maxConcurrency - jobExecutor.getActiveCount() - jobExecutor.getQueueSize();
+  }
+
+  List<QueuedJob> candidates() {
+    return jdbcTemplate.query(
+        enabled ? CANDIDATES_SQL : LOCAL_CANDIDATES_SQL,
+        (rs, rowNum) -> {
+          Timestamp queuedAt = rs.getTimestamp("queued_at");
+          return new QueuedJob(
+              rs.getLong("id"),
+              rs.getObject("created_by_id", Long.class),
+              rs.getInt("priority"),
+              queuedAt == null ? Instant.now() : queuedAt.toInstant());
+        },
+        Timestamp.from(Instant.now()),
+        WORKER_ID,
+        queueCapacity);
+  }
+
+  Map<Long, Long> runningByCreator() {
+    // jobs without a creator count as one more user
+    Map<Long, Long> running = new HashMap<>();
+    jdbcTemplate.query(
+        RUNNING_BY_CREATOR_SQL,
+        (RowCallbackHandler) rs -> running.put(rs.getObject(1, Long.class), rs.getLong(2)));
+    return running;
+  }
+
+  boolean claim(long jobId) {
+    Timestamp now = Timestamp.from(Instant.now());
+    if (supportsSkipLocked()) {
+      return !jdbcTemplate
+          .queryForList(CLAIM_SKIP_LOCKED_SQL, Long.class, WORKER_ID, now, now, jobId)
+          .isEmpty();
+    }
+    return jdbcTemplate.update(CLAIM_SQL, WORKER_ID, now, now, jobId) == 1;
+  }
+
+  void start(long jobId) {
+    Optional<Job> claimed = jobsRepository.findById(jobId);
+    if (claimed.isEmpty()) {
+      return;
+    }
+    Job job = claimed.get();
+
+    JobContextConsumer jobFunction;
+    try {
+      jobFunction =
+          job.getType() == null
+              ? jobService.takeLocalJob(jobId)
+              : jobTypeRegistry.deserialize(job.getType(), job.getParams());
+    } catch (IllegalArgumentException e) {
+      // report the problem through the job itself so it shows up in the job log
+      jobFunction =
+          ctx -> {
+            throw e;
+          };
+    }
+
+    JobContextConsumer toRun = jobFunction;
+    try {
+      jobExecutor.execute(() -> jobService.runJob(job, toRun));
+    } catch (TaskRejectedException e) {
+      log.info("Job executor is full; releasing job {}", jobId);
+      if (job.getType() == null) {
+        jdbcTemplate.update(RELEASE_LOCAL_SQL, jobId, WORKER_ID);
+        jobService.returnLocalJob(jobId, toRun);
+      } else {
+        jdbcTemplate.update(RELEASE_SQL, jobId, WORKER_ID);
+      }
+    }
+  }
+
+  private boolean supportsSkipLocked() {
+    if (skipLocked == null) {
+      String product =
+          jdbcTemplate.execute(
+              (ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+      skipLocked = "PostgreSQL".equalsIgnoreCase(product);
+      log.info("Job queue on {}: skip locked = {}", product, skipLocked);
+    }
+    return skipLocked;
+  }
+}
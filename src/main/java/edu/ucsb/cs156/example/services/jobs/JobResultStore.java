@@ -0,0 +1,123 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.models.JobResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Storage for the results of jobs, kept apart from the jobs table.
+ *
+ * A job stores at most one result, through {@link JobContext#saveResult}: a content type in
+ * job_results, and bytes in job_result_chunks, chunkSizeBytes per row. Results are written and
+ * read as streams, and are only read by the result download endpoint, so a large result is never
+ * loaded into a Job or sent by the job list endpoints. The chunks are there because pgjdbc reads
+ * a bytea value into memory whole, even through getBinaryStream; reading one chunk per query
+ * keeps a download to one chunk in memory, whatever the size of the result. A result is deleted
+ * with its job.
+ */
+@Service
+public class JobResultStore {
+  static final String DELETE_SQL = "DELETE FROM job_results WHERE job_id = ?";
+
+  static final String INSERT_SQL =
+      "INSERT INTO job_results (job_id, content_type, size_bytes, created_at) VALUES (?, ?, ?, ?)";
+
+  static final String INSERT_CHUNK_SQL =
+      "INSERT INTO job_result_chunks (job_id, seq, data) VALUES (?, ?, ?)";
+
+  static final String SELECT_SQL =
+      "SELECT job_id, content_type, size_bytes, created_at FROM job_results WHERE job_id = ?";
+
+  static final String SELECT_CHUNK_SQL =
+      "SELECT data FROM job_result_chunks WHERE job_id = ? AND seq = ?";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Value("${app.jobs.results.chunkSizeBytes:1048576}")
+  private int chunkSizeBytes;
+
+  /**
+   * Stores the result of a job, replacing any result it already has.
+   *
+   * @param jobId id of the job
+   * @param contentType media type of the result, e.g. text/csv
+   * @param data the result; sizeBytes bytes are read from it, and it is not closed
+   * @param sizeBytes number of bytes in data
+   * @throws org.springframework.http.InvalidMediaTypeException if contentType is not a media type
+   * @throws IllegalArgumentException if data ends before sizeBytes bytes
+   * @throws UncheckedIOException if data cannot be read
+   */
+  @Transactional
+  public void save(long jobId, String contentType, InputStream data, long sizeBytes) {
+    String mediaType = MediaType.parseMediaType(contentType).toString();
+    jdbcTemplate.update(DELETE_SQL, jobId);
+    jdbcTemplate.update(INSERT_SQL, jobId, mediaType, sizeBytes, OffsetDateTime.now());
+    long remaining = sizeBytes;
+    try {
+      for (int seq = 0; remaining > 0; seq++) {
+        byte[] chunk = data.readNBytes((int) Math.min(chunkSizeBytes, remaining));
+        if (chunk.length == 0) {
+          throw new IllegalArgumentException(
+              "Result of job %d ended after %d of %d bytes"
+                  .formatted(jobId, sizeBytes - remaining, sizeBytes));
+        }
+        jdbcTemplate.update(INSERT_CHUNK_SQL, jobId, seq, chunk);
+        remaining -= chunk.length;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Describes the result of a job without reading it.
+   *
+   * @param jobId id of the job
+   * @return the content type and size of the result, or empty if the job has no result
+   */
+  public Optional<JobResult> find(long jobId) {
+    return jdbcTemplate
+        .query(
+            SELECT_SQL,
+            (rs, rowNum) ->
+                JobResult.builder()
+                    .jobId(rs.getLong("job_id"))
+                    .contentType(rs.getString("content_type"))
+                    .sizeBytes(rs.getLong("size_bytes"))
+                    .createdAt(
+                        rs.getObject("created_at", OffsetDateTime.class).toZonedDateTime())
+                    .build(),
+            jobId)
+        .stream()
+        .findFirst();
+  }
+
+  /**
+   * Copies the result of a job to a stream. Nothing is written if the job has no result.
+   *
+   * @param jobId id of the job
+   * @param out where the result goes; not closed
+   * @throws IOException if the result cannot be written to out
+   */
+  public void copyTo(long jobId, OutputStream out) throws IOException {
+    for (int seq = 0; ; seq++) {
+      List<byte[]> chunk =
+          jdbcTemplate.query(SELECT_CHUNK_SQL, (rs, rowNum) -> rs.getBytes(1), jobId, seq);
+      if (chunk.isEmpty()) {
+        return;
+      }
+      out.write(chunk.get(0));
+    }
+  }
+}
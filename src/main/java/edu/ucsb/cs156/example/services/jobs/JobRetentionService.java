@@ -0,0 +1,172 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps the jobs tables from growing without bound.
+ *
+ * Finished jobs whose last update is older than app.jobs.retention.maxAgeDays are deleted
+ * (their log lines go with them through the foreign key), batchSize rows per statement so that
+ * no single transaction holds many locks. The logs of finished jobs longer than maxLogLines are
+ * cut down to their first and last lines, with one line in between saying how many were removed;
+ * the remaining lines are renumbered so that line numbers stay contiguous.
+ */
+@Service
+@Slf4j
+public class JobRetentionService {
+  static final String FINISHED =
+      JobService.FINISHED_STATUSES.stream()
+          .sorted()
+          .map(status -> "'" + status + "'")
+          .collect(Collectors.joining(", ", "(", ")"));
+
+  static final String EXPIRED_JOBS_SQL =
+      "SELECT id FROM jobs WHERE status IN "
+          + FINISHED
+          + " AND updated_at < ? ORDER BY id LIMIT ?";
+
+  static final String DELETE_JOB_SQL = "DELETE FROM jobs WHERE id = ?";
+
+  // a log has more than n lines exactly when it has a line with seq n
+  static final String OVERSIZED_LOGS_SQL =
+      "SELECT id FROM jobs j WHERE status IN "
+          + FINISHED
+          + " AND EXISTS (SELECT 1 FROM job_log_lines l WHERE l.job_id = j.id AND l.seq = ?)"
+          + " ORDER BY id LIMIT ?";
+
+  static final String LOCK_JOB_SQL = "SELECT id FROM jobs WHERE id = ? FOR UPDATE";
+
+  static final String COUNT_LINES_SQL = "SELECT COUNT(*) FROM job_log_lines WHERE job_id = ?";
+
+  static final String DELETE_MIDDLE_SQL =
+      "DELETE FROM job_log_lines WHERE job_id = ? AND seq >= ? AND seq < ?";
+
+  // the tail is moved through negative seqs so that no step breaks the unique (job_id, seq)
+  static final String PARK_TAIL_SQL =
+      "UPDATE job_log_lines SET seq = -seq - 1 WHERE job_id = ? AND seq >= ?";
+
+  static final String MOVE_TAIL_SQL =
+      "UPDATE job_log_lines SET seq = -seq - 1 - ? WHERE job_id = ? AND seq < 0";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Lazy @Autowired private JobRetentionService self;
+
+  @Value("${app.jobs.retention.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.jobs.retention.maxAgeDays:30}")
+  private int maxAgeDays;
+
+  @Value("${app.jobs.retention.batchSize:500}")
+  private int batchSize;
+
+  @Value("${app.jobs.retention.maxLogLines:10000}")
+  private int maxLogLines;
+
+  /** Deletes expired jobs, then shortens oversized logs. */
+  @Scheduled(
+      initialDelayString = "${app.jobs.retention.intervalMs:3600000}",
+      fixedDelayString = "${app.jobs.retention.intervalMs:3600000}")
+  public void run() {
+    if (!enabled) {
+      return;
+    }
+    int deleted = deleteExpiredJobs();
+    int truncated = truncateOversizedLogs();
+    if (deleted > 0 || truncated > 0) {
+      log.info("Job retention deleted {} jobs and truncated {} logs", deleted, truncated);
+    }
+  }
+
+  /**
+   * Deletes finished jobs older than maxAgeDays, batchSize at a time.
+   *
+   * @return the number of jobs deleted
+   */
+  int deleteExpiredJobs() {
+    Timestamp cutoff = Timestamp.from(Instant.now().minus(Duration.ofDays(maxAgeDays)));
+    int deleted = 0;
+    while (true) {
+      List<Long> ids = jdbcTemplate.queryForList(EXPIRED_JOBS_SQL, Long.class, cutoff, batchSize);
+      if (ids.isEmpty()) {
+        return deleted;
+      }
+      jdbcTemplate.batchUpdate(DELETE_JOB_SQL, ids, ids.size(), (ps, id) -> ps.setLong(1, id));
+      deleted += ids.size();
+      if (ids.size() < batchSize) {
+        return deleted;
+      }
+    }
+  }
+
+  /**
+   * Shortens the logs of finished jobs that have more than maxLogLines lines.
+   *
+   * @return the number of logs shortened
+   */
+  int truncateOversizedLogs() {
+    int truncated = 0;
+    while (true) {
+      List<Long> ids =
+          jdbcTemplate.queryForList(OVERSIZED_LOGS_SQL, Long.class, maxLogLines, batchSize);
+      for (Long id : ids) {
+        if (self.truncateLog(id)) {
+          truncated++;
+        }
+      }
+      if (ids.size() < batchSize) {
+        return truncated;
+      }
+    }
+  }
+
+  /**
+   * Cuts the log of one job down to maxLogLines lines: the first half, a line saying how many
+   * lines were removed, and the last lines.
+   *
+   * @param jobId id of the job
+   * @return false if the log was already short enough, e.g. because another node truncated it
+   */
+  @Transactional
+  public boolean truncateLog(long jobId) {
+    // serializes nodes truncating the same log
+    if (jdbcTemplate.queryForList(LOCK_JOB_SQL, Long.class, jobId).isEmpty()) {
+      return false;
+    }
+    long total = jdbcTemplate.queryForObject(COUNT_LINES_SQL, Long.class, jobId);
+    if (total <= maxLogLines) {
+      return false;
+    }
+
+    long head = maxLogLines / 2;
+    long tail = maxLogLines - head - 1;
+    long tailStart = total - tail;
+    long removed = tailStart - head;
+
+    jdbcTemplate.update(DELETE_MIDDLE_SQL, jobId, head, tailStart);
+    jdbcTemplate.update(PARK_TAIL_SQL, jobId, tailStart);
+    // a parked line -s-1 becomes s - (removed - 1), so the tail starts right after the marker
+    jdbcTemplate.update(MOVE_TAIL_SQL, removed - 1, jobId);
+    jdbcTemplate.update(
+        JobLogWriter.INSERT_SQL,
+        jobId,
+        head,
+        OffsetDateTime.now(),
+        "[%d lines removed by log retention]".formatted(removed));
+    return true;
+  }
+}
@@ -1,53 +1,715 @@
 package edu.ucsb.cs156.example.services.jobs;
 
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.ChildJobsFailedException;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.models.CompressedJobLog;
+import edu.ucsb.cs156.example.models.JobLogRange;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobSummaryPage;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
 @Service
+@Slf4j
 public class JobService {
+  /** Statuses after which a job will not log any more lines. */
+  public static final Set<String> FINISHED_STATUSES =
+      Set.of("complete", "error", "cancelled", "timed_out");
+
+  /** Largest page of job summaries a client may ask for. */
+  public static final int MAX_SUMMARY_PAGE_SIZE = 500;
+
+  // cursor for the first page: later than any job
+  private static final ZonedDateTime END_OF_TIME =
+      ZonedDateTime.of(9999, 12, 31, 0, 0, 0, 0, ZoneOffset.UTC);
+
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private JobLogWriter jobLogWriter;
+
+  @Autowired private JobLogStreamer jobLogStreamer;
+
+  @Autowired private JobProgressWriter jobProgressWriter;
+
+  @Autowired private JobLogArchiver jobLogArchiver;
+
+  @Autowired private JobResultStore jobResultStore;
+
   @Autowired private CurrentUserService currentUserService;
 
-  @Lazy @Autowired private JobService self;
+  @Autowired private JobTypeRegistry jobTypeRegistry;
+
+  @Autowired private TaskScheduler taskScheduler;
+
+  @Autowired
+  @Qualifier(JobExecutorConfig.JOB_EXECUTOR)
+  private ThreadPoolTaskExecutor jobExecutor;
+
+  @Value("${app.jobs.executor.queueCapacity:100}")
+  private int queueCapacity;
+
+  @Lazy @Autowired private JobQueueWorker jobQueueWorker;
 
+  // jobs this node is responsible for, whose heartbeats JobLeaseManager keeps fresh
+  private final Set<Long> ownedJobIds = ConcurrentHashMap.newKeySet();
+
+  // jobs running on this node, so that they can be cancelled
+  private final Map<Long, JobContext> runningJobs = new ConcurrentHashMap<>();
+
+  // local jobs launched on this node that are waiting for JobQueueWorker to start them
+  private final Map<Long, JobContextConsumer> localJobs = new ConcurrentHashMap<>();
+
+  /**
+   * Records a new job as queued, with the priority given by the {@link JobPriority} of its class.
+   * Jobs of a registered type are stored with their parameters in the durable queue and started
+   * by a JobQueueWorker on any node; other jobs (e.g. lambdas) are kept in memory and started by
+   * this node's JobQueueWorker, in the same order as durable jobs.
+   *
+   * @param jobFunction the work to do
+   * @return the job record
+   * @throws JobQueueFullException if too many jobs are already waiting
+   */
   public Job runAsJob(JobContextConsumer jobFunction) {
-    Job job = Job.builder().createdBy(currentUserService.getUser()).status("running").build();
+    return runAsJob(jobFunction, null);
+  }
 
-    jobsRepository.save(job);
-    self.runJobAsync(job, jobFunction);
+  /**
+   * Records a new job as queued, as {@link #runAsJob(JobContextConsumer)} does, with a limit on
+   * how long it may run.
+   *
+   * @param jobFunction the work to do
+   * @param timeoutMs milliseconds after which the job is stopped with status timed_out, or null
+   *     for no limit
+   * @return the job record
+   * @throws JobQueueFullException if too many jobs are already waiting
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, Long timeoutMs) {
+    return runAsJob(jobFunction, timeoutMs, null);
+  }
+
+  /**
+   * Records a new job as queued, as {@link #runAsJob(JobContextConsumer, Long)} does, unless a
+   * job with the same dedupe key is still queued or running; that job is returned
+   * instead, so that launching the same work twice (e.g. a double click) starts it once. A job
+   * gives up its dedupe key when it finishes.
+   *
+   * @param jobFunction the work to do
+   * @param timeoutMs milliseconds after which the job is stopped with status timed_out, or null
+   *     for no limit
+   * @param dedupeKey identifies the work, or null to always start a new job
+   * @return the new job record, or the record of the job already doing the work
+   * @throws JobQueueFullException if too many jobs are already waiting
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, Long timeoutMs, String dedupeKey) {
+    if (dedupeKey != null) {
+      Optional<Job> existing = jobsRepository.findByDedupeKey(dedupeKey);
+      if (existing.isPresent()) {
+        return existing.get();
+      }
+    }
+    if (jobsRepository.countByStatus("queued") >= queueCapacity) {
+      throw new JobQueueFullException(queueCapacity);
+    }
+
+    Job job =
+        Job.builder()
+            .createdBy(currentUserService.getUser())
+            .status("queued")
+            .timeoutMs(timeoutMs)
+            .dedupeKey(dedupeKey)
+            .priority(priorityOf(jobFunction))
+            .build();
+
+    Optional<String> type = jobTypeRegistry.typeOf(jobFunction);
+    if (type.isPresent()) {
+      job.setType(type.get());
+      job.setParams(jobTypeRegistry.serialize(jobFunction));
+    } else {
+      // no worker id yet, so that no poll can claim the job before this node holds its function
+      job.setHeartbeatAt(ZonedDateTime.now());
+    }
+    try {
+      jobsRepository.save(job);
+    } catch (DataIntegrityViolationException e) {
+      if (dedupeKey == null) {
+        throw e;
+      }
+      // another launch with the same key got in between the lookup and the insert
+      return jobsRepository.findByDedupeKey(dedupeKey).orElseThrow(() -> e);
+    }
+    if (type.isPresent()) {
+      return job;
+    }
 
+    ownedJobIds.add(job.getId());
+    localJobs.put(job.getId(), jobFunction);
+    job.setWorkerId(JobQueueWorker.WORKER_ID);
+    try {
+      jobsRepository.save(job);
+    } catch (RuntimeException e) {
+      // the row cannot be claimed; the reaper fails it once its heartbeat is stale
+      localJobs.remove(job.getId());
+      ownedJobIds.remove(job.getId());
+      throw e;
+    }
+    jobQueueWorker.poll();
     return job;
   }
 
-  @Async
-  public void runJobAsync(Job job, JobContextConsumer jobFunction) {
-    JobContext context = new JobContext(jobsRepository, job);
+  /**
+   * Returns the priority a job is launched with.
+   *
+   * @param jobFunction the job
+   * @return the value of the {@link JobPriority} of its class, clamped to BATCH..INTERACTIVE, or
+   *     NORMAL if it has none
+   */
+  static int priorityOf(JobContextConsumer jobFunction) {
+    JobPriority priority = jobFunction.getClass().getAnnotation(JobPriority.class);
+    if (priority == null) {
+      return JobPriority.NORMAL;
+    }
+    return Math.max(JobPriority.BATCH, Math.min(JobPriority.INTERACTIVE, priority.value()));
+  }
+
+  /**
+   * Hands a local job that JobQueueWorker has claimed over to it.
+   *
+   * @param id id of the job
+   * @return the work to do
+   * @throws IllegalArgumentException if the job is not waiting on this node, e.g. because the
+   *     node has restarted since it was launched
+   */
+  JobContextConsumer takeLocalJob(long id) {
+    JobContextConsumer jobFunction = localJobs.remove(id);
+    if (jobFunction == null) {
+      throw new IllegalArgumentException("Job %d is no longer waiting on this node".formatted(id));
+    }
+    return jobFunction;
+  }
+
+  /**
+   * Puts a local job back in the queue after the job executor refused it.
+   *
+   * @param id id of the job
+   * @param jobFunction the work to do
+   */
+  void returnLocalJob(long id, JobContextConsumer jobFunction) {
+    localJobs.put(id, jobFunction);
+  }
+
+  /**
+   * Runs a job on the calling thread, recording its status and flushing its log. The job is
+   * interrupted if it is cancelled or runs past its timeout; either way it finishes with status
+   * cancelled or timed_out rather than complete or error. A job whose type has a {@link
+   * RetryPolicy} and that fails with one of its retryOn exceptions is queued again instead, and
+   * JobQueueWorker starts it once its back-off has passed.
+   *
+   * @param job the job record
+   * @param jobFunction the work to do
+   */
+  public void runJob(Job job, JobContextConsumer jobFunction) {
+    runJob(job, jobFunction, null);
+  }
 
+  private void runJob(Job job, JobContextConsumer jobFunction, JobContext parent) {
+    ownedJobIds.add(job.getId());
+    boolean retrying = false;
     try {
-      jobFunction.accept(context);
-    } catch (Exception e) {
-      job.setStatus("error");
-      context.log(e.getMessage());
-      return;
+      // a local job may have been cancelled while it waited in the executor queue
+      if ("cancelled".equals(jobsRepository.findStatusById(job.getId()))) {
+        job.setStatus("cancelled");
+        jobLogStreamer.complete(job.getId());
+        return;
+      }
+
+      job.setStatus("running");
+      job.setWorkerId(JobQueueWorker.WORKER_ID);
+      job.setHeartbeatAt(ZonedDateTime.now());
+      job.setNextAttemptAt(null);
+      job.setAttempts(job.getAttempts() + 1);
+      jobsRepository.save(job);
+
+      // a job requeued after its worker died already has log lines; continue after them
+      long firstSeq = jobLogLinesRepository.countByJobId(job.getId());
+      JobContext context = new JobContext(jobsRepository, jobLogWriter, job, firstSeq);
+      context.attach(this, parent);
+      context.start();
+      runningJobs.put(job.getId(), context);
+      jobProgressWriter.track(context);
+      ScheduledFuture<?> timeout =
+          job.getTimeoutMs() == null
+              ? null
+              : taskScheduler.schedule(
+                  () -> context.stop("timed_out"), Instant.now().plusMillis(job.getTimeoutMs()));
+
+      String status = "complete";
+      Exception failure = null;
+      try {
+        jobFunction.accept(context);
+      } catch (Exception e) {
+        status = "error";
+        failure = e;
+        if (!context.isCancelled()) {
+          context.log(e.getMessage());
+        }
+      } finally {
+        if (timeout != null) {
+          timeout.cancel(false);
+        }
+        runningJobs.remove(job.getId());
+        jobProgressWriter.release(context);
+        context.finish();
+      }
+
+      if (context.isCancelled()) {
+        status = context.getStopReason();
+        if (!"timed_out".equals(status)) {
+          context.log("Job cancelled");
+        } else if (job.getTimeoutMs() != null) {
+          context.log("Job timed out after %d ms".formatted(job.getTimeoutMs()));
+        } else {
+          // a child job has no timeout of its own; it stops when its parent times out
+          context.log("Parent job timed out");
+        }
+      }
+
+      RetryPolicy policy = context.isCancelled() ? null : retryPolicyFor(jobFunction, failure);
+      if (policy != null && job.getAttempts() < policy.maxAttempts()) {
+        long delayMs =
+            retryDelayMs(policy, job.getAttempts(), ThreadLocalRandom.current().nextDouble());
+        context.log(
+            "Attempt %d of %d failed; retrying in %d ms"
+                .formatted(job.getAttempts(), policy.maxAttempts(), delayMs));
+        // the next attempt continues the log after these lines
+        jobLogWriter.flush();
+        // back in the queue, so the next attempt is claimed, leased and ordered like any job
+        job.setStatus("queued");
+        job.setNextAttemptAt(ZonedDateTime.now().plus(Duration.ofMillis(delayMs)));
+        if (job.getType() == null) {
+          // only this node can run a local job; it keeps the job, and its heartbeat, meanwhile
+          localJobs.put(job.getId(), jobFunction);
+          retrying = true;
+        } else {
+          job.setWorkerId(null);
+          job.setHeartbeatAt(null);
+        }
+        jobsRepository.save(job);
+        return;
+      }
+
+      // make sure every line is in the database before the job is reported as finished
+      jobLogWriter.flush();
+      job.setStatus(status);
+      job.setDedupeKey(null);
+      jobsRepository.save(job);
+      jobLogStreamer.complete(job.getId());
+
+      try {
+        jobLogArchiver.archive(job.getId());
+      } catch (Exception e) {
+        // the log is still readable as lines, just not compressed
+        log.warn("Could not compress the log of job {}", job.getId(), e);
+      }
+    } finally {
+      if (!retrying) {
+        ownedJobIds.remove(job.getId());
+      }
     }
+  }
+
+  /**
+   * Returns the retry policy that applies to a failed job.
+   *
+   * @param jobFunction the job
+   * @param failure what the job threw, or null if it did not fail
+   * @return the policy of the job's type, or null if the failure is not to be retried
+   */
+  static RetryPolicy retryPolicyFor(JobContextConsumer jobFunction, Exception failure) {
+    RetryPolicy policy = jobFunction.getClass().getAnnotation(RetryPolicy.class);
+    if (failure == null || policy == null) {
+      return null;
+    }
+    return Arrays.stream(policy.retryOn()).anyMatch(type -> type.isInstance(failure))
+        ? policy
+        : null;
+  }
+
+  /**
+   * Computes how long to wait before the next attempt of a job.
+   *
+   * @param policy the retry policy of the job
+   * @param attempt the attempt that just failed, from 1
+   * @param random a number from 0 (inclusive) to 1 (exclusive) that picks the jitter
+   * @return the delay in milliseconds
+   */
+  static long retryDelayMs(RetryPolicy policy, int attempt, double random) {
+    double backoff =
+        Math.min(
+            policy.maxDelayMs(),
+            policy.initialDelayMs() * Math.pow(policy.multiplier(), attempt - 1));
+    return Math.round(backoff * (1 - policy.jitter() * random));
+  }
 
-    job.setStatus("complete");
-    jobsRepository.save(job);
+  /**
+   * Stores the result of a running job, as described at {@link JobContext#saveResult(String,
+   * InputStream, long)}.
+   *
+   * @param ctx context of the job
+   * @param contentType media type of the result
+   * @param data the result
+   * @param sizeBytes number of bytes in data
+   */
+  void saveResult(JobContext ctx, String contentType, InputStream data, long sizeBytes) {
+    jobResultStore.save(ctx.getJob().getId(), contentType, data, sizeBytes);
   }
 
+  /**
+   * Runs work as child jobs of a running job, as described at {@link
+   * JobContext#runChildren(List)}. The calling thread is the parent's own thread; it runs
+   * children alongside up to maxPoolSize - 1 helpers on the job executor until none are left,
+   * then waits for the helpers to finish theirs. If the parent is cancelled or times out, children
+   * that have not started are given the parent's status and running ones are stopped.
+   *
+   * @param <T> type of the results
+   * @param parent context of the parent job
+   * @param children the work to do, one child job per element
+   * @return the result of each child, in the order the children were given
+   */
+  <T> List<T> runChildren(JobContext parent, List<? extends ChildJob<T>> children) {
+    Job parentJob = parent.getJob();
+    int total = children.size();
+    List<Job> childJobs = new ArrayList<>(total);
+    Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+    for (int i = 0; i < total; i++) {
+      Job child =
+          Job.builder()
+              .createdBy(parentJob.getCreatedBy())
+              .parentId(parentJob.getId())
+              .status("queued")
+              .workerId(JobQueueWorker.WORKER_ID)
+              .heartbeatAt(ZonedDateTime.now())
+              .build();
+      jobsRepository.save(child);
+      ownedJobIds.add(child.getId());
+      childJobs.add(child);
+      pending.add(i);
+    }
+    parent.log("Started %d child jobs".formatted(total));
+    parent.progress(0, total);
+
+    Object[] results = new Object[total];
+    Exception[] failures = new Exception[total];
+    CountDownLatch done = new CountDownLatch(total);
+    AtomicInteger finished = new AtomicInteger();
+    Runnable worker =
+        () -> {
+          Integer i;
+          while (!parent.isCancelled() && (i = pending.poll()) != null) {
+            int index = i;
+            try {
+              runJob(
+                  childJobs.get(index),
+                  ctx -> {
+                    try {
+                      results[index] = children.get(index).run(ctx);
+                    } catch (Exception e) {
+                      failures[index] = e;
+                      throw e;
+                    }
+                  },
+                  parent);
+            } finally {
+              done.countDown();
+            }
+            parent.progress(finished.incrementAndGet(), total);
+          }
+        };
+
+    int helpers = Math.min(total, jobExecutor.getMaxPoolSize()) - 1;
+    for (int h = 0; h < helpers; h++) {
+      try {
+        jobExecutor.execute(worker);
+      } catch (TaskRejectedException e) {
+        // the executor is busy; this thread runs the rest itself
+        break;
+      }
+    }
+    worker.run();
+
+    while (true) {
+      if (parent.isCancelled()) {
+        stopChildren(parent.getStopReason(), childJobs, pending, done);
+      }
+      try {
+        done.await();
+        break;
+      } catch (InterruptedException e) {
+        // interrupted by parent.stop; stop the children and wait for them to give up
+      }
+    }
+    parent.checkpoint();
+
+    List<Exception> errors = Arrays.stream(failures).filter(Objects::nonNull).toList();
+    if (!errors.isEmpty()) {
+      ChildJobsFailedException failed =
+          new ChildJobsFailedException(errors.size(), total, errors.get(0));
+      errors.forEach(failed::addSuppressed);
+      throw failed;
+    }
+    List<T> values = new ArrayList<>(total);
+    for (Object result : results) {
+      @SuppressWarnings("unchecked")
+      T value = (T) result;
+      values.add(value);
+    }
+    return values;
+  }
+
+  // gives children that have not started the parent's status and stops the running ones
+  private void stopChildren(
+      String reason, List<Job> childJobs, Queue<Integer> pending, CountDownLatch done) {
+    Integer i;
+    while ((i = pending.poll()) != null) {
+      Job child = childJobs.get(i);
+      child.setStatus(reason);
+      jobsRepository.save(child);
+      ownedJobIds.remove(child.getId());
+      jobLogStreamer.complete(child.getId());
+      done.countDown();
+    }
+    for (Job child : childJobs) {
+      stopRunningJob(child.getId(), reason);
+    }
+  }
+
+  /**
+   * Cancels a job. A queued job is cancelled straight away; a running job is asked to stop and
+   * interrupted, and finishes with status cancelled once its thread gives up. Jobs running on
+   * other nodes see the request at their next heartbeat.
+   *
+   * @param id id of the job
+   * @return the job record as it is after the request
+   * @throws EntityNotFoundException if there is no such job
+   */
+  public Job cancelJob(long id) {
+    Job job =
+        jobsRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(Job.class, id));
+    if (FINISHED_STATUSES.contains(job.getStatus())) {
+      return job;
+    }
+    if (jobsRepository.cancelIfQueued(id) > 0) {
+      // a local job will never be claimed now; forget it
+      if (localJobs.remove(id) != null) {
+        ownedJobIds.remove(id);
+        jobLogStreamer.complete(id);
+      }
+    } else if (jobsRepository.requestCancel(id) > 0) {
+      stopRunningJob(id, "cancelled");
+    }
+    return jobsRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(Job.class, id));
+  }
+
+  /**
+   * Stops a job if it is running on this node.
+   *
+   * @param id id of the job
+   * @param reason the status to give the job, cancelled or timed_out
+   * @return true if the job was running here and has been told to stop
+   */
+  boolean stopRunningJob(long id, String reason) {
+    JobContext context = runningJobs.get(id);
+    return context != null && context.stop(reason);
+  }
+
+  /**
+   * Returns one page of job summaries, newest first.
+   *
+   * @param status only return jobs with this status, or null for all jobs
+   * @param beforeCreatedAt createdAt of the last job on the previous page, or null for the first
+   *     page
+   * @param beforeId id of the last job on the previous page; if null, every job created at
+   *     beforeCreatedAt is included
+   * @param size number of jobs per page, clamped to 1..MAX_SUMMARY_PAGE_SIZE
+   * @return the page, with the cursor of the next page if there is one
+   */
+  public JobSummaryPage getJobSummaries(
+      String status, ZonedDateTime beforeCreatedAt, Long beforeId, int size) {
+    int pageSize = Math.max(1, Math.min(size, MAX_SUMMARY_PAGE_SIZE));
+    ZonedDateTime createdAt = beforeCreatedAt == null ? END_OF_TIME : beforeCreatedAt;
+    long id = beforeCreatedAt == null || beforeId == null ? Long.MAX_VALUE : beforeId;
+
+    // one extra row tells us whether there is a next page without a count query
+    PageRequest limit = PageRequest.of(0, pageSize + 1);
+    List<JobSummary> jobs =
+        status == null
+            ? jobsRepository.findSummariesBefore(createdAt, id, limit)
+            : jobsRepository.findSummariesByStatusBefore(status, createdAt, id, limit);
+
+    if (jobs.size() <= pageSize) {
+      return JobSummaryPage.builder().jobs(jobs).build();
+    }
+    List<JobSummary> page = jobs.subList(0, pageSize);
+    JobSummary last = page.get(pageSize - 1);
+    return JobSummaryPage.builder()
+        .jobs(List.copyOf(page))
+        .nextBeforeCreatedAt(last.getCreatedAt())
+        .nextBeforeId(last.getId())
+        .build();
+  }
+
+  /**
+   * Returns the ids of the jobs this node is currently responsible for.
+   *
+   * @return a snapshot of the job ids
+   */
+  public Set<Long> getOwnedJobIds() {
+    return Set.copyOf(ownedJobIds);
+  }
+
+  /**
+   * Whether a job is running on this node, so that its log lines are published as they are
+   * logged.
+   *
+   * @param id id of the job
+   * @return true if the job is running here
+   */
+  boolean isRunningHere(long id) {
+    return runningJobs.containsKey(id);
+  }
+
+  /**
+   * Reassembles the log of a job from its job_log_lines rows, or from its compressed copy once
+   * the job has finished. Jobs written before log lines were stored separately fall back to the
+   * legacy log column.
+   *
+   * @param jobId id of the job
+   * @return the full log, one line per log call
+   */
   public String getJobLogs(Long jobId) {
     Job job =
         jobsRepository
             .findById(jobId)
             .orElseThrow(() -> new IllegalArgumentException("Job not found"));
 
+    StringJoiner joiner = new StringJoiner("\n");
+    boolean hasLines = false;
+    for (JobLogLine line : jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId)) {
+      joiner.add(line.getMessage());
+      hasLines = true;
+    }
+    if (hasLines) {
+      return joiner.toString();
+    }
+
+    Optional<List<String>> archived = jobLogArchiver.readLines(jobId);
+    if (archived.isPresent()) {
+      return String.join("\n", archived.get());
+    }
+
     String log = job.getLog();
     return log != null ? log : "";
   }
+
+  /**
+   * Returns a range of lines of a job log without reading the rest of it. Line numbers are the
+   * seq values assigned by JobContext, so a range is a single indexed query.
+   *
+   * @param jobId id of the job
+   * @param offset line number of the first line to return (default 0)
+   * @param limit maximum number of lines to return (default all)
+   * @param tail if given, return the last tail lines instead; offset and limit are ignored
+   * @return the selected lines together with the total line count
+   */
+  public JobLogRange getJobLogRange(Long jobId, Long offset, Long limit, Long tail) {
+    Job job =
+        jobsRepository
+            .findById(jobId)
+            .orElseThrow(() -> new IllegalArgumentException("Job not found"));
+
+    long totalLines = jobLogLinesRepository.countByJobId(jobId);
+    Optional<CompressedJobLog> archived = Optional.empty();
+    // the legacy log column is read whole anyway, so it is split into lines in memory
+    List<String> legacyLines = List.of();
+    if (totalLines == 0) {
+      archived = jobLogArchiver.findCompressed(jobId);
+      if (archived.isPresent()) {
+        totalLines = archived.get().getLineCount();
+      } else if (job.getLog() != null && !job.getLog().isEmpty()) {
+        legacyLines = Arrays.asList(job.getLog().split("\n", -1));
+        totalLines = legacyLines.size();
+      }
+    }
+
+    long from;
+    long to;
+    if (tail != null) {
+      from = Math.max(0, totalLines - Math.max(0, tail));
+      to = totalLines;
+    } else {
+      from = offset == null ? 0 : Math.min(Math.max(0, offset), totalLines);
+      to = limit == null ? totalLines : Math.min(totalLines, from + Math.max(0, limit));
+    }
+
+    StringJoiner joiner = new StringJoiner("\n");
+    if (archived.isPresent()) {
+      JobLogArchiver.forEachLine(archived.get(), from, to, (message, seq) -> joiner.add(message));
+    } else if (!legacyLines.isEmpty()) {
+      legacyLines.subList((int) from, (int) to).forEach(joiner::add);
+    } else if (to > from) {
+      for (JobLogLine line :
+          jobLogLinesRepository.findAllByJobIdAndSeqBetweenOrderBySeqAsc(jobId, from, to - 1)) {
+        joiner.add(line.getMessage());
+      }
+    }
+
+    return JobLogRange.builder().offset(from).totalLines(totalLines).log(joiner.toString()).build();
+  }
+
+  /**
+   * Returns the compressed log of a job as stored, for clients that accept gzip.
+   *
+   * @param jobId id of the job
+   * @return the compressed log, or empty if the log of the job is not compressed
+   */
+  public Optional<CompressedJobLog> getCompressedJobLog(long jobId) {
+    return jobLogArchiver.findCompressed(jobId);
+  }
 }
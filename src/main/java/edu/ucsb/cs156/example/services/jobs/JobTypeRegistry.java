@@ -0,0 +1,83 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * The job types that can be stored in the durable job queue.
+ *
+ * A registered job type is a JobContextConsumer class whose state round-trips through Jackson;
+ * it is stored in the jobs table as its simple class name plus its JSON parameters, so that any
+ * node can rebuild and run it. Only registered classes are ever deserialized.
+ */
+@Service
+public class JobTypeRegistry {
+  @Autowired private ObjectMapper mapper;
+
+  private final Map<String, Class<? extends JobContextConsumer>> types = new ConcurrentHashMap<>();
+
+  public JobTypeRegistry() {
+    register(TestJob.class);
+  }
+
+  /**
+   * Registers a job type under its simple class name.
+   *
+   * @param jobClass the job class
+   */
+  public void register(Class<? extends JobContextConsumer> jobClass) {
+    types.put(jobClass.getSimpleName(), jobClass);
+  }
+
+  /**
+   * Returns the registered type name of a job, if it has one.
+   *
+   * @param jobFunction the job
+   * @return the type name, or empty for unregistered jobs such as lambdas
+   */
+  public Optional<String> typeOf(JobContextConsumer jobFunction) {
+    String name = jobFunction.getClass().getSimpleName();
+    return jobFunction.getClass().equals(types.get(name)) ? Optional.of(name) : Optional.empty();
+  }
+
+  /**
+   * Serializes the parameters of a job.
+   *
+   * @param jobFunction the job
+   * @return the job as JSON
+   */
+  public String serialize(JobContextConsumer jobFunction) {
+    try {
+      return mapper.writeValueAsString(jobFunction);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(
+          "Cannot serialize job of type %s".formatted(jobFunction.getClass().getSimpleName()), e);
+    }
+  }
+
+  /**
+   * Rebuilds a job from its stored type and parameters.
+   *
+   * @param type the registered type name
+   * @param params the job as JSON
+   * @return the job
+   */
+  public JobContextConsumer deserialize(String type, String params) {
+    Class<? extends JobContextConsumer> jobClass = types.get(type);
+    if (jobClass == null) {
+      throw new IllegalArgumentException("Unknown job type %s".formatted(type));
+    }
+    try {
+      return mapper.readValue(params, jobClass);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(
+          "Cannot read parameters of job type %s".formatted(type), e);
+    }
+  }
+}
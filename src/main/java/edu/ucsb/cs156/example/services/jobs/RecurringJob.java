@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a JobContextConsumer bean to be run on a cron schedule by RecurringJobScheduler. Every
+ * run is recorded in the jobs table like any other job.
+ *
+ * <pre>
+ * &#64;Component
+ * &#64;RecurringJob(cron = "${app.jobs.cleanup.cron:0 0 3 * * *}")
+ * public class CleanupJob implements JobContextConsumer { ... }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface RecurringJob {
+  /**
+   * @return a Spring cron expression (second minute hour day month weekday); may be a ${...}
+   *     property placeholder
+   */
+  String cron();
+
+  /**
+   * @return the name of the schedule; defaults to the bean name
+   */
+  String name() default "";
+}
@@ -0,0 +1,157 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs JobContextConsumer beans annotated with {@link RecurringJob} on their cron schedules.
+ *
+ * Every node schedules every recurring job, but a run only starts on the node that wins the
+ * schedule's row in job_schedules: a conditional UPDATE takes the row's lock for half the gap
+ * between runs, so nodes whose clocks differ slightly cannot both start the same run. The same
+ * UPDATE refuses while the schedule's previous job is still queued or running, so runs
+ * never overlap even if one takes longer than the gap between runs.
+ */
+@Service
+@Slf4j
+public class RecurringJobScheduler {
+  static final String INSERT_SCHEDULE_SQL = "INSERT INTO job_schedules (name, cron) VALUES (?, ?)";
+
+  static final String UPDATE_CRON_SQL = "UPDATE job_schedules SET cron = ? WHERE name = ?";
+
+  static final String ACQUIRE_SQL =
+      "UPDATE job_schedules SET locked_until = ?, locked_by = ?"
+          + " WHERE name = ? AND (locked_until IS NULL OR locked_until <= ?)"
+          + " AND NOT EXISTS (SELECT 1 FROM jobs WHERE jobs.id = job_schedules.last_job_id"
+          + " AND jobs.status IN ('queued', 'running'))";
+
+  static final String RECORD_RUN_SQL = "UPDATE job_schedules SET last_job_id = ? WHERE name = ?";
+
+  @Autowired private ApplicationContext applicationContext;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private JobService jobService;
+
+  @Autowired private TaskScheduler taskScheduler;
+
+  @Value("${app.jobs.recurring.enabled:true}")
+  private boolean enabled;
+
+  private final Map<String, ScheduledFuture<?>> schedules = new ConcurrentHashMap<>();
+
+  /** Schedules every {@link RecurringJob} bean once the application has started. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void scheduleAnnotatedJobs() {
+    if (!enabled) {
+      return;
+    }
+    applicationContext
+        .getBeansWithAnnotation(RecurringJob.class)
+        .forEach(
+            (beanName, bean) -> {
+              if (!(bean instanceof JobContextConsumer job)) {
+                throw new IllegalStateException(
+                    "@RecurringJob bean %s is not a JobContextConsumer".formatted(beanName));
+              }
+              RecurringJob annotation =
+                  applicationContext.findAnnotationOnBean(beanName, RecurringJob.class);
+              String name = annotation.name().isEmpty() ? beanName : annotation.name();
+              String cron =
+                  applicationContext.getEnvironment().resolvePlaceholders(annotation.cron());
+              schedule(name, cron, job);
+            });
+  }
+
+  /**
+   * Runs a job on a cron schedule, replacing any earlier schedule with the same name.
+   *
+   * @param name name of the schedule, unique across the application
+   * @param cron a Spring cron expression
+   * @param job the work to do on each run
+   * @throws IllegalArgumentException if the cron expression is invalid
+   */
+  public void schedule(String name, String cron, JobContextConsumer job) {
+    CronExpression expression = CronExpression.parse(cron);
+    if (jdbcTemplate.update(UPDATE_CRON_SQL, cron, name) == 0) {
+      try {
+        jdbcTemplate.update(INSERT_SCHEDULE_SQL, name, cron);
+      } catch (DuplicateKeyException e) {
+        // another node created the row first
+      }
+    }
+    ScheduledFuture<?> previous =
+        schedules.put(
+            name, taskScheduler.schedule(() -> fire(name, expression, job), new CronTrigger(cron)));
+    if (previous != null) {
+      previous.cancel(false);
+    }
+    log.info("Recurring job {} scheduled with cron {}", name, cron);
+  }
+
+  /**
+   * @return the names of the schedules on this node
+   */
+  public Set<String> getScheduleNames() {
+    return Set.copyOf(schedules.keySet());
+  }
+
+  /**
+   * Starts one run of a schedule, unless another node has already started it or the previous
+   * run has not finished.
+   *
+   * @param name name of the schedule
+   * @param cron its cron expression
+   * @param job the work to do
+   * @return true if this node started the run
+   */
+  boolean fire(String name, CronExpression cron, JobContextConsumer job) {
+    ZonedDateTime now = ZonedDateTime.now();
+    Timestamp lockedUntil = Timestamp.from(now.plus(lockDuration(cron, now)).toInstant());
+    int acquired =
+        jdbcTemplate.update(
+            ACQUIRE_SQL,
+            lockedUntil,
+            JobQueueWorker.WORKER_ID,
+            name,
+            Timestamp.from(now.toInstant()));
+    if (acquired == 0) {
+      log.debug("Recurring job {} skipped: started elsewhere or still running", name);
+      return false;
+    }
+
+    try {
+      Job run = jobService.runAsJob(job);
+      jdbcTemplate.update(RECORD_RUN_SQL, run.getId(), name);
+      return true;
+    } catch (JobQueueFullException e) {
+      log.warn("Recurring job {} skipped: {}", name, e.getMessage());
+      return false;
+    }
+  }
+
+  // half the gap between the next two runs
+  static Duration lockDuration(CronExpression cron, ZonedDateTime now) {
+    ZonedDateTime next = cron.next(now);
+    return Duration.between(next, cron.next(next)).dividedBy(2);
+  }
+}
@@ -0,0 +1,55 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lets JobService run a job type again when it fails, e.g. on a lock timeout. Attempt n + 1
+ * starts about initialDelayMs * multiplier^(n - 1) milliseconds (at most maxDelayMs) after
+ * attempt n failed; each delay is shortened by a random fraction of up to jitter so that jobs
+ * that failed together do not all retry together. While it waits the job is queued again, with
+ * its next_attempt_at set, and holds no executor thread; JobQueueWorker starts it after then, in
+ * the usual order. Jobs without this annotation are not retried.
+ *
+ * <pre>
+ * &#64;RetryPolicy(maxAttempts = 5, initialDelayMs = 2000)
+ * public class ImportJob implements JobContextConsumer { ... }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface RetryPolicy {
+  /**
+   * @return the most times the job is run, counting the first attempt
+   */
+  int maxAttempts() default 3;
+
+  /**
+   * @return milliseconds to wait before the second attempt
+   */
+  long initialDelayMs() default 1000;
+
+  /**
+   * @return factor by which the delay grows with every attempt
+   */
+  double multiplier() default 2.0;
+
+  /**
+   * @return the longest delay between two attempts, in milliseconds
+   */
+  long maxDelayMs() default 60000;
+
+  /**
+   * @return the largest fraction (0 to 1) of a delay that is randomly taken off it
+   */
+  double jitter() default 0.5;
+
+  /**
+   * @return the exceptions that are worth retrying; others fail the job straight away
+   */
+  Class<? extends Exception>[] retryOn() default {Exception.class};
+}
@@ -2,20 +2,48 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.MenuItemReviews;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityStreamer;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = DummyController.class)
 @Import(TestConfig.class)
@@ -24,6 +52,57 @@ public class ApiControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ArticlesRepository articlesRepository;
+
+        @MockBean
+        MenuItemReviewsRepository menuItemReviewsRepository;
+
+        @MockBean
+        EntityStreamer entityStreamer;
+
+        private final Articles article1 = Articles.builder().id(1L).title("a").build();
+
+        private final Articles article2 = Articles.builder().id(2L).title("b").build();
+
+        private final MenuItemReviews review = MenuItemReviews.builder().id(2L).itemId(7L).stars(4).build();
+
+        private FetchableFluentQuery<Articles> windowOf(List<Articles> articles, boolean hasNext) {
+                return windowOf(articlesRepository, articles, Articles::getId, hasNext);
+        }
+
+        // answers findBy with the window, through a query that records how it was built
+        @SuppressWarnings("unchecked")
+        private <T> FetchableFluentQuery<T> windowOf(JpaSpecificationExecutor<T> repository,
+                        List<T> entities, Function<T, Long> id, boolean hasNext) {
+                Window<T> window = Window.from(
+                                entities,
+                                i -> ScrollPosition.forward(Map.of("id", id.apply(entities.get(i)))),
+                                hasNext);
+                FetchableFluentQuery<T> query = mock(FetchableFluentQuery.class);
+                when(query.sortBy(any(Sort.class))).thenReturn(query);
+                when(query.limit(anyInt())).thenReturn(query);
+                when(query.scroll(any(ScrollPosition.class))).thenReturn(window);
+                when(repository.findBy(any(Specification.class), any(Function.class)))
+                                .thenAnswer(invocation -> {
+                                        // every entity is a candidate; the cursor does the rest
+                                        Specification<T> all = invocation.getArgument(0);
+                                        assertNull(all.toPredicate(null, null, null));
+                                        Function<FetchableFluentQuery<T>, Object> fn =
+                                                        invocation.getArgument(1);
+                                        return fn.apply(query);
+                                });
+                return query;
+        }
+
+        private Map<String, Object> badPage(String query) throws Exception {
+                MvcResult response = mockMvc.perform(get("/dummycontroller/articles?" + query))
+                                .andExpect(status().isBadRequest()).andReturn();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidPageRequestException", json.get("type"));
+                return json;
+        }
+
         @Test
         public void generic_message_test() {
                 ApiController apiController = new DummyController();
@@ -58,5 +137,258 @@ public class ApiControllerTests extends ControllerTestCase {
                 assertEquals("String with id 7 not found", json.get("message"));
         }
 
-}
+        @Test
+        public void test_that_job_queue_full_returns_too_many_requests() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/dummycontroller/busy"))
+                                .andExpect(status().isTooManyRequests()).andReturn();
+
+                // assert
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("JobQueueFullException", json.get("type"));
+                assertEquals("Job queue is full (3 jobs waiting); try again later", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_without_page_parameters_returns_every_entity() throws Exception {
+                when(articlesRepository.findAll()).thenReturn(List.of(article1, article2));
+
+                MvcResult response = mockMvc.perform(get("/dummycontroller/articles"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist(ApiController.NEXT_CURSOR_HEADER))
+                                .andReturn();
+
+                assertEquals(mapper.writeValueAsString(List.of(article1, article2)),
+                                response.getResponse().getContentAsString());
+                verify(articlesRepository, never()).findBy(any(Specification.class), any(Function.class));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void first_page_links_to_the_next_page() throws Exception {
+                FetchableFluentQuery<Articles> query = windowOf(List.of(article1, article2), true);
+
+                MvcResult response = mockMvc.perform(get("/dummycontroller/articles?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(ApiController.NEXT_CURSOR_HEADER, "eyJpZCI6Mn0"))
+                                .andExpect(header().string("Link",
+                                                "<http://localhost/dummycontroller/articles?after=eyJpZCI6Mn0&limit=2>; rel=\"next\""))
+                                .andReturn();
+
+                assertEquals(mapper.writeValueAsString(List.of(article1, article2)),
+                                response.getResponse().getContentAsString());
+                verify(query).sortBy(Sort.by("id"));
+                verify(query).limit(2);
+                verify(query).scroll(argThat(ScrollPosition::isInitial));
+                verify(articlesRepository, never()).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void next_page_starts_after_the_cursor_in_the_sort_order() throws Exception {
+                FetchableFluentQuery<MenuItemReviews> query =
+                                windowOf(menuItemReviewsRepository, List.of(review), MenuItemReviews::getId, false);
+
+                // cursor {"stars":5,"id":3}
+                mockMvc.perform(get("/dummycontroller/menuitemreviews?sort=stars,desc&after=eyJzdGFycyI6NSwiaWQiOjN9"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist(ApiController.NEXT_CURSOR_HEADER))
+                                .andExpect(header().doesNotExist("Link"));
+
+                verify(query).sortBy(Sort.by(Sort.Direction.DESC, "stars").and(Sort.by(Sort.Direction.DESC, "id")));
+                verify(query).limit(ApiController.DEFAULT_PAGE_SIZE);
+                verify(query).scroll(argThat(position -> ((KeysetScrollPosition) position).getKeys()
+                                .equals(Map.of("stars", 5, "id", 3L))));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void cursor_values_are_read_back_as_their_field_types() throws Exception {
+                FetchableFluentQuery<MenuItemReviews> query =
+                                windowOf(menuItemReviewsRepository, List.of(), MenuItemReviews::getId, false);
+
+                // cursor {"itemId":7,"id":1}, whose numbers JSON reads as ints
+                mockMvc.perform(get("/dummycontroller/menuitemreviews?sort=itemId&after=eyJpdGVtSWQiOjcsImlkIjoxfQ"))
+                                .andExpect(status().isOk());
+
+                verify(query).sortBy(Sort.by("itemId").and(Sort.by("id")));
+                verify(query).scroll(argThat(position -> ((KeysetScrollPosition) position).getKeys()
+                                .equals(Map.of("itemId", 7L, "id", 1L))));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void sorting_by_id_needs_no_tie_breaker() throws Exception {
+                FetchableFluentQuery<Articles> query = windowOf(List.of(article1), false);
+
+                mockMvc.perform(get("/dummycontroller/articles?sort=id,asc")).andExpect(status().isOk());
+
+                verify(query).sortBy(Sort.by(Sort.Direction.ASC, "id"));
+        }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void limit_is_clamped_to_the_largest_page() throws Exception {
+                FetchableFluentQuery<Articles> query = windowOf(List.of(article1), false);
+
+                mockMvc.perform(get("/dummycontroller/articles?limit=5000")).andExpect(status().isOk());
+                mockMvc.perform(get("/dummycontroller/articles?limit=0")).andExpect(status().isOk());
+
+                verify(query).limit(ApiController.MAX_PAGE_SIZE);
+                verify(query).limit(1);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void unusable_sort_is_a_bad_request() throws Exception {
+                assertEquals("Cannot sort articles by nope", badPage("sort=nope").get("message"));
+                assertEquals("sort must be a field name, then ,asc or ,desc",
+                                badPage("sort=title,sideways").get("message"));
+                assertEquals("sort must be a field name, then ,asc or ,desc",
+                                badPage("sort=title,asc,desc").get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void sort_by_a_field_that_may_be_null_is_a_bad_request() throws Exception {
+                assertEquals("Cannot sort articles by title, which may be null",
+                                badPage("sort=title,desc").get("message"));
+                assertEquals("Cannot sort articles by dateAdded, which may be null",
+                                badPage("sort=dateAdded").get("message"));
+                verify(articlesRepository, never()).findBy(any(Specification.class), any(Function.class));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void unusable_cursor_is_a_bad_request() throws Exception {
+                // not base64, not a JSON object, and an id that is not a number
+                assertEquals("Invalid cursor", badPage("after=!!!").get("message"));
+                assertEquals("Invalid cursor", badPage("after=WzFd").get("message"));
+                assertEquals("Invalid cursor", badPage("after=eyJpZCI6ImFiYyJ9").get("message"));
+                // null, and the values of another sort
+                assertEquals("Cursor does not match sort", badPage("after=bnVsbA").get("message"));
+                assertEquals("Cursor does not match sort", badPage("after=eyJ0aXRsZSI6IngifQ").get("message"));
+                verify(articlesRepository, never()).findBy(any(Specification.class), any(Function.class));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void stream_ndjson_writes_every_entity_as_it_is_read() throws Exception {
+                StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+                when(entityStreamer.stream(Articles.class, EntityStreamer.Format.NDJSON)).thenReturn(body);
+
+                MvcResult started = mockMvc.perform(get("/dummycontroller/articles?stream=ndjson"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                                .andReturn();
+
+                assertEquals("{\"id\":1}\n{\"id\":2}\n", response.getResponse().getContentAsString());
+                verify(articlesRepository, never()).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void stream_json_writes_a_json_array() throws Exception {
+                StreamingResponseBody body = out -> out.write("[]".getBytes(StandardCharsets.UTF_8));
+                when(entityStreamer.stream(eq(Articles.class), eq(EntityStreamer.Format.JSON))).thenReturn(body);
+
+                MvcResult started = mockMvc.perform(get("/dummycontroller/articles?stream=JSON"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                                .andExpect(content().string("[]"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void unusable_stream_is_a_bad_request() throws Exception {
+                assertEquals("stream must be json or ndjson", badPage("stream=xml").get("message"));
+                assertEquals("stream cannot be used with after, limit or sort",
+                                badPage("stream=ndjson&limit=2").get("message"));
+                verify(entityStreamer, never()).stream(any(), any());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_has_the_change_counter_of_the_table_as_its_etag() throws Exception {
+                when(tableVersionService.getVersion(Articles.class)).thenReturn(7L);
+                when(articlesRepository.findAll()).thenReturn(List.of(article1));
+
+                mockMvc.perform(get("/dummycontroller/articles").header("If-None-Match", "\"6\""))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"7\""));
+
+                verify(articlesRepository).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_is_not_modified_without_reading_the_entities_if_the_client_has_the_etag() throws Exception {
+                when(tableVersionService.getVersion(Articles.class)).thenReturn(7L);
+
+                mockMvc.perform(get("/dummycontroller/articles?limit=2").header("If-None-Match", "\"3\", \"7\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "\"7\""));
+                mockMvc.perform(get("/dummycontroller/articles").header("If-None-Match", "W/\"7\""))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/dummycontroller/articles").header("If-None-Match", "*"))
+                                .andExpect(status().isNotModified());
+
+                verify(articlesRepository, never()).findAll();
+                verify(articlesRepository, never()).findBy(any(Specification.class), any(Function.class));
+        }
+
+        @Test
+        public void entity_has_its_version_as_its_etag() throws Exception {
+                mockMvc.perform(get("/dummycontroller/article?version=5"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"5\""));
+                mockMvc.perform(get("/dummycontroller/article?version=5").header("If-None-Match", "\"5\""))
+                                .andExpect(status().isNotModified());
+                // not saved yet
+                mockMvc.perform(get("/dummycontroller/article"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("ETag"));
+        }
+
+        @Test
+        public void update_goes_ahead_if_if_match_has_the_current_version_or_is_absent() throws Exception {
+                mockMvc.perform(put("/dummycontroller/article").with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\""));
+                mockMvc.perform(put("/dummycontroller/article").header("If-Match", "\"3\"").with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(put("/dummycontroller/article").header("If-Match", "\"2\", \"3\"").with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(put("/dummycontroller/article").header("If-Match", "*").with(csrf()))
+                                .andExpect(status().isOk());
+        }
+
+        @Test
+        public void update_of_a_version_that_is_not_current_fails_its_precondition() throws Exception {
+                // a weak ETag never matches If-Match
+                for (String ifMatch : List.of("\"2\"", "W/\"3\"")) {
+                        MvcResult response = mockMvc.perform(put("/dummycontroller/article")
+                                        .header("If-Match", ifMatch).with(csrf()))
+                                        .andExpect(status().isPreconditionFailed()).andReturn();
+
+                        Map<String, Object> json = responseToJson(response);
+                        assertEquals("PreconditionFailedException", json.get("type"));
+                        assertEquals("Articles has been changed; its current ETag is \"3\"", json.get("message"));
+                }
+        }
+
+        @Test
+        public void update_that_loses_a_race_fails_its_precondition() throws Exception {
+                MvcResult response = mockMvc.perform(get("/dummycontroller/stale"))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                assertEquals("ObjectOptimisticLockingFailureException", responseToJson(response).get("type"));
+        }
+}
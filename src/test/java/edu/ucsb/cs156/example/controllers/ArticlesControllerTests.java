@@ -8,6 +8,7 @@ import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -28,6 +29,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -228,6 +230,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(articlesEdited);
 
                 when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articlesOrig));
+                when(articlesRepository.save(eq(articlesEdited))).thenReturn(articlesEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -330,4 +333,19 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 assertEquals("Articles with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_sorted_by_id_descending() throws Exception {
+                Articles articles = Articles.builder().id(1L).title("Hello").build();
+                returnLastPage(articlesRepository, List.of(articles));
+
+                MvcResult response = mockMvc.perform(get("/api/articles/all?sort=id,desc&limit=10"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist(ApiController.NEXT_CURSOR_HEADER))
+                                .andReturn();
+
+                assertEquals(mapper.writeValueAsString(List.of(articles)), response.getResponse().getContentAsString());
+                verify(articlesRepository, never()).findAll();
+        }
 }
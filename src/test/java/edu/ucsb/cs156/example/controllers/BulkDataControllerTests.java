@@ -0,0 +1,425 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.jobs.ExportJob;
+import edu.ucsb.cs156.example.jobs.ImportJob;
+import edu.ucsb.cs156.example.models.JobResult;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.IdSequenceService;
+import edu.ucsb.cs156.example.services.bulk.EntityTableRegistry;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobResultStore;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@WebMvcTest(controllers = BulkDataController.class)
+@Import(EntityTableRegistry.class)
+public class BulkDataControllerTests extends ControllerTestCase {
+
+  @MockitoBean JobService jobService;
+
+  @MockitoBean JdbcTemplate jdbcTemplate;
+
+  @MockitoBean TransactionTemplate transactionTemplate;
+
+  @MockitoBean IdSequenceService idSequenceService;
+
+  @MockitoBean UserRepository userRepository;
+
+  @MockitoBean JobResultStore jobResultStore;
+
+  @TempDir static Path exportDir;
+
+  @DynamicPropertySource
+  static void exportProperties(DynamicPropertyRegistry registry) {
+    registry.add("app.jobs.export.dir", () -> exportDir.toString());
+  }
+
+  private static final String MENU_ITEMS_CSV =
+      "diningCommonsCode,name,station\nortega,Pizza,Grill\nportola,Salad,Greens\n";
+
+  private static final String MENU_ITEMS_NDJSON =
+      "{\"diningCommonsCode\":\"ortega\",\"name\":\"Pizza\",\"station\":\"Grill\"}\n";
+
+  private static MockMultipartFile upload(String filename, String contents) {
+    return new MockMultipartFile(
+        "file", filename, "text/plain", contents.getBytes(StandardCharsets.UTF_8));
+  }
+
+  // runs the export job the controller started, as job jobId, and returns its context
+  private JobContext runLaunchedExport(long jobId) throws Exception {
+    ArgumentCaptor<ExportJob> exportJob = ArgumentCaptor.forClass(ExportJob.class);
+    verify(jobService).runAsJob(exportJob.capture());
+    when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+    JobContext ctx = spy(new JobContext(null, null, Job.builder().id(jobId).build()));
+    doNothing().when(ctx).saveResult(anyString(), any(InputStream.class), anyLong());
+    exportJob.getValue().accept(ctx);
+    return ctx;
+  }
+
+  private static JobResult result(long jobId, String contentType, long sizeBytes) {
+    return JobResult.builder()
+        .jobId(jobId)
+        .contentType(contentType)
+        .sizeBytes(sizeBytes)
+        .createdAt(ZonedDateTime.now())
+        .build();
+  }
+
+  private void storedResult(long jobId, String contentType, byte[] data) throws Exception {
+    when(jobResultStore.find(jobId))
+        .thenReturn(Optional.of(result(jobId, contentType, data.length)));
+    doAnswer(
+            invocation -> {
+              OutputStream out = invocation.getArgument(1);
+              out.write(data);
+              return null;
+            })
+        .when(jobResultStore)
+        .copyTo(eq(jobId), any(OutputStream.class));
+  }
+
+  // runs the job the controller started and returns its counters
+  private Map<String, Long> runLaunchedJob() throws Exception {
+    ArgumentCaptor<ImportJob> importJob = ArgumentCaptor.forClass(ImportJob.class);
+    verify(jobService).runAsJob(importJob.capture());
+    when(idSequenceService.reserve(any(), anyInt()))
+        .thenAnswer(invocation -> new long[(int) invocation.getArgument(1)]);
+    JobContext ctx = new JobContext(null, null, Job.builder().id(1L).build());
+    importJob.getValue().accept(ctx);
+    return ctx.getCounters();
+  }
+
+  @Test
+  public void logged_out_users_cannot_import() throws Exception {
+    mockMvc
+        .perform(
+            multipart("/api/bulk/import")
+                .file(upload("items.csv", MENU_ITEMS_CSV))
+                .param("entity", "ucsbdiningcommonsmenuitems")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_import() throws Exception {
+    mockMvc
+        .perform(
+            multipart("/api/bulk/import")
+                .file(upload("items.csv", MENU_ITEMS_CSV))
+                .param("entity", "ucsbdiningcommonsmenuitems")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_import_a_csv_file() throws Exception {
+    // arrange
+    Job job = Job.builder().id(17L).status("queued").build();
+    when(jobService.runAsJob(any(ImportJob.class))).thenReturn(job);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                multipart("/api/bulk/import")
+                    .file(upload("items.csv", MENU_ITEMS_CSV))
+                    .param("entity", "ucsbdiningcommonsmenuitems")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(job), response.getResponse().getContentAsString());
+    assertEquals(Map.of("imported", 2L), runLaunchedJob());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_import_a_json_file_named_ndjson() throws Exception {
+    mockMvc
+        .perform(
+            multipart("/api/bulk/import")
+                .file(upload("items.ndjson", MENU_ITEMS_NDJSON))
+                .param("entity", "ucsbdiningcommonsmenuitems")
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    assertEquals(Map.of("imported", 1L), runLaunchedJob());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_name_the_format_of_a_file_without_an_extension() throws Exception {
+    mockMvc
+        .perform(
+            multipart("/api/bulk/import")
+                .file(upload("export", MENU_ITEMS_NDJSON))
+                .param("entity", "ucsbdiningcommonsmenuitems")
+                .param("format", "JSON")
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    assertEquals(Map.of("imported", 1L), runLaunchedJob());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void reads_a_json_file_by_its_extension() throws Exception {
+    mockMvc
+        .perform(
+            multipart("/api/bulk/import")
+                .file(upload("items.JSON", "[" + MENU_ITEMS_NDJSON + "]"))
+                .param("entity", "ucsbdiningcommonsmenuitems")
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    assertEquals(Map.of("imported", 1L), runLaunchedJob());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void reads_a_file_without_a_name_as_csv() throws Exception {
+    mockMvc
+        .perform(
+            multipart("/api/bulk/import")
+                .file(
+                    new MockMultipartFile("file", MENU_ITEMS_CSV.getBytes(StandardCharsets.UTF_8)))
+                .param("entity", "ucsbdiningcommonsmenuitems")
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    assertEquals(Map.of("imported", 2L), runLaunchedJob());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_bad_request_for_an_unknown_entity() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(
+                multipart("/api/bulk/import")
+                    .file(upload("items.csv", MENU_ITEMS_CSV))
+                    .param("entity", "menus")
+                    .with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        "Unknown entity menus; expected one of [articles, helprequests, menuitemreviews,"
+            + " recommendationrequest, restaurants, ucsbdates, ucsbdiningcommons,"
+            + " ucsbdiningcommonsmenuitems, ucsborganizations]",
+        json.get("message"));
+    verify(jobService, never()).runAsJob(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_bad_request_for_an_unknown_format() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(
+                multipart("/api/bulk/import")
+                    .file(upload("items.xml", "<items/>"))
+                    .param("entity", "ucsbdiningcommonsmenuitems")
+                    .param("format", "xml")
+                    .with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Unknown format xml; expected csv or json", json.get("message"));
+    verify(jobService, never()).runAsJob(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_too_many_requests_when_job_queue_is_full() throws Exception {
+    // arrange
+    when(jobService.runAsJob(any(ImportJob.class))).thenThrow(new JobQueueFullException(100));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                multipart("/api/bulk/import")
+                    .file(upload("items.csv", MENU_ITEMS_CSV))
+                    .param("entity", "ucsbdiningcommonsmenuitems")
+                    .with(csrf()))
+            .andExpect(status().isTooManyRequests())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("JobQueueFullException", json.get("type"));
+    // the copy of the upload was deleted
+    assertThrows(NoSuchFileException.class, this::runLaunchedJob);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_export() throws Exception {
+    mockMvc
+        .perform(post("/api/bulk/export?entity=ucsbdates").with(csrf()))
+        .andExpect(status().is(403));
+    mockMvc.perform(get("/api/bulk/export?jobId=7")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_export_a_table_as_csv() throws Exception {
+    // arrange
+    Job job = Job.builder().id(21L).status("queued").build();
+    when(jobService.runAsJob(any(ExportJob.class))).thenReturn(job);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/bulk/export?entity=ucsbdates").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(job), response.getResponse().getContentAsString());
+    JobContext ctx = runLaunchedExport(21L);
+    verify(ctx).saveResult(eq("text/csv"), any(InputStream.class), anyLong());
+    // the file is stored with the job, so nothing is left on this node
+    try (Stream<Path> files = Files.list(exportDir)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_export_a_table_as_gzipped_ndjson() throws Exception {
+    mockMvc
+        .perform(post("/api/bulk/export?entity=ucsbdates&format=json&gzip=true").with(csrf()))
+        .andExpect(status().isOk());
+
+    JobContext ctx = runLaunchedExport(22L);
+    verify(ctx).saveResult(eq("application/gzip"), any(InputStream.class), anyLong());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_bad_request_exporting_an_unknown_entity_or_format() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/bulk/export?entity=menus").with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+    assertTrue(((String) responseToJson(response).get("message")).startsWith("Unknown entity"));
+
+    response =
+        mockMvc
+            .perform(post("/api/bulk/export?entity=ucsbdates&format=xml").with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+    assertEquals(
+        "Unknown format xml; expected csv or json", responseToJson(response).get("message"));
+    verify(jobService, never()).runAsJob(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_download_an_export() throws Exception {
+    storedResult(31L, "text/csv", "id,name\r\n1,noon\r\n".getBytes(StandardCharsets.UTF_8));
+    storedResult(32L, "application/x-ndjson", "{}\n".getBytes(StandardCharsets.UTF_8));
+    storedResult(33L, "application/gzip", new byte[] {31, -117});
+
+    MvcResult response =
+        mockMvc
+            .perform(asyncDispatch(download(31L)))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Type", "text/csv"))
+            .andExpect(header().string("Content-Length", "17"))
+            .andExpect(
+                header()
+                    .string("Content-Disposition", "attachment; filename=\"31-export.csv\""))
+            .andReturn();
+    assertEquals("id,name\r\n1,noon\r\n", response.getResponse().getContentAsString());
+
+    mockMvc
+        .perform(asyncDispatch(download(32L)))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "application/x-ndjson"))
+        .andExpect(
+            header().string("Content-Disposition", "attachment; filename=\"32-export.ndjson\""));
+
+    response =
+        mockMvc
+            .perform(asyncDispatch(download(33L)))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Type", "application/gzip"))
+            .andExpect(
+                header().string("Content-Disposition", "attachment; filename=\"33-export.gz\""))
+            .andReturn();
+    assertArrayEquals(new byte[] {31, -117}, response.getResponse().getContentAsByteArray());
+  }
+
+  // starts the download of an export, which is streamed from the job's result
+  private MvcResult download(long jobId) throws Exception {
+    return mockMvc
+        .perform(get("/api/bulk/export?jobId=%d".formatted(jobId)))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_not_found_for_an_unfinished_export() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/bulk/export?jobId=34"))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    assertEquals("JobResult with id 34 not found", responseToJson(response).get("message"));
+  }
+}
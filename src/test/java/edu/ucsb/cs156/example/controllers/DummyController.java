@@ -1,11 +1,23 @@
 package edu.ucsb.cs156.example.controllers;
 
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.MenuItemReviews;
+import edu.ucsb.cs156.example.models.PageParams;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewsRepository;
 
 
 /**
@@ -16,6 +28,12 @@ import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 @RestController
 public class DummyController extends ApiController {
 
+    @Autowired
+    ArticlesRepository articlesRepository;
+
+    @Autowired
+    MenuItemReviewsRepository menuItemReviewsRepository;
+
     @GetMapping("")
     public String getById(@RequestParam Long id) throws EntityNotFoundException {
         if (id == 1) {
@@ -23,4 +41,38 @@ public class DummyController extends ApiController {
         }
         throw new EntityNotFoundException(String.class, id);
     }
+
+    @GetMapping("/busy")
+    public String busy() throws JobQueueFullException {
+        throw new JobQueueFullException(3);
+    }
+
+    @GetMapping("/articles")
+    public ResponseEntity<?> articles(@ParameterObject PageParams pageParams) {
+        return page(articlesRepository, Articles.class, pageParams);
+    }
+
+    @GetMapping("/menuitemreviews")
+    public ResponseEntity<?> menuItemReviews(@ParameterObject PageParams pageParams) {
+        return page(menuItemReviewsRepository, MenuItemReviews.class, pageParams);
+    }
+
+    @GetMapping("/article")
+    public ResponseEntity<Articles> article(@RequestParam(required = false) Long version) {
+        return withETag(Articles.builder().id(1L).title("a").version(version).build());
+    }
+
+    @PutMapping("/article")
+    public ResponseEntity<Articles> updateArticle(
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        Articles article = Articles.builder().id(1L).title("a").version(3L).build();
+        checkIfMatch(ifMatch, article);
+        article.setVersion(4L);
+        return withETag(article);
+    }
+
+    @GetMapping("/stale")
+    public String stale() {
+        throw new ObjectOptimisticLockingFailureException(Articles.class, 1L);
+    }
 }
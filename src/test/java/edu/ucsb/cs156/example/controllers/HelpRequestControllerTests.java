@@ -8,6 +8,7 @@ import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -28,6 +29,7 @@ import java.time.LocalDateTime;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -234,6 +236,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(helpRequestEdited);
 
                 when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(helpRequestOrig));
+                when(helpRequestRepository.save(eq(helpRequestEdited))).thenReturn(helpRequestEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -339,4 +342,19 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 assertEquals("HelpRequest with id 15 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_sorted_by_solved() throws Exception {
+                HelpRequest helpRequest = HelpRequest.builder().id(1L).teamId("s25-12").build();
+                returnLastPage(helpRequestRepository, List.of(helpRequest));
+
+                MvcResult response = mockMvc.perform(get("/api/helprequests/all?sort=solved&limit=10"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist(ApiController.NEXT_CURSOR_HEADER))
+                                .andReturn();
+
+                assertEquals(mapper.writeValueAsString(List.of(helpRequest)), response.getResponse().getContentAsString());
+                verify(helpRequestRepository, never()).findAll();
+        }
 }
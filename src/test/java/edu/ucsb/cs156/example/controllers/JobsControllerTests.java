@@ -2,29 +2,54 @@ package edu.ucsb.cs156.example.controllers;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.models.CompressedJobLog;
+import edu.ucsb.cs156.example.services.jobs.JobLogArchiver;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreamer;
+import edu.ucsb.cs156.example.models.JobProgress;
+import edu.ucsb.cs156.example.models.JobResult;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.services.jobs.JobLogWriter;
+import edu.ucsb.cs156.example.services.jobs.JobProgressWriter;
+import edu.ucsb.cs156.example.services.jobs.JobResultStore;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.services.jobs.JobTypeRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,20 +57,37 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Slf4j
 @WebMvcTest(controllers = JobsController.class)
-@Import(JobService.class)
+@Import({JobService.class, JobExecutorConfig.class, JobTypeRegistry.class})
 @AutoConfigureDataJpa
 public class JobsControllerTests extends ControllerTestCase {
 
   @MockitoBean JobsRepository jobsRepository;
 
+  @MockitoBean JobLogLinesRepository jobLogLinesRepository;
+
+  @MockitoBean JobLogWriter jobLogWriter;
+
+  @MockitoBean JobLogStreamer jobLogStreamer;
+
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean TaskScheduler taskScheduler;
+
+  @MockitoBean JobProgressWriter jobProgressWriter;
+
+  @MockitoBean JobLogArchiver jobLogArchiver;
+
+  @MockitoBean JobResultStore jobResultStore;
+
   @Autowired JobService jobService;
 
   @Autowired ObjectMapper objectMapper;
@@ -62,7 +104,7 @@ public class JobsControllerTests extends ControllerTestCase {
     ArrayList<Job> expectedJobs = new ArrayList<>();
     expectedJobs.addAll(Arrays.asList(job1, job2));
 
-    when(jobsRepository.findAll()).thenReturn(expectedJobs);
+    when(jobsRepository.findAllByParentIdIsNull()).thenReturn(expectedJobs);
 
     // act
     MvcResult response =
@@ -70,7 +112,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, atLeastOnce()).findAll();
+    verify(jobsRepository, atLeastOnce()).findAllByParentIdIsNull();
     String expectedJson = mapper.writeValueAsString(expectedJobs);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -156,7 +198,50 @@ public class JobsControllerTests extends ControllerTestCase {
     mockMvc
         .perform(get("/api/jobs/logs/{id}", jobId))
         .andExpect(status().isOk())
-        .andExpect(content().string(jobLog));
+        .andExpect(content().string(jobLog))
+        .andExpect(header().string("X-Total-Lines", "1"))
+        .andExpect(header().string("X-Line-Offset", "0"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_admin_can_get_a_page_of_log_lines() throws Exception {
+    // Arrange
+    Long jobId = 1L;
+    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(50L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqBetweenOrderBySeqAsc(jobId, 20L, 21L))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(jobId).seq(20).message("twenty").build(),
+                JobLogLine.builder().jobId(jobId).seq(21).message("twenty-one").build()));
+
+    // Act & Assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}?offset=20&limit=2", jobId))
+        .andExpect(status().isOk())
+        .andExpect(content().string("twenty\ntwenty-one"))
+        .andExpect(header().string("X-Total-Lines", "50"))
+        .andExpect(header().string("X-Line-Offset", "20"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_getJobLogs_admin_can_get_tail_of_log() throws Exception {
+    // Arrange
+    Long jobId = 1L;
+    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(50L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqBetweenOrderBySeqAsc(jobId, 49L, 49L))
+        .thenReturn(List.of(JobLogLine.builder().jobId(jobId).seq(49).message("last").build()));
+
+    // Act & Assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}?tail=1", jobId))
+        .andExpect(status().isOk())
+        .andExpect(content().string("last"))
+        .andExpect(header().string("X-Total-Lines", "50"))
+        .andExpect(header().string("X-Line-Offset", "49"));
   }
 
   @WithMockUser(roles = {"ADMIN"})
@@ -228,29 +313,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    User user = currentUserService.getUser();
-
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
-
-    Job jobCompleted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("complete")
-            .log("Hello World! from test job!\nGoodbye from test job!")
-            .build();
-
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobCompleted);
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
     // act
     MvcResult response =
@@ -263,65 +326,410 @@ public class JobsControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
+    assertEquals("queued", jobReturned.getStatus());
+    assertEquals("TestJob", jobReturned.getType());
+    assertEquals(
+        Map.of("fail", false, "sleepMs", 2000),
+        objectMapper.readValue(jobReturned.getParams(), Map.class));
+
+    // the job is left in the durable queue for a JobQueueWorker to pick up
+    verify(jobsRepository, times(1)).save(any(Job.class));
+    verifyNoInteractions(jobLogWriter);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job_with_a_timeout() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=2000&timeoutMs=1000")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals("queued", jobReturned.getStatus());
+    assertEquals(1000L, jobReturned.getTimeoutMs());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launching_with_the_dedupe_key_of_an_unfinished_job_returns_that_job()
+      throws Exception {
+
+    // arrange
+
+    Job running = Job.builder().id(12L).status("running").dedupeKey("nightly").build();
+    when(jobsRepository.findByDedupeKey("nightly")).thenReturn(Optional.of(running));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=2000&dedupeKey=nightly")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals(12L, jobReturned.getId());
     assertEquals("running", jobReturned.getStatus());
+    verify(jobsRepository, never()).save(any(Job.class));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launching_with_a_new_dedupe_key_starts_a_job() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=2000&dedupeKey=nightly")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals("queued", jobReturned.getStatus());
+    assertEquals("nightly", jobReturned.getDedupeKey());
+    verify(jobsRepository, times(1)).save(any(Job.class));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_page_through_job_summaries() throws Exception {
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
-    await()
-        .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(4)).save(eq(jobCompleted)));
+    // arrange
+
+    ZonedDateTime createdAt = ZonedDateTime.parse("2025-05-01T12:00:00Z");
+    JobSummary newer =
+        JobSummary.builder()
+            .id(5L)
+            .status("error")
+            .createdAt(createdAt)
+            .createdByEmail("admin@example.org")
+            .build();
+    JobSummary older = JobSummary.builder().id(4L).status("error").createdAt(createdAt).build();
+    when(jobsRepository.findSummariesByStatusBefore(
+            eq("error"), eq(createdAt), eq(9L), eq(PageRequest.of(0, 2))))
+        .thenReturn(List.of(newer, older));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/jobs/summary")
+                    .param("status", "error")
+                    .param("beforeCreatedAt", "2025-05-01T12:00:00Z")
+                    .param("beforeId", "9")
+                    .param("size", "1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    List<?> jobs = (List<?>) json.get("jobs");
+    assertEquals(1, jobs.size());
+    assertEquals("admin@example.org", ((Map<?, ?>) jobs.get(0)).get("createdByEmail"));
+    assertEquals(5, json.get("nextBeforeId"));
+    assertNotNull(json.get("nextBeforeCreatedAt"));
+    verify(jobsRepository, never()).findAll();
   }
 
   @WithMockUser(roles = {"ADMIN"})
   @Test
-  public void admin_can_launch_test_job_that_fails() throws Exception {
+  public void admin_can_get_child_jobs_of_a_job() throws Exception {
 
     // arrange
 
-    User user = currentUserService.getUser();
+    JobSummary child1 = JobSummary.builder().id(8L).status("complete").build();
+    JobSummary child2 = JobSummary.builder().id(9L).status("running").build();
+    when(jobsRepository.findChildSummaries(7L)).thenReturn(List.of(child1, child2));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/children?id=7")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(List.of(child1, child2)),
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_progress_of_several_jobs() throws Exception {
+
+    // arrange
 
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
+    JobProgress running =
+        JobProgress.builder()
+            .id(1L)
             .status("running")
-            .log("Hello World! from test job!")
+            .progressDone(40L)
+            .progressTotal(100L)
+            .counters("{\"rows\":40}")
             .build();
+    JobProgress queued = JobProgress.builder().id(2L).status("queued").build();
+    when(jobsRepository.findProgressByIdIn(List.of(1L, 2L))).thenReturn(List.of(running, queued));
 
-    Job jobFailed =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("error")
-            .log("Hello World! from test job!\nFail!")
-            .build();
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/progress?ids=1,2")).andExpect(status().isOk()).andReturn();
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobFailed);
+    // assert
+    String expectedJson =
+        "[{\"id\":1,\"status\":\"running\",\"progressDone\":40,\"progressTotal\":100,"
+            + "\"counters\":{\"rows\":40},\"updatedAt\":null},"
+            + "{\"id\":2,\"status\":\"queued\",\"progressDone\":null,\"progressTotal\":null,"
+            + "\"counters\":null,\"updatedAt\":null}]";
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+    verify(jobsRepository, never()).findAllById(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_cancel_a_queued_job() throws Exception {
+
+    // arrange
+
+    Job queued = Job.builder().id(3L).status("queued").build();
+    Job cancelled = Job.builder().id(3L).status("cancelled").build();
+    when(jobsRepository.findById(3L)).thenReturn(Optional.of(queued), Optional.of(cancelled));
+    when(jobsRepository.cancelIfQueued(3L)).thenReturn(1);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=3").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals("cancelled", jobReturned.getStatus());
+    verify(jobsRepository, times(1)).cancelIfQueued(3L);
+    verify(jobsRepository, never()).requestCancel(3L);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_not_found_when_cancelling_a_job_that_does_not_exist() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.findById(7L)).thenReturn(Optional.empty());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=7").with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("EntityNotFoundException", json.get("type"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_too_many_requests_when_job_queue_is_full() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.countByStatus("queued")).thenReturn(100L);
 
     // act
     MvcResult response =
         mockMvc
             .perform(post("/api/jobs/launch/testjob?fail=true&sleepMs=4000").with(csrf()))
+            .andExpect(status().isTooManyRequests())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("JobQueueFullException", json.get("type"));
+    verify(jobsRepository, never()).save(any(Job.class));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_compressed_log_as_stored_when_accepting_gzip() throws Exception {
+    // Arrange
+    byte[] gzip = {31, -117, 8, 0};
+    when(jobLogArchiver.findCompressed(6L))
+        .thenReturn(Optional.of(CompressedJobLog.builder().lineCount(40).gzip(gzip).build()));
+
+    // Act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}", 6L).header("Accept-Encoding", "gzip, deflate"))
             .andExpect(status().isOk())
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andExpect(header().string("X-Total-Lines", "40"))
+            .andExpect(header().string("X-Line-Offset", "0"))
             .andReturn();
 
-    String responseString = response.getResponse().getContentAsString();
-    Job jobReturned = objectMapper.readValue(responseString, Job.class);
+    // Assert
+    assertArrayEquals(gzip, response.getResponse().getContentAsByteArray());
+    verify(jobsRepository, never()).findById(6L);
+  }
 
-    assertEquals("running", jobReturned.getStatus());
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_plain_log_when_not_accepting_gzip_or_asking_for_a_range()
+      throws Exception {
+    // Arrange
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(Job.builder().id(6L).build()));
+    ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+      out.write("a\nb".getBytes(StandardCharsets.UTF_8));
+    }
+    when(jobLogArchiver.findCompressed(6L))
+        .thenReturn(
+            Optional.of(CompressedJobLog.builder().lineCount(2).gzip(gzip.toByteArray()).build()));
+
+    // Act & Assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 6L))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Content-Encoding"))
+        .andExpect(content().string("a\nb"));
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}?tail=1", 6L).header("Accept-Encoding", "gzip"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Content-Encoding"))
+        .andExpect(header().string("X-Line-Offset", "1"))
+        .andExpect(content().string("b"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_plain_log_when_log_is_not_compressed() throws Exception {
+    // Arrange
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(Job.builder().id(6L).build()));
+    when(jobLogLinesRepository.countByJobId(6L)).thenReturn(1L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqBetweenOrderBySeqAsc(6L, 0L, 0L))
+        .thenReturn(List.of(JobLogLine.builder().jobId(6L).seq(0).message("only").build()));
+
+    // Act & Assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 6L).header("Accept-Encoding", "gzip"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Content-Encoding"))
+        .andExpect(content().string("only"));
+  }
+
+  @Test
+  public void acceptsGzip_honours_q_values() {
+    assertFalse(JobsController.acceptsGzip(null));
+    assertFalse(JobsController.acceptsGzip("deflate, br"));
+    assertFalse(JobsController.acceptsGzip("gzip;q=0"));
+    assertFalse(JobsController.acceptsGzip("br, GZIP ; q=0.0"));
+    assertTrue(JobsController.acceptsGzip("gzip"));
+    assertTrue(JobsController.acceptsGzip("deflate, gzip;q=0.5"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_job_log_from_the_start() throws Exception {
+    // Arrange
+    when(jobLogStreamer.subscribe(eq(1L), eq(-1L))).thenReturn(new SseEmitter());
+
+    // Act
+    mockMvc.perform(get("/api/jobs/logs/{id}/stream", 1L)).andExpect(status().isOk());
+
+    // Assert
+    verify(jobLogStreamer, times(1)).subscribe(1L, -1L);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_resume_job_log_stream_from_last_event_id() throws Exception {
+    // Arrange
+    when(jobLogStreamer.subscribe(eq(1L), eq(41L))).thenReturn(new SseEmitter());
+
+    // Act
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}/stream", 1L).header("Last-Event-ID", "41"))
+        .andExpect(status().isOk());
+
+    // Assert
+    verify(jobLogStreamer, times(1)).subscribe(1L, 41L);
+  }
+
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_download_job_result() throws Exception {
+    // Arrange
+    when(jobResultStore.find(5L))
+        .thenReturn(
+            Optional.of(
+                JobResult.builder().jobId(5L).contentType("text/csv").sizeBytes(3L).build()));
+    doAnswer(
+            invocation -> {
+              OutputStream out = invocation.getArgument(1);
+              out.write("a,b".getBytes(StandardCharsets.UTF_8));
+              return null;
+            })
+        .when(jobResultStore)
+        .copyTo(eq(5L), any(OutputStream.class));
+
+    // Act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/jobs/result?id=5"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    MvcResult response =
+        mockMvc
+            .perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Type", "text/csv"))
+            .andExpect(header().string("Content-Length", "3"))
+            .andReturn();
+
+    // Assert
+    assertEquals("a,b", response.getResponse().getContentAsString());
+  }
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_gets_not_found_for_job_without_result() throws Exception {
+    // Act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/result?id=6")).andExpect(status().isNotFound()).andReturn();
 
-    await()
-        .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(3)).save(eq(jobFailed)));
+    // Assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("JobResult with id 6 not found", json.get("message"));
+    verify(jobResultStore, never()).copyTo(anyLong(), any());
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_download_job_result() throws Exception {
+    mockMvc.perform(get("/api/jobs/result?id=5")).andExpect(status().isForbidden());
+  }
 }
@@ -8,6 +8,7 @@ import edu.ucsb.cs156.example.repositories.MenuItemReviewsRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -28,6 +29,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -213,6 +215,7 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(menuItemReviewsEdited);
 
                 when(menuItemReviewsRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewsOrig));
+                when(menuItemReviewsRepository.save(eq(menuItemReviewsEdited))).thenReturn(menuItemReviewsEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -315,4 +318,19 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReviews with id 15 not found", json.get("message"));
         }
-}
\ No newline at end of file
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_sorted_by_stars() throws Exception {
+                MenuItemReviews menuItemReviews = MenuItemReviews.builder().id(1L).stars(5).build();
+                returnLastPage(menuItemReviewsRepository, List.of(menuItemReviews));
+
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/all?sort=stars&limit=10"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist(ApiController.NEXT_CURSOR_HEADER))
+                                .andReturn();
+
+                assertEquals(mapper.writeValueAsString(List.of(menuItemReviews)), response.getResponse().getContentAsString());
+                verify(menuItemReviewsRepository, never()).findAll();
+        }
+}
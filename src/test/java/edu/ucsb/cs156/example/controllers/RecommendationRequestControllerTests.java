@@ -8,6 +8,7 @@ import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -28,6 +29,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -246,6 +248,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         String requestBody = mapper.writeValueAsString(RecommendationRequest2);
 
         when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(RecommendationRequest1));
+        when(recommendationRequestRepository.save(eq(RecommendationRequest2))).thenReturn(RecommendationRequest2);
 
         // act
         MvcResult response = mockMvc.perform(
@@ -356,4 +359,19 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         Map<String, Object> json = responseToJson(response);
         assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
         }
-}
\ No newline at end of file
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_a_page_sorted_by_done() throws Exception {
+            RecommendationRequest recommendationRequest = RecommendationRequest.builder().id(1L).professorEmail("prof@ucsb.edu").build();
+            returnLastPage(recommendationRequestRepository, List.of(recommendationRequest));
+
+            MvcResult response = mockMvc.perform(get("/api/recommendationrequest/all?sort=done&limit=10"))
+                            .andExpect(status().isOk())
+                            .andExpect(header().doesNotExist(ApiController.NEXT_CURSOR_HEADER))
+                            .andReturn();
+
+            assertEquals(mapper.writeValueAsString(List.of(recommendationRequest)), response.getResponse().getContentAsString());
+            verify(recommendationRequestRepository, never()).findAll();
+    }
+}
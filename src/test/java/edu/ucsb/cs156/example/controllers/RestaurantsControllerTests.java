@@ -8,6 +8,7 @@ import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -26,6 +27,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -246,6 +248,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(restaurantEdited);
 
                 when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(restaurantOrig));
+                when(restaurantRepository.save(eq(restaurantEdited))).thenReturn(restaurantEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -294,4 +297,19 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 assertEquals("Restaurant with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_sorted_by_id_descending() throws Exception {
+                Restaurant restaurant = Restaurant.builder().id(1L).name("Freebirds").build();
+                returnLastPage(restaurantRepository, List.of(restaurant));
+
+                MvcResult response = mockMvc.perform(get("/api/restaurants/all?sort=id,desc&limit=10"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist(ApiController.NEXT_CURSOR_HEADER))
+                                .andReturn();
+
+                assertEquals(mapper.writeValueAsString(List.of(restaurant)), response.getResponse().getContentAsString());
+                verify(restaurantRepository, never()).findAll();
+        }
 }
@@ -8,6 +8,7 @@ import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -28,6 +29,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -108,6 +110,95 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_second_get_by_id_is_served_from_the_cache() throws Exception {
+
+                // arrange
+
+                UCSBDate ucsbDate = UCSBDate.builder()
+                                .id(7L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findById(eq(7L))).thenReturn(Optional.of(ucsbDate));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates?id=7")).andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates?id=7"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findById(eq(7L));
+                assertEquals(mapper.writeValueAsString(ucsbDate), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_second_get_all_is_served_from_the_cache_until_a_date_is_deleted() throws Exception {
+
+                // arrange
+
+                UCSBDate ucsbDate = UCSBDate.builder()
+                                .id(7L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findAll()).thenReturn(List.of(ucsbDate));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all"))
+                                .andExpect(status().isOk()).andReturn();
+                referenceDataCache.evict(UCSBDate.class, 7L);
+                mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+
+                // assert
+
+                verify(ucsbDateRepository, times(2)).findAll();
+                assertEquals(mapper.writeValueAsString(List.of(ucsbDate)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_get_all_reads_the_dates_again_once_the_table_has_changed_elsewhere() throws Exception {
+
+                // arrange
+
+                UCSBDate ucsbDate = UCSBDate.builder()
+                                .id(7L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                UCSBDate imported = UCSBDate.builder()
+                                .id(8L)
+                                .name("lastDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findAll()).thenReturn(List.of(ucsbDate), List.of(ucsbDate, imported));
+                // e.g. a bulk import, or a change on another instance, between the two requests
+                when(tableVersionService.getVersion(UCSBDate.class)).thenReturn(1L, 2L);
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(2)).findAll();
+                assertEquals("\"2\"", response.getResponse().getHeader("ETag"));
+                assertEquals(mapper.writeValueAsString(List.of(ucsbDate, imported)), response.getResponse().getContentAsString());
+        }
+
         @WithMockUser(roles = { "USER" })
         @Test
         public void test_that_logged_in_user_can_get_by_id_when_the_id_does_not_exist() throws Exception {
@@ -189,6 +280,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDateRepository, times(1)).save(ucsbDate1);
+                verify(referenceDataCache, times(1)).evict(UCSBDate.class, 0L);
                 String expectedJson = mapper.writeValueAsString(ucsbDate1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -218,6 +310,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDateRepository, times(1)).findById(15L);
                 verify(ucsbDateRepository, times(1)).delete(any());
+                verify(referenceDataCache, times(1)).evict(UCSBDate.class, 15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -266,6 +359,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(ucsbDateEdited);
 
                 when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.save(eq(ucsbDateEdited))).thenReturn(ucsbDateEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -279,10 +373,68 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDateRepository, times(1)).findById(67L);
                 verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                verify(referenceDataCache, times(1)).evict(UCSBDate.class, 67L);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_not_modified_for_a_ucsbdate_that_has_not_changed() throws Exception {
+                UCSBDate ucsbDate = UCSBDate.builder().id(7L).name("noon").version(3L).build();
+                when(ucsbDateRepository.findById(eq(7L))).thenReturn(Optional.of(ucsbDate));
+
+                mockMvc.perform(get("/api/ucsbdates?id=7"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"3\""));
+                mockMvc.perform(get("/api/ucsbdates?id=7").header("If-None-Match", "\"3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_the_version_of_a_ucsbdate_they_read() throws Exception {
+                UCSBDate ucsbDateOrig = UCSBDate.builder().id(67L).name("noon").version(3L).build();
+                UCSBDate ucsbDateEdited = UCSBDate.builder().id(67L).name("lunch").version(3L).build();
+                UCSBDate ucsbDateSaved = UCSBDate.builder().id(67L).name("lunch").version(4L).build();
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.save(eq(ucsbDateEdited))).thenReturn(ucsbDateSaved);
+
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(ucsbDateEdited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\""))
+                                .andReturn();
+
+                assertEquals(mapper.writeValueAsString(ucsbDateSaved), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_ucsbdate_that_changed_since_they_read_it() throws Exception {
+                UCSBDate ucsbDate = UCSBDate.builder().id(67L).name("noon").version(4L).build();
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDate));
+
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(ucsbDate))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                verify(ucsbDateRepository, never()).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate has been changed; its current ETag is \"4\"", json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_cannot_edit_ucsbdate_that_does_not_exist() throws Exception {
@@ -315,4 +467,19 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_sorted_by_id_descending() throws Exception {
+                UCSBDate date = UCSBDate.builder().id(1L).quarterYYYYQ("20251").build();
+                returnLastPage(ucsbDateRepository, List.of(date));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?sort=id,desc&limit=10"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist(ApiController.NEXT_CURSOR_HEADER))
+                                .andReturn();
+
+                assertEquals(mapper.writeValueAsString(List.of(date)), response.getResponse().getContentAsString());
+                verify(ucsbDateRepository, never()).findAll();
+        }
 }
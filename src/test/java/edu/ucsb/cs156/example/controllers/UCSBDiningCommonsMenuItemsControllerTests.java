@@ -8,6 +8,7 @@ import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -26,6 +27,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -188,6 +190,7 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
         String requestBody = mapper.writeValueAsString(ucsbDiningCommonsMenuItemEdited);
 
         when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDiningCommonsMenuItemOrig));
+        when(ucsbDiningCommonsMenuItemRepository.save(eq(ucsbDiningCommonsMenuItemEdited))).thenReturn(ucsbDiningCommonsMenuItemEdited);
 
         // act
         MvcResult response = mockMvc.perform(
@@ -283,4 +286,19 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
         Map<String, Object> json = responseToJson(response);
         assertEquals("UCSBDiningCommonsMenuItem with id 15 not found", json.get("message"));
     }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_a_page_sorted_by_id_descending() throws Exception {
+            UCSBDiningCommonsMenuItem diningCommonsMenuItem = UCSBDiningCommonsMenuItem.builder().id(1L).station("Grill").build();
+            returnLastPage(ucsbDiningCommonsMenuItemRepository, List.of(diningCommonsMenuItem));
+
+            MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all?sort=id,desc&limit=10"))
+                            .andExpect(status().isOk())
+                            .andExpect(header().doesNotExist(ApiController.NEXT_CURSOR_HEADER))
+                            .andReturn();
+
+            assertEquals(mapper.writeValueAsString(List.of(diningCommonsMenuItem)), response.getResponse().getContentAsString());
+            verify(ucsbDiningCommonsMenuItemRepository, never()).findAll();
+    }
 }
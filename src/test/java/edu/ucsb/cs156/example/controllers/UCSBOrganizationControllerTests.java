@@ -27,6 +27,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -108,6 +109,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 when(ucsbOrganizationRepository.findById(eq("robotics")))
                 .thenReturn(Optional.of(orig));
+                when(ucsbOrganizationRepository.save(eq(edited))).thenReturn(edited);
 
                 MvcResult response = mockMvc.perform(
                         put("/api/ucsborganizations?id=robotics")
@@ -120,6 +122,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 verify(ucsbOrganizationRepository, times(1)).findById("robotics");
                 verify(ucsbOrganizationRepository, times(1)).save(edited);
+                verify(referenceDataCache, times(1)).evict(UCSBOrganization.class, "robotics");
 
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
@@ -208,6 +211,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andReturn();
 
                 verify(ucsbOrganizationRepository, times(1)).save(newOrg);
+                verify(referenceDataCache, times(1)).evict(UCSBOrganization.class, "codesb");
                 String expectedJson = mapper.writeValueAsString(newOrg);
                 assertEquals(expectedJson, res.getResponse().getContentAsString());
         }
@@ -269,6 +273,28 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, result.getResponse().getContentAsString());
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_second_get_by_id_is_served_from_the_cache() throws Exception {
+                UCSBOrganization org = UCSBOrganization.builder()
+                .orgCode("ieee")
+                .orgTranslationShort("IEEE")
+                .build();
+
+                when(ucsbOrganizationRepository.findById(eq("ieee")))
+                .thenReturn(Optional.of(org));
+
+                mockMvc.perform(get("/api/ucsborganizations").param("orgCode", "ieee"))
+                                        .andExpect(status().isOk());
+                MvcResult result = mockMvc.perform(get("/api/ucsborganizations")
+                                        .param("orgCode", "ieee"))
+                                        .andExpect(status().isOk())
+                                        .andReturn();
+
+                verify(ucsbOrganizationRepository, times(1)).findById("ieee");
+                assertEquals(mapper.writeValueAsString(org), result.getResponse().getContentAsString());
+        }
+
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_get_404_when_id_not_found() throws Exception {
@@ -327,6 +353,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbOrganizationRepository, times(1)).findById("robotics");
                 verify(ucsbOrganizationRepository, times(1)).delete(org);
+                verify(referenceDataCache, times(1)).evict(UCSBOrganization.class, "robotics");
 
                 Map<String,Object> json = responseToJson(result);
                 assertEquals("UCSBOrganization with id robotics deleted", json.get("message"));
@@ -353,4 +380,19 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 assertEquals("EntityNotFoundException", json.get("type"));
                 assertEquals("UCSBOrganization with id nope not found", json.get("message"));
         }
-}
\ No newline at end of file
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_sorted_by_orgTranslationShort() throws Exception {
+                UCSBOrganization organization = UCSBOrganization.builder().orgCode("ZPR").build();
+                returnLastPage(ucsbOrganizationRepository, List.of(organization));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all?sort=orgTranslationShort&limit=10"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist(ApiController.NEXT_CURSOR_HEADER))
+                                .andReturn();
+
+                assertEquals(mapper.writeValueAsString(List.of(organization)), response.getResponse().getContentAsString());
+                verify(ucsbOrganizationRepository, never()).findAll();
+        }
+}
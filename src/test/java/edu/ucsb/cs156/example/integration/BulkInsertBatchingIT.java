@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Checks that saveAll of many new entities reaches the database in JDBC batches, by counting the
+ * statements Hibernate prepares. Ids come from a pooled sequence, so Hibernate need not run each
+ * insert on its own to learn the id, as it did with IDENTITY ids; batched, it sends batch_size
+ * inserts per statement.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("integration")
+public class BulkInsertBatchingIT {
+  private static final int ROWS = 500;
+
+  // allocationSize of the sequence of UCSBDiningCommonsMenuItem
+  private static final int IDS_PER_SEQUENCE_CALL = 50;
+
+  // the pooled optimizer's extra first sequence call, and the update of the table version
+  private static final int OTHER_STATEMENTS = 2;
+
+  @Autowired UCSBDiningCommonsMenuItemRepository repository;
+
+  @Autowired TransactionTemplate transactionTemplate;
+
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  @PersistenceContext EntityManager entityManager;
+
+  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+  int batchSize;
+
+  @Test
+  public void saveAll_sends_the_inserts_in_batches() {
+    Statistics statistics = insert(batchSize);
+
+    assertEquals(ROWS, statistics.getEntityInsertCount());
+    long batches = (ROWS + batchSize - 1) / batchSize;
+    long sequenceCalls = (ROWS + IDS_PER_SEQUENCE_CALL - 1) / IDS_PER_SEQUENCE_CALL;
+    long statements = statistics.getPrepareStatementCount();
+    assertTrue(
+        statements <= batches + sequenceCalls + OTHER_STATEMENTS,
+        "%d statements for %d rows in batches of %d".formatted(statements, ROWS, batchSize));
+  }
+
+  @Test
+  public void without_batching_every_insert_is_a_statement_of_its_own() {
+    Statistics statistics = insert(1);
+
+    assertEquals(ROWS, statistics.getEntityInsertCount());
+    assertTrue(statistics.getPrepareStatementCount() >= ROWS);
+  }
+
+  // inserts the rows in one transaction, sending at most jdbcBatchSize inserts per statement
+  private Statistics insert(int jdbcBatchSize) {
+    List<UCSBDiningCommonsMenuItem> items = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      items.add(
+          UCSBDiningCommonsMenuItem.builder()
+              .diningCommonsCode("ortega")
+              .name("Item " + i)
+              .station("Grill")
+              .build());
+    }
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+          repository.saveAll(items);
+        });
+    return statistics;
+  }
+}
@@ -0,0 +1,244 @@
+package edu.ucsb.cs156.example.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.services.bulk.DataFormat;
+import edu.ucsb.cs156.example.services.bulk.EntityTable;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobLogWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class ExportJobTests {
+
+  @TempDir Path tempDir;
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+  private final PlatformTransactionManager transactionManager =
+      mock(PlatformTransactionManager.class);
+
+  private final JobLogWriter jobLogWriter = mock(JobLogWriter.class);
+
+  private final PreparedStatement ps = mock(PreparedStatement.class);
+
+  private final JobContext ctx =
+      spy(new JobContext(null, jobLogWriter, Job.builder().id(17L).build()));
+
+  // what the job stored as its result, read while the job still had the file open
+  private String savedContentType;
+
+  private byte[] savedData;
+
+  private final ObjectMapper mapper =
+      JsonMapper.builder()
+          .findAndAddModules()
+          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+          .build();
+
+  private final LocalDateTime ldt = LocalDateTime.parse("2022-01-03T00:00:00");
+
+  private Path directory;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    directory = tempDir.resolve("exports");
+    doAnswer(
+            invocation -> {
+              savedContentType = invocation.getArgument(0);
+              InputStream data = invocation.getArgument(1);
+              long sizeBytes = invocation.getArgument(2);
+              savedData = data.readAllBytes();
+              assertEquals(sizeBytes, savedData.length);
+              return null;
+            })
+        .when(ctx)
+        .saveResult(anyString(), any(InputStream.class), anyLong());
+    Connection connection = mock(Connection.class);
+    when(connection.prepareStatement(
+            "SELECT id, quarteryyyyq, name, local_date_time FROM ucsbdates ORDER BY id",
+            ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY))
+        .thenReturn(ps);
+    List<ResultSet> rows =
+        List.of(row(1L, "20221", "noon", ldt), row(2L, "20222", "lunch, late", null));
+
+    when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ucsbdates", Long.class))
+        .thenReturn(2L);
+    doAnswer(
+            invocation -> {
+              PreparedStatementCreator select = invocation.getArgument(0);
+              assertEquals(ps, select.createPreparedStatement(connection));
+              RowCallbackHandler handler = invocation.getArgument(1);
+              for (ResultSet rs : rows) {
+                handler.processRow(rs);
+              }
+              return null;
+            })
+        .when(jdbcTemplate)
+        .query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+  }
+
+  private static ResultSet row(Object... values) throws Exception {
+    ResultSet rs = mock(ResultSet.class);
+    for (int i = 0; i < values.length; i++) {
+      doReturn(values[i]).when(rs).getObject(eq(i + 1), any(Class.class));
+    }
+    return rs;
+  }
+
+  private ExportJob exportJob(DataFormat format, boolean gzip, ObjectMapper mapper) {
+    return ExportJob.builder()
+        .table(EntityTable.of(UCSBDate.class))
+        .format(format)
+        .gzip(gzip)
+        .directory(directory)
+        .jdbcTemplate(jdbcTemplate)
+        .transactionTemplate(new TransactionTemplate(transactionManager))
+        .mapper(mapper)
+        .fetchSize(100)
+        .build();
+  }
+
+  private List<String> loggedMessages() {
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, atLeastOnce()).append(lines.capture());
+    return lines.getAllValues().stream().map(JobLogLine::getMessage).toList();
+  }
+
+  private List<Path> exportedFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.toList();
+    }
+  }
+
+  @Test
+  public void exports_rows_as_csv_from_a_cursor() throws Exception {
+    exportJob(DataFormat.CSV, false, mapper).accept(ctx);
+
+    assertEquals("text/csv", savedContentType);
+    assertEquals(
+        "id,quarterYYYYQ,name,localDateTime\r\n"
+            + "1,20221,noon,2022-01-03T00:00:00\r\n"
+            + "2,20222,\"lunch, late\",\r\n",
+        new String(savedData, StandardCharsets.UTF_8));
+    // the job's result is the only copy; the scratch file is gone
+    assertTrue(exportedFiles().isEmpty());
+    verify(ps).setFetchSize(100);
+    verify(transactionManager).commit(any());
+    assertEquals(
+        List.of(
+            "Exporting ucsbdates as text/csv",
+            "Exported 2 rows; download from /api/bulk/export?jobId=17"),
+        loggedMessages());
+    assertEquals(2L, ctx.getProgressDone());
+    assertEquals(2L, ctx.getProgressTotal());
+  }
+
+  @Test
+  public void reads_each_column_as_the_type_of_its_field() throws Exception {
+    ResultSet rs = row(1L, "20221", "noon", ldt);
+    doAnswer(
+            invocation -> {
+              RowCallbackHandler handler = invocation.getArgument(1);
+              handler.processRow(rs);
+              return null;
+            })
+        .when(jdbcTemplate)
+        .query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+    exportJob(DataFormat.CSV, false, mapper).accept(ctx);
+
+    verify(rs).getObject(1, Long.class);
+    verify(rs).getObject(2, String.class);
+    verify(rs).getObject(3, String.class);
+    verify(rs).getObject(4, LocalDateTime.class);
+  }
+
+  @Test
+  public void exports_rows_as_gzipped_ndjson() throws Exception {
+    exportJob(DataFormat.JSON, true, mapper).accept(ctx);
+
+    assertEquals("application/gzip", savedContentType);
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(savedData))) {
+      assertEquals(
+          "{\"id\":1,\"quarterYYYYQ\":\"20221\",\"name\":\"noon\","
+              + "\"localDateTime\":\"2022-01-03T00:00:00\"}\n"
+              + "{\"id\":2,\"quarterYYYYQ\":\"20222\",\"name\":\"lunch, late\","
+              + "\"localDateTime\":null}\n",
+          new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    assertTrue(exportedFiles().isEmpty());
+  }
+
+  @Test
+  public void exports_uncompressed_json_as_ndjson() throws Exception {
+    exportJob(DataFormat.JSON, false, mapper).accept(ctx);
+
+    assertEquals("application/x-ndjson", savedContentType);
+  }
+
+  @Test
+  public void leaves_no_file_behind_when_writing_fails() throws Exception {
+    ObjectMapper failingMapper = spy(mapper);
+    doThrow(new JsonMappingException(null, "cannot write"))
+        .when(failingMapper)
+        .writeValueAsString(any());
+
+    UncheckedIOException e =
+        assertThrows(
+            UncheckedIOException.class,
+            () -> exportJob(DataFormat.JSON, false, failingMapper).accept(ctx));
+
+    assertEquals("cannot write", e.getCause().getMessage());
+    assertTrue(exportedFiles().isEmpty());
+    verify(ctx, never()).saveResult(anyString(), any(InputStream.class), anyLong());
+  }
+
+  @Test
+  public void leaves_no_file_behind_when_the_result_cannot_be_stored() throws Exception {
+    doThrow(new IllegalStateException("no job service"))
+        .when(ctx)
+        .saveResult(anyString(), any(InputStream.class), anyLong());
+
+    assertThrows(
+        IllegalStateException.class, () -> exportJob(DataFormat.CSV, false, mapper).accept(ctx));
+
+    assertTrue(exportedFiles().isEmpty());
+  }
+}
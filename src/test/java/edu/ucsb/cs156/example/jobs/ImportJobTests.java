@@ -0,0 +1,349 @@
+package edu.ucsb.cs156.example.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.MenuItemReviews;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.services.IdSequenceService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.services.bulk.DataFormat;
+import edu.ucsb.cs156.example.services.bulk.EntityTable;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobLogWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class ImportJobTests {
+
+  @TempDir Path tempDir;
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+  private final PlatformTransactionManager transactionManager =
+      mock(PlatformTransactionManager.class);
+
+  private final JobLogWriter jobLogWriter = mock(JobLogWriter.class);
+
+  private final TableVersionService tableVersionService = mock(TableVersionService.class);
+
+  private final IdSequenceService idSequenceService = mock(IdSequenceService.class);
+
+  // the next id that idSequenceService reserves
+  private long nextId = 100;
+
+  private final JobContext ctx =
+      new JobContext(null, jobLogWriter, Job.builder().id(5L).build());
+
+  // the rows of every batchUpdate call, as lists of insert values
+  private final List<List<List<Object>>> batches = new ArrayList<>();
+
+  @BeforeEach
+  public void setup() {
+    when(jdbcTemplate.batchUpdate(
+            anyString(),
+            anyCollection(),
+            anyInt(),
+            any(ParameterizedPreparedStatementSetter.class)))
+        .thenAnswer(
+            invocation -> {
+              List<List<Object>> rows = new ArrayList<>();
+              for (Object row : (Collection<?>) invocation.getArgument(1)) {
+                rows.add(Arrays.asList(((ImportJob.PendingRow) row).values()));
+              }
+              batches.add(rows);
+              return new int[0][];
+            });
+    when(idSequenceService.reserve(any(EntityTable.class), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              int count = invocation.getArgument(1);
+              nextId += count;
+              return LongStream.range(nextId - count, nextId).toArray();
+            });
+  }
+
+  private ImportJob importJob(Class<?> entityClass, DataFormat format, Path file) {
+    return ImportJob.builder()
+        .table(EntityTable.of(entityClass))
+        .format(format)
+        .file(file)
+        .jdbcTemplate(jdbcTemplate)
+        .transactionTemplate(new TransactionTemplate(transactionManager))
+        .tableVersionService(tableVersionService)
+        .idSequenceService(idSequenceService)
+        .mapper(JsonMapper.builder().findAndAddModules().build())
+        .batchSize(1)
+        .chunkSize(2)
+        .build();
+  }
+
+  private Path file(String contents) throws Exception {
+    return Files.writeString(tempDir.resolve("upload"), contents);
+  }
+
+  private List<String> loggedMessages() {
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, atLeastOnce()).append(lines.capture());
+    return lines.getAllValues().stream().map(JobLogLine::getMessage).toList();
+  }
+
+  @Test
+  public void inserts_csv_rows_in_batches_with_one_transaction_per_chunk() throws Exception {
+    Path file =
+        file(
+            "id,diningCommonsCode,name,station\n"
+                + "99,ortega,Pizza,Grill\n"
+                + ",portola,Salad,Greens\n"
+                + ",carrillo,Tacos,Mexican\n");
+    long size = Files.size(file);
+
+    importJob(UCSBDiningCommonsMenuItem.class, DataFormat.CSV, file).accept(ctx);
+
+    assertEquals(
+        List.of(
+            List.of(
+                List.of(100L, "ortega", "Pizza", "Grill"),
+                List.of(101L, "portola", "Salad", "Greens")),
+            List.of(List.of(102L, "carrillo", "Tacos", "Mexican"))),
+        batches);
+    verify(idSequenceService).reserve(any(EntityTable.class), eq(2));
+    verify(idSequenceService).reserve(any(EntityTable.class), eq(1));
+    verify(jdbcTemplate, times(2))
+        .batchUpdate(
+            eq(
+                "INSERT INTO ucsbdiningcommonsmenuitems (id, dining_commons_code, name, station)"
+                    + " VALUES (?, ?, ?, ?)"),
+            anyCollection(),
+            eq(1),
+            any(ParameterizedPreparedStatementSetter.class));
+    verify(transactionManager, times(2)).commit(any());
+    verify(tableVersionService, times(2)).increment(UCSBDiningCommonsMenuItem.class);
+    assertEquals(
+        List.of(
+            "Importing CSV into ucsbdiningcommonsmenuitems",
+            "Imported 3 rows into ucsbdiningcommonsmenuitems; rejected 0 rows"),
+        loggedMessages());
+    assertEquals(Map.of("imported", 3L), ctx.getCounters());
+    assertEquals(size, ctx.getProgressDone());
+    assertEquals(size, ctx.getProgressTotal());
+    assertFalse(Files.exists(file));
+  }
+
+  @Test
+  public void binds_batch_values_to_the_statement() throws Exception {
+    Path file = file("diningCommonsCode,name,station\nortega,Pizza,Grill\n");
+    PreparedStatement ps = mock(PreparedStatement.class);
+    reset(jdbcTemplate);
+    when(jdbcTemplate.batchUpdate(
+            anyString(),
+            anyCollection(),
+            anyInt(),
+            any(ParameterizedPreparedStatementSetter.class)))
+        .thenAnswer(
+            invocation -> {
+              ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+              for (Object row : (Collection<?>) invocation.getArgument(1)) {
+                setter.setValues(ps, row);
+              }
+              return new int[0][];
+            });
+
+    importJob(UCSBDiningCommonsMenuItem.class, DataFormat.CSV, file).accept(ctx);
+
+    verify(ps).setObject(1, 100L);
+    verify(ps).setString(2, "ortega");
+    verify(ps).setString(3, "Pizza");
+    verify(ps).setString(4, "Grill");
+  }
+
+  @Test
+  public void rejects_csv_rows_that_do_not_fit_the_entity() throws Exception {
+    Path file =
+        file(
+            "itemId,reviewerEmail,stars,comments,dateReviewed\n"
+                + "1,a@ucsb.edu,4,tasty,2022-01-01T00:00:00\n"
+                + "2,b@ucsb.edu,lots,meh,2022-01-01T00:00:00\n"
+                + "3,c@ucsb.edu\n"
+                + "4,d@ucsb.edu,5,,2022-01-02T00:00:00\n");
+
+    importJob(MenuItemReviews.class, DataFormat.CSV, file).accept(ctx);
+
+    assertEquals(
+        List.of(
+            List.of(
+                Arrays.asList(
+                    100L,
+                    1L,
+                    "a@ucsb.edu",
+                    4,
+                    "tasty",
+                    LocalDateTime.parse("2022-01-01T00:00:00")),
+                Arrays.asList(
+                    101L,
+                    4L,
+                    "d@ucsb.edu",
+                    5,
+                    null,
+                    LocalDateTime.parse("2022-01-02T00:00:00")))),
+        batches);
+    List<String> messages = loggedMessages();
+    assertEquals(4, messages.size());
+    assertTrue(messages.get(1).startsWith("Row 2 rejected: "), messages.get(1));
+    assertTrue(messages.get(1).contains("lots"), messages.get(1));
+    assertEquals("Row 3 rejected: expected 5 fields, found 2", messages.get(2));
+    assertEquals("Imported 2 rows into menuitemreviews; rejected 2 rows", messages.get(3));
+    assertEquals(Map.of("imported", 2L, "rejected", 2L), ctx.getCounters());
+  }
+
+  @Test
+  public void rejects_rows_without_an_assigned_id() throws Exception {
+    Path file = file("code,name,hasSackMeal\nortega,Ortega,true\n,Nameless,false\n");
+
+    importJob(UCSBDiningCommons.class, DataFormat.CSV, file).accept(ctx);
+
+    assertEquals(
+        List.of(List.of(Arrays.asList("ortega", "Ortega", true, false, false, null, null))),
+        batches);
+    assertEquals("Row 2 rejected: missing code", loggedMessages().get(1));
+    verify(idSequenceService, never()).reserve(any(EntityTable.class), anyInt());
+  }
+
+  @Test
+  public void reads_a_json_array_and_rejects_unknown_fields() throws Exception {
+    Path file =
+        file(
+            "[{\"orgCode\":\"SKY\",\"orgTranslationShort\":\"Skydiving\","
+                + "\"orgTranslation\":\"Skydiving Club\",\"inactive\":false},"
+                + " 5,"
+                + " {\"orgCode\":\"X\",\"color\":\"red\"}]");
+
+    importJob(UCSBOrganization.class, DataFormat.JSON, file).accept(ctx);
+
+    assertEquals(
+        List.of(List.of(List.of("SKY", "Skydiving", "Skydiving Club", false))), batches);
+    List<String> messages = loggedMessages();
+    assertEquals("Importing JSON into ucsborganizations", messages.get(0));
+    assertEquals("Row 2 rejected: not a JSON object", messages.get(1));
+    assertTrue(messages.get(2).startsWith("Row 3 rejected: Unrecognized field \"color\""));
+    assertEquals("Imported 1 rows into ucsborganizations; rejected 2 rows", messages.get(3));
+  }
+
+  @Test
+  public void reads_one_json_object_per_line() throws Exception {
+    Path file =
+        file(
+            "{\"id\":9,\"name\":\"Habit\",\"description\":\"Burgers\"}\n"
+                + "{\"name\":\"Freebirds\",\"description\":\"Burritos\"}\n");
+
+    importJob(Restaurant.class, DataFormat.JSON, file).accept(ctx);
+
+    assertEquals(
+        List.of(
+            List.of(List.of(100L, "Habit", "Burgers"), List.of(101L, "Freebirds", "Burritos"))),
+        batches);
+  }
+
+  @Test
+  public void finds_the_rows_the_database_refuses_one_at_a_time() throws Exception {
+    Path file = file("name,description\nHabit,Burgers\nHabit,Again\n");
+    doThrow(new DuplicateKeyException("batch failed"))
+        .when(jdbcTemplate)
+        .batchUpdate(
+            anyString(),
+            anyCollection(),
+            anyInt(),
+            any(ParameterizedPreparedStatementSetter.class));
+    when(jdbcTemplate.update(anyString(), any(), any(), any()))
+        .thenReturn(1)
+        .thenThrow(
+            new DuplicateKeyException(
+                "duplicate", new SQLException("Unique index or primary key violation")));
+
+    importJob(Restaurant.class, DataFormat.CSV, file).accept(ctx);
+
+    verify(jdbcTemplate)
+        .update(
+            "INSERT INTO restaurants (id, name, description) VALUES (?, ?, ?)",
+            100L,
+            "Habit",
+            "Burgers");
+    // the chunk and the second row are rolled back
+    verify(transactionManager, times(2)).rollback(any());
+    verify(tableVersionService, times(1)).increment(Restaurant.class);
+    assertEquals(
+        List.of(
+            "Importing CSV into restaurants",
+            "Row 2 rejected: Unique index or primary key violation",
+            "Imported 1 rows into restaurants; rejected 1 rows"),
+        loggedMessages());
+  }
+
+  @Test
+  public void logs_only_the_first_rejected_rows() throws Exception {
+    StringBuilder csv = new StringBuilder("name,description\n");
+    for (int i = 0; i < ImportJob.MAX_LOGGED_REJECTS + 2; i++) {
+      csv.append("no description\n");
+    }
+    Path file = file(csv.toString());
+
+    importJob(Restaurant.class, DataFormat.CSV, file).accept(ctx);
+
+    List<String> messages = loggedMessages();
+    assertEquals(ImportJob.MAX_LOGGED_REJECTS + 3, messages.size());
+    assertEquals("... 2 more rejected rows", messages.get(messages.size() - 2));
+    assertEquals(
+        "Imported 0 rows into restaurants; rejected 102 rows", messages.get(messages.size() - 1));
+    assertTrue(batches.isEmpty());
+  }
+
+  @Test
+  public void imports_nothing_from_an_empty_file() throws Exception {
+    Path csv = file("");
+
+    importJob(Restaurant.class, DataFormat.CSV, csv).accept(ctx);
+
+    Path json = file("");
+    importJob(Restaurant.class, DataFormat.JSON, json).accept(ctx);
+
+    assertTrue(batches.isEmpty());
+    assertEquals(
+        List.of(
+            "Importing CSV into restaurants",
+            "Imported 0 rows into restaurants; rejected 0 rows",
+            "Importing JSON into restaurants",
+            "Imported 0 rows into restaurants; rejected 0 rows"),
+        loggedMessages());
+  }
+}
@@ -0,0 +1,146 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class EntityStreamerTests {
+
+  @Mock private EntityManager entityManager;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  @Mock private CriteriaBuilder cb;
+
+  @Mock private CriteriaQuery<UCSBDate> criteriaQuery;
+
+  @Mock private Root<UCSBDate> root;
+
+  @Mock private TypedQuery<UCSBDate> query;
+
+  @InjectMocks private EntityStreamer entityStreamer;
+
+  private final UCSBDate date1 =
+      UCSBDate.builder()
+          .id(1L)
+          .quarterYYYYQ("20221")
+          .name("noon")
+          .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+          .build();
+
+  private final UCSBDate date2 =
+      UCSBDate.builder().id(2L).quarterYYYYQ("20222").name("lunch").build();
+
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(
+        entityStreamer,
+        "mapper",
+        JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build());
+    ReflectionTestUtils.setField(entityStreamer, "fetchSize", 50);
+
+    when(entityManager.getCriteriaBuilder()).thenReturn(cb);
+    when(cb.createQuery(UCSBDate.class)).thenReturn(criteriaQuery);
+    when(criteriaQuery.from(UCSBDate.class)).thenReturn(root);
+    when(entityManager.createQuery(criteriaQuery)).thenReturn(query);
+    when(query.setHint(any(), any())).thenReturn(query);
+    when(query.getResultStream())
+        .thenReturn(Stream.of(date1, date2).onClose(() -> closed.set(true)));
+  }
+
+  private String write(EntityStreamer.Format format) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    entityStreamer.stream(UCSBDate.class, format).writeTo(out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void writes_entities_as_a_json_array() throws Exception {
+    assertEquals(
+        "[{\"id\":1,\"quarterYYYYQ\":\"20221\",\"name\":\"noon\","
+            + "\"localDateTime\":\"2022-01-03T00:00:00\"},"
+            + "{\"id\":2,\"quarterYYYYQ\":\"20222\",\"name\":\"lunch\",\"localDateTime\":null}]",
+        write(EntityStreamer.Format.JSON));
+  }
+
+  @Test
+  public void writes_entities_as_ndjson() throws Exception {
+    assertEquals(
+        "{\"id\":1,\"quarterYYYYQ\":\"20221\",\"name\":\"noon\","
+            + "\"localDateTime\":\"2022-01-03T00:00:00\"}\n"
+            + "{\"id\":2,\"quarterYYYYQ\":\"20222\",\"name\":\"lunch\",\"localDateTime\":null}\n",
+        write(EntityStreamer.Format.NDJSON));
+  }
+
+  @Test
+  public void writes_an_empty_array_for_an_empty_table() throws Exception {
+    when(query.getResultStream()).thenReturn(Stream.empty());
+
+    assertEquals("[]", write(EntityStreamer.Format.JSON));
+  }
+
+  @Test
+  public void reads_from_a_cursor_in_a_read_only_transaction_and_detaches_each_entity()
+      throws Exception {
+    write(EntityStreamer.Format.NDJSON);
+
+    verify(criteriaQuery).select(root);
+    verify(query).setHint(HibernateHints.HINT_FETCH_SIZE, 50);
+    verify(query).setHint(HibernateHints.HINT_READ_ONLY, true);
+    verify(transactionManager).getTransaction(argThat(definition -> definition.isReadOnly()));
+    verify(transactionManager).commit(any());
+    verify(entityManager).detach(date1);
+    verify(entityManager).detach(date2);
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void rolls_back_and_rethrows_when_writing_fails() throws Exception {
+    ObjectMapper mapper = mock(ObjectMapper.class);
+    ObjectWriter writer = mock(ObjectWriter.class);
+    when(mapper.writerFor(UCSBDate.class)).thenReturn(writer);
+    when(writer.writeValueAsBytes(any())).thenThrow(new JsonMappingException(null, "cannot write"));
+    ReflectionTestUtils.setField(entityStreamer, "mapper", mapper);
+
+    IOException e = assertThrows(IOException.class, () -> write(EntityStreamer.Format.JSON));
+
+    assertEquals("cannot write", e.getMessage());
+    verify(transactionManager).rollback(any());
+    verify(entityManager, never()).detach(any());
+    assertTrue(closed.get());
+  }
+}
@@ -0,0 +1,66 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.services.bulk.EntityTable;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class IdSequenceServiceTests {
+
+  private static final String NEXT_VALUE_SQL = "select nextval('ucsbdates_seq')";
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private EntityManagerFactory entityManagerFactory;
+
+  @InjectMocks private IdSequenceService idSequenceService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    SessionFactoryImplementor sessionFactory =
+        mock(SessionFactoryImplementor.class, RETURNS_DEEP_STUBS);
+    when(sessionFactory
+            .getJdbcServices()
+            .getDialect()
+            .getSequenceSupport()
+            .getSequenceNextValString("ucsbdates_seq"))
+        .thenReturn(NEXT_VALUE_SQL);
+    when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+  }
+
+  @Test
+  public void reserves_blocks_of_ids_that_end_at_each_sequence_value() {
+    when(jdbcTemplate.queryForObject(NEXT_VALUE_SQL, Long.class)).thenReturn(150L, 200L, 250L);
+    EntityTable table = EntityTable.of(UCSBDate.class);
+
+    long[] first = idSequenceService.reserve(table, 3);
+    long[] second = idSequenceService.reserve(table, 60);
+
+    assertArrayEquals(new long[] {101, 102, 103}, first);
+    long[] expected = new long[60];
+    for (int i = 0; i < 60; i++) {
+      expected[i] = 151 + i;
+    }
+    assertArrayEquals(expected, second);
+    verify(jdbcTemplate, times(3)).queryForObject(NEXT_VALUE_SQL, Long.class);
+    // the dialect is asked for the SQL once per sequence
+    verify(entityManagerFactory, times(1)).unwrap(SessionFactoryImplementor.class);
+  }
+
+  @Test
+  public void reserves_nothing_for_no_rows() {
+    assertArrayEquals(
+        new long[0], idSequenceService.reserve(EntityTable.of(UCSBDate.class), 0));
+    verifyNoInteractions(jdbcTemplate);
+  }
+}
@@ -5,9 +5,19 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.CompressedJobLog;
+import edu.ucsb.cs156.example.models.JobLogRange;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogArchiver;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -16,6 +26,10 @@ public class JobLogsServiceTests {
 
   @Mock private JobsRepository jobRepository;
 
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogArchiver jobLogArchiver;
+
   @InjectMocks private JobService jobService;
 
   @BeforeEach
@@ -23,6 +37,34 @@ public class JobLogsServiceTests {
     MockitoAnnotations.openMocks(this);
   }
 
+  private static byte[] gzip(String log) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(log.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  void test_getJobLogs_reassembles_log_lines() {
+    // Arrange
+    Long jobId = 4L;
+    Job job = Job.builder().id(jobId).build();
+    job.setLog("legacy log is ignored when lines exist");
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(jobId).seq(0).message("line one").build(),
+                JobLogLine.builder().jobId(jobId).seq(1).message("line two").build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("line one\nline two", result);
+  }
+
   @Test
   void test_getJobLogs_with_log() {
     // Arrange
@@ -62,4 +104,156 @@ public class JobLogsServiceTests {
     // Act & Assert
     assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogs(jobId));
   }
+
+  private JobLogLine line(long jobId, long seq) {
+    return JobLogLine.builder().jobId(jobId).seq(seq).message("line " + seq).build();
+  }
+
+  @Test
+  void test_getJobLogRange_offset_and_limit_reads_only_requested_lines() {
+    // Arrange
+    Long jobId = 5L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(1000L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqBetweenOrderBySeqAsc(jobId, 10L, 12L))
+        .thenReturn(List.of(line(jobId, 10), line(jobId, 11), line(jobId, 12)));
+
+    // Act
+    JobLogRange result = jobService.getJobLogRange(jobId, 10L, 3L, null);
+
+    // Assert
+    assertEquals(10L, result.getOffset());
+    assertEquals(1000L, result.getTotalLines());
+    assertEquals("line 10\nline 11\nline 12", result.getLog());
+    verify(jobLogLinesRepository, never()).findAllByJobIdOrderBySeqAsc(anyLong());
+  }
+
+  @Test
+  void test_getJobLogRange_tail_returns_last_lines() {
+    // Arrange
+    Long jobId = 5L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(100L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqBetweenOrderBySeqAsc(jobId, 98L, 99L))
+        .thenReturn(List.of(line(jobId, 98), line(jobId, 99)));
+
+    // Act
+    JobLogRange result = jobService.getJobLogRange(jobId, 3L, 1L, 2L);
+
+    // Assert
+    assertEquals(98L, result.getOffset());
+    assertEquals(100L, result.getTotalLines());
+    assertEquals("line 98\nline 99", result.getLog());
+  }
+
+  @Test
+  void test_getJobLogRange_tail_longer_than_log_returns_whole_log() {
+    // Arrange
+    Long jobId = 5L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(2L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqBetweenOrderBySeqAsc(jobId, 0L, 1L))
+        .thenReturn(List.of(line(jobId, 0), line(jobId, 1)));
+
+    // Act
+    JobLogRange result = jobService.getJobLogRange(jobId, null, null, 50L);
+
+    // Assert
+    assertEquals(0L, result.getOffset());
+    assertEquals("line 0\nline 1", result.getLog());
+  }
+
+  @Test
+  void test_getJobLogRange_offset_past_end_returns_no_lines() {
+    // Arrange
+    Long jobId = 5L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(2L);
+
+    // Act
+    JobLogRange result = jobService.getJobLogRange(jobId, 7L, null, null);
+
+    // Assert
+    assertEquals(2L, result.getOffset());
+    assertEquals(2L, result.getTotalLines());
+    assertEquals("", result.getLog());
+    verify(jobLogLinesRepository, never())
+        .findAllByJobIdAndSeqBetweenOrderBySeqAsc(anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  void test_getJobLogRange_falls_back_to_legacy_log_column() {
+    // Arrange
+    Long jobId = 6L;
+    Job job = Job.builder().id(jobId).log("a\nb\nc").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(0L);
+
+    // Act
+    JobLogRange result = jobService.getJobLogRange(jobId, 1L, 5L, null);
+
+    // Assert
+    assertEquals(1L, result.getOffset());
+    assertEquals(3L, result.getTotalLines());
+    assertEquals("b\nc", result.getLog());
+  }
+
+  @Test
+  void test_getJobLogRange_with_no_log_at_all() {
+    // Arrange
+    Long jobId = 7L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+
+    // Act
+    JobLogRange result = jobService.getJobLogRange(jobId, null, null, null);
+
+    // Assert
+    assertEquals(0L, result.getOffset());
+    assertEquals(0L, result.getTotalLines());
+    assertEquals("", result.getLog());
+  }
+
+  @Test
+  void test_getJobLogRange_job_not_found() {
+    when(jobRepository.findById(8L)).thenReturn(Optional.empty());
+
+    assertThrows(
+        IllegalArgumentException.class, () -> jobService.getJobLogRange(8L, null, null, null));
+  }
+
+  @Test
+  void test_getJobLogs_reads_compressed_log() {
+    // Arrange
+    Long jobId = 6L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogArchiver.readLines(jobId)).thenReturn(Optional.of(List.of("one", "two")));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("one\ntwo", result);
+  }
+
+  @Test
+  void test_getJobLogRange_slices_compressed_log() throws Exception {
+    // Arrange
+    Long jobId = 6L;
+    Job job = Job.builder().id(jobId).build();
+    job.setLog("legacy log is ignored when the log is compressed");
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogArchiver.findCompressed(jobId))
+        .thenReturn(
+            Optional.of(CompressedJobLog.builder().lineCount(4).gzip(gzip("a\nb\nc\nd")).build()));
+
+    // Act
+    JobLogRange range = jobService.getJobLogRange(jobId, null, null, 2L);
+
+    // Assert
+    assertEquals(2L, range.getOffset());
+    assertEquals(4L, range.getTotalLines());
+    assertEquals("c\nd", range.getLog());
+    verify(jobLogLinesRepository, never())
+        .findAllByJobIdAndSeqBetweenOrderBySeqAsc(anyLong(), anyLong(), anyLong());
+  }
 }
@@ -0,0 +1,120 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TableVersionServiceTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @InjectMocks private TableVersionService tableVersionService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  @Test
+  public void reads_the_counter_of_the_table_by_entity_name() {
+    when(jdbcTemplate.queryForList(TableVersionService.SELECT_SQL, Long.class, "ucsbdates"))
+        .thenReturn(List.of(12L));
+
+    assertEquals(12L, tableVersionService.getVersion(UCSBDate.class));
+  }
+
+  @Test
+  public void a_table_without_a_counter_has_never_changed() {
+    when(jdbcTemplate.queryForList(TableVersionService.SELECT_SQL, Long.class, "ucsbdates"))
+        .thenReturn(List.of());
+
+    assertEquals(0L, tableVersionService.getVersion(UCSBDate.class));
+  }
+
+  @Test
+  public void increments_the_counter_of_the_table() {
+    when(jdbcTemplate.update(TableVersionService.INCREMENT_SQL, "ucsbdates")).thenReturn(1);
+
+    tableVersionService.increment(UCSBDate.class);
+
+    verify(jdbcTemplate, never()).update(TableVersionService.INSERT_SQL, "ucsbdates");
+  }
+
+  @Test
+  public void starts_a_counter_for_a_table_without_one() {
+    when(jdbcTemplate.update(TableVersionService.INCREMENT_SQL, "ucsbdates")).thenReturn(0);
+
+    tableVersionService.increment(UCSBDate.class);
+
+    verify(jdbcTemplate).update(TableVersionService.INSERT_SQL, "ucsbdates");
+  }
+
+  // a listener whose entity manager is a mocked session, with its action queue
+  private TableVersionListener listener(TableVersionService service, ActionQueue actionQueue) {
+    SessionImplementor session = mock(SessionImplementor.class);
+    when(session.getActionQueue()).thenReturn(actionQueue);
+    EntityManager entityManager = mock(EntityManager.class);
+    when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+    TableVersionListener listener = new TableVersionListener();
+    ReflectionTestUtils.setField(listener, "tableVersionService", service);
+    ReflectionTestUtils.setField(listener, "entityManager", entityManager);
+    return listener;
+  }
+
+  @Test
+  public void listener_counts_each_changed_table_once_before_the_commit() {
+    TableVersionService service = mock(TableVersionService.class);
+    ActionQueue actionQueue = mock(ActionQueue.class);
+    TableVersionListener listener = listener(service, actionQueue);
+
+    listener.changed(UCSBDate.builder().id(1L).build());
+    listener.changed(UCSBDate.builder().id(2L).build());
+    listener.changed(UCSBOrganization.builder().orgCode("SKY").build());
+    verifyNoInteractions(service);
+
+    ArgumentCaptor<BeforeTransactionCompletionProcess> beforeCommit =
+        ArgumentCaptor.forClass(BeforeTransactionCompletionProcess.class);
+    verify(actionQueue, times(1)).registerProcess(beforeCommit.capture());
+    beforeCommit.getValue().doBeforeTransactionCompletion(null);
+
+    verify(service, times(1)).increment(UCSBDate.class);
+    verify(service, times(1)).increment(UCSBOrganization.class);
+
+    // the next transaction counts its own changes
+    listener.changed(UCSBDate.builder().id(3L).build());
+    verify(actionQueue, times(2)).registerProcess(any(BeforeTransactionCompletionProcess.class));
+  }
+
+  @Test
+  public void listener_forgets_the_changes_of_a_rolled_back_transaction() {
+    TableVersionService service = mock(TableVersionService.class);
+    ActionQueue actionQueue = mock(ActionQueue.class);
+    TableVersionListener listener = listener(service, actionQueue);
+
+    listener.changed(UCSBDate.builder().id(1L).build());
+    ArgumentCaptor<AfterTransactionCompletionProcess> afterCompletion =
+        ArgumentCaptor.forClass(AfterTransactionCompletionProcess.class);
+    verify(actionQueue).registerProcess(afterCompletion.capture());
+    afterCompletion.getValue().doAfterTransactionCompletion(false, null);
+    listener.changed(UCSBDate.builder().id(2L).build());
+
+    verify(actionQueue, times(2)).registerProcess(any(AfterTransactionCompletionProcess.class));
+    verifyNoInteractions(service);
+  }
+}
@@ -0,0 +1,53 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class CsvReaderTests {
+
+  @Test
+  public void reads_plain_records_ending_in_lf_or_crlf() throws Exception {
+    CsvReader csv = new CsvReader(new StringReader("a,b,c\r\n1,,3\nx,y,z"));
+
+    assertEquals(List.of("a", "b", "c"), csv.readRecord());
+    assertEquals(1, csv.getRecordNumber());
+    assertEquals(List.of("1", "", "3"), csv.readRecord());
+    assertEquals(List.of("x", "y", "z"), csv.readRecord());
+    assertEquals(3, csv.getRecordNumber());
+    assertNull(csv.readRecord());
+    assertNull(csv.readRecord());
+  }
+
+  @Test
+  public void reads_quoted_fields_with_commas_quotes_and_line_breaks() throws Exception {
+    CsvReader csv =
+        new CsvReader(new StringReader("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\nx\"y,z\r\n"));
+
+    assertEquals(List.of("a,b", "say \"hi\"", "two\nlines"), csv.readRecord());
+    assertEquals(List.of("x\"y", "z"), csv.readRecord());
+    assertNull(csv.readRecord());
+  }
+
+  @Test
+  public void keeps_a_lone_carriage_return_inside_a_field() throws Exception {
+    CsvReader csv = new CsvReader(new StringReader("a\rb,c\n"));
+
+    assertEquals(List.of("a\rb", "c"), csv.readRecord());
+  }
+
+  @Test
+  public void fails_on_an_unclosed_quote() throws Exception {
+    CsvReader csv = new CsvReader(new StringReader("ok\n\"never closed"));
+    csv.readRecord();
+
+    IOException e = assertThrows(IOException.class, csv::readRecord);
+
+    assertEquals("Unclosed quote in record 2", e.getMessage());
+  }
+}
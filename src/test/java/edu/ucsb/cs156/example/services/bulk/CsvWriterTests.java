@@ -0,0 +1,36 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class CsvWriterTests {
+
+  @Test
+  public void writes_plain_fields_as_they_are() throws Exception {
+    StringWriter out = new StringWriter();
+    CsvWriter csv = new CsvWriter(out);
+
+    csv.writeRecord(List.of("a", "b", "c"));
+    csv.writeRecord(Arrays.asList("1", null, ""));
+
+    assertEquals("a,b,c\r\n1,,\r\n", out.toString());
+  }
+
+  @Test
+  public void quotes_fields_with_commas_quotes_and_line_breaks() throws Exception {
+    StringWriter out = new StringWriter();
+    CsvWriter csv = new CsvWriter(out);
+    List<String> fields = List.of("a,b", "say \"hi\"", "two\nlines", "a\rb", "plain");
+
+    csv.writeRecord(fields);
+
+    assertEquals(
+        "\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",\"a\rb\",plain\r\n", out.toString());
+    assertEquals(fields, new CsvReader(new StringReader(out.toString())).readRecord());
+  }
+}
@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.User;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class EntityTableRegistryTests {
+
+  @Test
+  public void registers_every_crud_entity() {
+    EntityTableRegistry registry = new EntityTableRegistry();
+
+    assertEquals(
+        List.of(
+            "articles",
+            "helprequests",
+            "menuitemreviews",
+            "recommendationrequest",
+            "restaurants",
+            "ucsbdates",
+            "ucsbdiningcommons",
+            "ucsbdiningcommonsmenuitems",
+            "ucsborganizations"),
+        List.copyOf(registry.getNames()));
+    assertEquals(Restaurant.class, registry.find("restaurants").get().getEntityClass());
+    assertTrue(registry.find("users").isEmpty());
+  }
+
+  @Test
+  public void register_adds_an_entity() {
+    EntityTableRegistry registry = new EntityTableRegistry();
+
+    registry.register(User.class);
+
+    assertEquals(User.class, registry.find("users").get().getEntityClass());
+  }
+}
@@ -0,0 +1,152 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class EntityTableTests {
+
+  @Entity
+  static class Widget {
+    static final String KIND = "widget";
+
+    @Id private String serialNumber;
+
+    @Column(name = "label_text")
+    private String label;
+
+    @Column(columnDefinition = "TEXT")
+    private String notes;
+
+    @Version private long revision;
+  }
+
+  @Entity(name = "gadgets")
+  static class Gadget {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    private String name;
+  }
+
+  static class NotAnEntity {}
+
+  @Entity(name = "noids")
+  static class NoId {
+    private String name;
+  }
+
+  @Test
+  public void physicalName_follows_the_spring_boot_naming_strategy() {
+    assertEquals("date_added", EntityTable.physicalName("dateAdded"));
+    assertEquals("quarteryyyyq", EntityTable.physicalName("quarterYYYYQ"));
+    assertEquals("table_or_breakout_room", EntityTable.physicalName("tableOrBreakoutRoom"));
+    assertEquals("item2_id", EntityTable.physicalName("item2Id"));
+    assertEquals("ucsbdates", EntityTable.physicalName("ucsbdates"));
+    assertEquals("a_b", EntityTable.physicalName("a.b"));
+  }
+
+  @Test
+  public void describes_an_entity_with_an_id_from_a_sequence() {
+    EntityTable table = EntityTable.of(UCSBDate.class);
+
+    assertEquals("ucsbdates", table.getName());
+    assertEquals("ucsbdates", table.getTableName());
+    assertEquals(UCSBDate.class, table.getEntityClass());
+    assertTrue(table.isGeneratedId());
+    assertEquals("ucsbdates_seq", table.getIdSequence().sequenceName());
+    assertEquals(50, table.getIdSequence().allocationSize());
+    assertEquals("id", table.getIdColumn().name());
+    assertEquals(
+        List.of("id", "quarteryyyyq", "name", "local_date_time"),
+        table.getColumns().stream().map(EntityTable.EntityColumn::name).toList());
+    assertEquals(
+        "INSERT INTO ucsbdates (id, quarteryyyyq, name, local_date_time) VALUES (?, ?, ?, ?)",
+        table.insertSql());
+    assertEquals(
+        "SELECT id, quarteryyyyq, name, local_date_time FROM ucsbdates ORDER BY id",
+        table.selectSql());
+
+    LocalDateTime ldt = LocalDateTime.parse("2022-01-03T00:00:00");
+    UCSBDate date =
+        UCSBDate.builder().id(7L).quarterYYYYQ("20222").name("noon").localDateTime(ldt).build();
+    assertArrayEquals(new Object[] {7L, "20222", "noon", ldt}, table.insertValues(date));
+    assertEquals(7L, table.getIdColumn().get(date));
+  }
+
+  @Test
+  public void describes_an_entity_with_an_id_generated_by_the_database() {
+    EntityTable table = EntityTable.of(Gadget.class);
+
+    assertTrue(table.isGeneratedId());
+    assertNull(table.getIdSequence());
+    assertEquals("INSERT INTO gadgets (name) VALUES (?)", table.insertSql());
+  }
+
+  @Test
+  public void describes_an_entity_with_an_assigned_id() {
+    EntityTable table = EntityTable.of(UCSBOrganization.class);
+
+    assertEquals("ucsborganizations", table.getName());
+    assertFalse(table.isGeneratedId());
+    assertNull(table.getIdSequence());
+    assertEquals(
+        "INSERT INTO ucsborganizations"
+            + " (org_code, org_translation_short, org_translation, inactive)"
+            + " VALUES (?, ?, ?, ?)",
+        table.insertSql());
+  }
+
+  @Test
+  public void uses_column_names_and_skips_static_and_version_fields() {
+    EntityTable table = EntityTable.of(Widget.class);
+
+    assertEquals("widget", table.getName());
+    assertEquals("widget", table.getTableName());
+    assertEquals(
+        List.of("serial_number", "label_text", "notes"),
+        table.getColumns().stream().map(EntityTable.EntityColumn::name).toList());
+  }
+
+  @Test
+  public void columns_are_nullable_unless_id_primitive_or_declared_not_null() {
+    EntityTable table = EntityTable.of(UCSBOrganization.class);
+
+    assertEquals(
+        List.of(false, false, false, false),
+        table.getColumns().stream().map(EntityTable.EntityColumn::nullable).toList());
+    assertEquals(
+        List.of(false, true, true),
+        EntityTable.of(Widget.class).getColumns().stream()
+            .map(EntityTable.EntityColumn::nullable)
+            .toList());
+  }
+
+  @Test
+  public void rejects_classes_that_are_not_entities_with_ids() {
+    IllegalArgumentException notEntity =
+        assertThrows(IllegalArgumentException.class, () -> EntityTable.of(NotAnEntity.class));
+    assertEquals(
+        "%s is not an entity".formatted(NotAnEntity.class.getName()), notEntity.getMessage());
+
+    IllegalArgumentException noId =
+        assertThrows(IllegalArgumentException.class, () -> EntityTable.of(NoId.class));
+    assertEquals("%s has no @Id field".formatted(NoId.class.getName()), noId.getMessage());
+  }
+}
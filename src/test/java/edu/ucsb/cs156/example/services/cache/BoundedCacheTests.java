@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.models.CacheStats;
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BoundedCacheTests {
+
+  private Clock clock;
+
+  private BoundedCache<String, String> cache;
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @BeforeEach
+  public void setup() {
+    clock = mock(Clock.class);
+    when(clock.millis()).thenReturn(1000L);
+    cache = new BoundedCache<>("things", 2, 100, clock);
+  }
+
+  private String load(String key) {
+    loads.incrementAndGet();
+    return key.toUpperCase();
+  }
+
+  @Test
+  public void loads_a_value_once_and_then_hits() {
+    assertEquals("A", cache.get("a", this::load));
+    assertEquals("A", cache.get("a", this::load));
+
+    assertEquals(1, loads.get());
+    assertEquals(
+        CacheStats.builder()
+            .name("things")
+            .size(1)
+            .maxSize(2)
+            .ttlMs(100)
+            .hits(1)
+            .misses(1)
+            .evictions(0)
+            .build(),
+        cache.stats());
+  }
+
+  @Test
+  public void reloads_a_value_after_its_ttl() {
+    cache.get("a", this::load);
+    when(clock.millis()).thenReturn(1100L);
+
+    assertEquals("A", cache.get("a", this::load));
+
+    assertEquals(2, loads.get());
+    assertEquals(2, cache.stats().getMisses());
+    assertEquals(1, cache.stats().getSize());
+  }
+
+  @Test
+  public void reloads_a_value_the_caller_finds_stale() {
+    cache.get("a", this::load);
+
+    assertEquals("A", cache.get("a", value -> value.equals("A"), this::load));
+    assertEquals("A", cache.get("a", value -> false, this::load));
+
+    assertEquals(2, loads.get());
+    assertEquals(1, cache.stats().getHits());
+    assertEquals(2, cache.stats().getMisses());
+  }
+
+  @Test
+  public void evicts_the_least_recently_used_value_when_full() {
+    cache.get("a", this::load);
+    cache.get("b", this::load);
+    cache.get("a", this::load);
+    cache.get("c", this::load);
+
+    cache.get("a", this::load);
+    cache.get("b", this::load);
+
+    assertEquals(4, loads.get());
+    assertEquals(2, cache.stats().getSize());
+    assertEquals(2, cache.stats().getEvictions());
+  }
+
+  @Test
+  public void does_not_cache_a_missing_value() {
+    assertNull(cache.get("a", key -> null));
+    assertNull(cache.get("a", key -> null));
+
+    assertEquals(0, cache.stats().getSize());
+    assertEquals(2, cache.stats().getMisses());
+  }
+
+  @Test
+  public void invalidate_drops_one_value() {
+    cache.get("a", this::load);
+    cache.get("b", this::load);
+
+    cache.invalidate("a");
+    cache.get("a", this::load);
+    cache.get("b", this::load);
+
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  public void invalidate_all_drops_every_value() {
+    cache.get("a", this::load);
+    cache.get("b", this::load);
+
+    cache.invalidateAll();
+
+    assertEquals(0, cache.stats().getSize());
+  }
+
+  @Test
+  public void does_not_keep_a_value_whose_load_overlapped_an_invalidation() {
+    String loaded =
+        cache.get(
+            "a",
+            key -> {
+              cache.invalidate(key);
+              return "stale";
+            });
+
+    assertEquals("stale", loaded);
+    assertEquals("A", cache.get("a", this::load));
+  }
+}
@@ -0,0 +1,141 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.models.CacheStats;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ReferenceDataCacheTests {
+
+  private UCSBDateRepository ucsbDateRepository;
+
+  private UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  private ReferenceDataCache referenceDataCache;
+
+  private final UCSBDate date1 = UCSBDate.builder().id(1L).name("firstDayOfClasses").build();
+
+  private final UCSBDate date2 = UCSBDate.builder().id(2L).name("lastDayOfClasses").build();
+
+  @BeforeEach
+  public void setup() {
+    ucsbDateRepository = mock(UCSBDateRepository.class);
+    ucsbOrganizationRepository = mock(UCSBOrganizationRepository.class);
+    referenceDataCache = new ReferenceDataCache();
+    ReflectionTestUtils.setField(referenceDataCache, "maxSize", 10);
+    ReflectionTestUtils.setField(referenceDataCache, "ttlMs", 60000L);
+  }
+
+  @Test
+  public void reads_an_entity_from_its_repository_once() {
+    when(ucsbDateRepository.findById(1L)).thenReturn(Optional.of(date1));
+
+    assertEquals(
+        Optional.of(date1), referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 1L));
+    assertEquals(
+        Optional.of(date1), referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 1L));
+
+    verify(ucsbDateRepository, times(1)).findById(1L);
+  }
+
+  @Test
+  public void does_not_cache_a_missing_entity() {
+    when(ucsbDateRepository.findById(7L)).thenReturn(Optional.empty());
+
+    assertEquals(
+        Optional.empty(), referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 7L));
+    assertEquals(
+        Optional.empty(), referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 7L));
+
+    verify(ucsbDateRepository, times(2)).findById(7L);
+  }
+
+  @Test
+  public void reads_all_of_the_entities_once_into_an_unmodifiable_list() {
+    when(ucsbDateRepository.findAll()).thenReturn(List.of(date1, date2));
+
+    List<UCSBDate> all = referenceDataCache.findAll(ucsbDateRepository, UCSBDate.class, 1L);
+
+    assertEquals(List.of(date1, date2), all);
+    assertEquals(all, referenceDataCache.findAll(ucsbDateRepository, UCSBDate.class, 1L));
+    assertThrows(UnsupportedOperationException.class, () -> all.add(date1));
+    verify(ucsbDateRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void reads_all_of_the_entities_again_once_the_table_has_a_newer_version() {
+    when(ucsbDateRepository.findAll()).thenReturn(List.of(date1), List.of(date1, date2));
+
+    referenceDataCache.findAll(ucsbDateRepository, UCSBDate.class, 3L);
+    // an older version, e.g. read by a request that started earlier, is served by the newer list
+    referenceDataCache.findAll(ucsbDateRepository, UCSBDate.class, 2L);
+    List<UCSBDate> all = referenceDataCache.findAll(ucsbDateRepository, UCSBDate.class, 4L);
+
+    assertEquals(List.of(date1, date2), all);
+    assertEquals(all, referenceDataCache.findAll(ucsbDateRepository, UCSBDate.class, 4L));
+    verify(ucsbDateRepository, times(2)).findAll();
+  }
+
+  @Test
+  public void evict_drops_the_entity_and_the_list_but_not_the_others() {
+    when(ucsbDateRepository.findById(1L)).thenReturn(Optional.of(date1));
+    when(ucsbDateRepository.findById(2L)).thenReturn(Optional.of(date2));
+    when(ucsbDateRepository.findAll()).thenReturn(List.of(date1, date2));
+    referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 1L);
+    referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 2L);
+    referenceDataCache.findAll(ucsbDateRepository, UCSBDate.class, 1L);
+
+    referenceDataCache.evict(UCSBDate.class, 1L);
+    referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 1L);
+    referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 2L);
+    referenceDataCache.findAll(ucsbDateRepository, UCSBDate.class, 1L);
+
+    verify(ucsbDateRepository, times(2)).findById(1L);
+    verify(ucsbDateRepository, times(1)).findById(2L);
+    verify(ucsbDateRepository, times(2)).findAll();
+  }
+
+  @Test
+  public void clear_drops_everything() {
+    when(ucsbDateRepository.findById(1L)).thenReturn(Optional.of(date1));
+    referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 1L);
+
+    referenceDataCache.clear();
+    referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 1L);
+
+    verify(ucsbDateRepository, times(2)).findById(1L);
+  }
+
+  @Test
+  public void has_stats_for_each_entity_class_by_table_name() {
+    assertTrue(referenceDataCache.getStats().isEmpty());
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of());
+    when(ucsbDateRepository.findById(1L)).thenReturn(Optional.of(date1));
+
+    referenceDataCache.findAll(ucsbOrganizationRepository, UCSBOrganization.class, 1L);
+    referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 1L);
+    referenceDataCache.findById(ucsbDateRepository, UCSBDate.class, 1L);
+
+    List<CacheStats> stats = referenceDataCache.getStats();
+    assertEquals(
+        List.of("ucsbdates", "ucsborganizations"),
+        stats.stream().map(CacheStats::getName).toList());
+    assertEquals(1, stats.get(0).getHits());
+    assertEquals(1, stats.get(0).getMisses());
+    assertEquals(10, stats.get(0).getMaxSize());
+    assertEquals(60000L, stats.get(0).getTtlMs());
+    assertEquals(0, stats.get(1).getHits());
+    assertEquals(1, stats.get(1).getMisses());
+  }
+}
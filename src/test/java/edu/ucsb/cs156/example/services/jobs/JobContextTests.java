@@ -1,24 +1,241 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 
 public class JobContextTests {
   @Test
-  public void when_jobs_repository_is_null_does_not_save() throws Exception {
+  public void when_log_writer_is_null_does_not_save() throws Exception {
 
     // arrange
 
     Job job1 = Job.builder().build();
-    JobContext ctx = new JobContext(null, job1);
+    JobContext ctx = new JobContext(null, null, job1);
 
     // act
     ctx.log("This is a log message");
 
     // assert
-    assertEquals("This is a log message", job1.getLog());
+    assertNull(job1.getLog());
+  }
+
+  @Test
+  public void log_appends_one_line_per_call_with_increasing_seq() throws Exception {
+
+    // arrange
+
+    JobLogWriter jobLogWriter = mock(JobLogWriter.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(null, jobLogWriter, job1);
+
+    // act
+    ctx.log("first");
+    ctx.log("second");
+
+    // assert
+    ArgumentCaptor<JobLogLine> captor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, times(2)).append(captor.capture());
+    List<JobLogLine> lines = captor.getAllValues();
+    assertEquals(7L, lines.get(0).getJobId());
+    assertEquals(0L, lines.get(0).getSeq());
+    assertEquals("first", lines.get(0).getMessage());
+    assertEquals(1L, lines.get(1).getSeq());
+    assertEquals("second", lines.get(1).getMessage());
+    assertNull(job1.getLog());
+  }
+
+  @Test
+  public void log_continues_from_first_seq() throws Exception {
+
+    // arrange
+
+    JobLogWriter jobLogWriter = mock(JobLogWriter.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(null, jobLogWriter, job1, 5);
+
+    // act
+    ctx.log("resumed");
+
+    // assert
+    ArgumentCaptor<JobLogLine> captor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, times(1)).append(captor.capture());
+    assertEquals(5L, captor.getValue().getSeq());
+    assertEquals(job1, ctx.getJob());
   }
 
+
+  @Test
+  public void checkpoint_passes_until_job_is_stopped() throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(null, null, Job.builder().id(9L).build());
+
+    // act
+    ctx.checkpoint();
+    assertTrue(ctx.stop("timed_out"));
+    assertTrue(ctx.stop("cancelled"));
+
+    // assert
+    assertTrue(ctx.isCancelled());
+    assertEquals("timed_out", ctx.getStopReason());
+    JobCancelledException e = assertThrows(JobCancelledException.class, ctx::checkpoint);
+    assertEquals("Job 9 stopped: timed_out", e.getMessage());
+  }
+
+  @Test
+  public void stop_after_job_returned_does_nothing() throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(null, null, Job.builder().id(9L).build());
+    ctx.start();
+    ctx.finish();
+
+    // act
+    boolean stopped = ctx.stop("cancelled");
+
+    // assert
+    assertFalse(stopped);
+    assertFalse(ctx.isCancelled());
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void progress_and_counters_are_kept_in_memory_until_taken() throws Exception {
+
+    // arrange
+
+    JobsRepository jobsRepository = mock(JobsRepository.class);
+    JobContext ctx = new JobContext(jobsRepository, null, Job.builder().id(9L).build());
+    assertNull(ctx.getProgressDone());
+    assertNull(ctx.getProgressTotal());
+    assertFalse(ctx.takeProgressChange());
+
+    // act
+    ctx.progress(3, 10);
+    assertEquals(1L, ctx.increment("skipped"));
+    assertEquals(5L, ctx.increment("imported", 5));
+    assertEquals(6L, ctx.increment("imported"));
+
+    // assert
+    assertEquals(3L, ctx.getProgressDone());
+    assertEquals(10L, ctx.getProgressTotal());
+    assertEquals(Map.of("imported", 6L, "skipped", 1L), ctx.getCounters());
+    assertTrue(ctx.takeProgressChange());
+    assertFalse(ctx.takeProgressChange());
+    verifyNoInteractions(jobsRepository);
+  }
+
+  @Test
+  public void child_is_stopped_when_its_parent_is_stopped() throws Exception {
+
+    // arrange
+
+    JobContext parent = new JobContext(null, null, Job.builder().id(9L).build());
+    JobContext child = new JobContext(null, null, Job.builder().id(10L).parentId(9L).build());
+    child.attach(mock(JobService.class), parent);
+
+    // act
+    child.checkpoint();
+    assertTrue(parent.stop("timed_out"));
+
+    // assert
+    assertTrue(child.isCancelled());
+    assertEquals("timed_out", child.getStopReason());
+    JobCancelledException e = assertThrows(JobCancelledException.class, child::checkpoint);
+    assertEquals("Job 10 stopped: timed_out", e.getMessage());
+  }
+
+  @Test
+  public void runChildren_delegates_to_job_service() throws Exception {
+
+    // arrange
+
+    JobService jobService = mock(JobService.class);
+    JobContext ctx = new JobContext(null, null, Job.builder().id(9L).build());
+    ctx.attach(jobService, null);
+    List<ChildJob<String>> children = List.of(c -> "a");
+    when(jobService.runChildren(ctx, children)).thenReturn(List.of("a"));
+
+    // act
+    List<String> results = ctx.runChildren(children);
+
+    // assert
+    assertEquals(List.of("a"), results);
+  }
+
+  @Test
+  public void runChildren_needs_a_job_run_by_job_service() throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(null, null, Job.builder().id(9L).build());
+
+    // act
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class, () -> ctx.runChildren(List.of(c -> "a")));
+
+    // assert
+    assertEquals("Child jobs can only be started by a job run by JobService", e.getMessage());
+  }
+
+  @Test
+  public void saveResult_delegates_to_job_service_and_logs() throws Exception {
+
+    // arrange
+
+    JobService jobService = mock(JobService.class);
+    JobLogWriter jobLogWriter = mock(JobLogWriter.class);
+    JobContext ctx = new JobContext(null, jobLogWriter, Job.builder().id(9L).build());
+    ctx.attach(jobService, null);
+
+    // act
+    ctx.saveResult("application/json", "{}".getBytes(StandardCharsets.UTF_8));
+
+    // assert
+    ArgumentCaptor<InputStream> data = ArgumentCaptor.forClass(InputStream.class);
+    verify(jobService).saveResult(eq(ctx), eq("application/json"), data.capture(), eq(2L));
+    assertEquals("{}", new String(data.getValue().readAllBytes(), StandardCharsets.UTF_8));
+    ArgumentCaptor<JobLogLine> line = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter).append(line.capture());
+    assertEquals("Saved result: 2 bytes of application/json", line.getValue().getMessage());
+  }
+
+  @Test
+  public void saveResult_needs_a_job_run_by_job_service() throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(null, null, Job.builder().id(9L).build());
+
+    // act
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> ctx.saveResult("text/plain", new byte[0]));
+
+    // assert
+    assertEquals("Results can only be saved by a job run by JobService", e.getMessage());
+  }
 }
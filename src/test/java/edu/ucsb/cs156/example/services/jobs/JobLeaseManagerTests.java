@@ -0,0 +1,187 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobLeaseManagerTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private JobService jobService;
+
+  @Mock private JobLogWriter jobLogWriter;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @InjectMocks private JobLeaseManager jobLeaseManager;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLeaseManager, "leaseTimeoutMs", 60000L);
+  }
+
+  @Test
+  public void heartbeat_without_jobs_does_nothing() {
+    when(jobService.getOwnedJobIds()).thenReturn(Set.of());
+
+    jobLeaseManager.heartbeat();
+
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void heartbeat_refreshes_owned_jobs() throws Exception {
+    when(jobService.getOwnedJobIds()).thenReturn(Set.of(4L));
+
+    jobLeaseManager.heartbeat();
+
+    ArgumentCaptor<ParameterizedPreparedStatementSetter<Long>> setter =
+        ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+    verify(jdbcTemplate)
+        .batchUpdate(eq(JobLeaseManager.HEARTBEAT_SQL), eq(List.of(4L)), eq(1), setter.capture());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    setter.getValue().setValues(ps, 4L);
+    verify(ps).setTimestamp(eq(1), any(Timestamp.class));
+    verify(ps).setLong(2, 4L);
+    verify(ps).setString(3, JobQueueWorker.WORKER_ID);
+  }
+
+  @Test
+  public void heartbeat_stops_jobs_cancelled_on_another_node() throws Exception {
+    when(jobService.getOwnedJobIds()).thenReturn(Set.of(4L, 5L));
+    when(jdbcTemplate.queryForList(
+            JobLeaseManager.CANCEL_REQUESTED_SQL, Long.class, JobQueueWorker.WORKER_ID))
+        .thenReturn(List.of(5L));
+
+    jobLeaseManager.heartbeat();
+
+    verify(jobService, times(1)).stopRunningJob(5L, "cancelled");
+    verify(jobService, never()).stopRunningJob(eq(4L), anyString());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void expiredJobs(Object[]... rows) throws Exception {
+    when(jdbcTemplate.query(
+            eq(JobLeaseManager.EXPIRED_SQL), any(RowMapper.class), any(Object.class)))
+        .thenAnswer(
+            invocation -> {
+              RowMapper<Object> mapper = invocation.getArgument(1);
+              List<Object> result = new ArrayList<>();
+              for (Object[] row : rows) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn((Long) row[0]);
+                when(rs.getString("type")).thenReturn((String) row[1]);
+                when(rs.getString("worker_id")).thenReturn((String) row[2]);
+                when(rs.getBoolean("cancel_requested"))
+                    .thenReturn(row.length > 3 && (Boolean) row[3]);
+                result.add(mapper.mapRow(rs, result.size()));
+              }
+              return result;
+            });
+  }
+
+  @Test
+  public void reap_with_nothing_expired_does_nothing() throws Exception {
+    expiredJobs();
+
+    jobLeaseManager.reap();
+
+    verify(jdbcTemplate, never()).update(anyString(), any(), any(), any());
+    verifyNoInteractions(jobLogWriter);
+  }
+
+  @Test
+  public void reap_requeues_durable_jobs_and_fails_others() throws Exception {
+    expiredJobs(new Object[] {1L, "TestJob", "1@dead"}, new Object[] {2L, null, "2@dead"});
+    when(jdbcTemplate.update(eq(JobLeaseManager.REQUEUE_EXPIRED_SQL), any(), eq(1L), any()))
+        .thenReturn(1);
+    when(jdbcTemplate.update(eq(JobLeaseManager.FAIL_EXPIRED_SQL), any(), eq(2L), any()))
+        .thenReturn(1);
+    when(jobLogLinesRepository.countByJobId(1L)).thenReturn(3L);
+
+    jobLeaseManager.reap();
+
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, times(2)).append(lines.capture());
+    assertEquals(1L, lines.getAllValues().get(0).getJobId());
+    assertEquals(3L, lines.getAllValues().get(0).getSeq());
+    assertEquals(
+        "Worker 1@dead stopped sending heartbeats; job requeued",
+        lines.getAllValues().get(0).getMessage());
+    assertEquals(2L, lines.getAllValues().get(1).getJobId());
+    assertEquals(
+        "Worker 2@dead stopped sending heartbeats; job abandoned",
+        lines.getAllValues().get(1).getMessage());
+    verify(jobLogWriter, times(3)).flush();
+  }
+
+  @Test
+  public void reap_numbers_its_notice_after_lines_still_buffered_for_the_job() throws Exception {
+    expiredJobs(new Object[] {1L, "TestJob", "1@slow"});
+    when(jdbcTemplate.update(eq(JobLeaseManager.REQUEUE_EXPIRED_SQL), any(), eq(1L), any()))
+        .thenReturn(1);
+    when(jobLogLinesRepository.countByJobId(1L)).thenReturn(5L);
+
+    jobLeaseManager.reap();
+
+    InOrder inOrder = inOrder(jobLogWriter, jobLogLinesRepository);
+    inOrder.verify(jobLogWriter).flush();
+    inOrder.verify(jobLogLinesRepository).countByJobId(1L);
+    ArgumentCaptor<JobLogLine> line = ArgumentCaptor.forClass(JobLogLine.class);
+    inOrder.verify(jobLogWriter).append(line.capture());
+    assertEquals(5L, line.getValue().getSeq());
+  }
+
+  @Test
+  public void reap_skips_jobs_that_recovered_or_were_reaped_elsewhere() throws Exception {
+    expiredJobs(new Object[] {1L, "TestJob", "1@slow"});
+    when(jdbcTemplate.update(eq(JobLeaseManager.REQUEUE_EXPIRED_SQL), any(), eq(1L), any()))
+        .thenReturn(0);
+
+    jobLeaseManager.reap();
+
+    verify(jobLogWriter, never()).append(any());
+    verify(jobLogWriter, times(1)).flush();
+  }
+
+  @Test
+  public void reap_cancels_jobs_whose_cancellation_was_pending() throws Exception {
+    expiredJobs(new Object[] {1L, "TestJob", "1@dead", true});
+    when(jdbcTemplate.update(eq(JobLeaseManager.CANCEL_EXPIRED_SQL), any(), eq(1L), any()))
+        .thenReturn(1);
+
+    jobLeaseManager.reap();
+
+    verify(jdbcTemplate, never())
+        .update(eq(JobLeaseManager.REQUEUE_EXPIRED_SQL), any(), any(), any());
+    ArgumentCaptor<JobLogLine> line = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, times(1)).append(line.capture());
+    assertEquals(
+        "Worker 1@dead stopped sending heartbeats; job cancelled", line.getValue().getMessage());
+  }
+}
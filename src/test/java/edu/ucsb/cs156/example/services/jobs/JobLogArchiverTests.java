@@ -0,0 +1,159 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.CompressedJobLog;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobLogArchiverTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @InjectMocks private JobLogArchiver jobLogArchiver;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLogArchiver, "compressThresholdBytes", 10L);
+  }
+
+  private JobLogLine line(long seq, String message) {
+    return JobLogLine.builder().jobId(1L).seq(seq).message(message).build();
+  }
+
+  @Test
+  public void archive_leaves_small_logs_alone() throws Exception {
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(1L))
+        .thenReturn(List.of(line(0, "tiny")));
+
+    assertFalse(jobLogArchiver.archive(1L));
+
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @Test
+  public void archive_of_job_without_lines_does_nothing() throws Exception {
+    ReflectionTestUtils.setField(jobLogArchiver, "compressThresholdBytes", 0L);
+
+    assertFalse(jobLogArchiver.archive(1L));
+
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @Test
+  public void archive_replaces_lines_with_compressed_log() throws Exception {
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(1L))
+        .thenReturn(List.of(line(0, "first line"), line(1, "second\nline")));
+
+    assertTrue(jobLogArchiver.archive(1L));
+
+    ArgumentCaptor<byte[]> gzip = ArgumentCaptor.forClass(byte[].class);
+    verify(jdbcTemplate).update(eq(JobLogArchiver.INSERT_SQL), eq(1L), eq(3L), gzip.capture());
+    assertEquals(
+        "first line\nsecond\nline",
+        new String(JobLogArchiver.gunzip(gzip.getValue()), StandardCharsets.UTF_8));
+    verify(jdbcTemplate).update(JobLogArchiver.DELETE_LINES_SQL, 1L);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void stored(byte[] gzip) throws Exception {
+    when(jdbcTemplate.query(eq(JobLogArchiver.SELECT_SQL), any(RowMapper.class), eq(1L)))
+        .thenAnswer(
+            invocation -> {
+              RowMapper<CompressedJobLog> mapper = invocation.getArgument(1);
+              ResultSet rs = mock(ResultSet.class);
+              when(rs.getLong("line_count")).thenReturn(2L);
+              when(rs.getBytes("log_gzip")).thenReturn(gzip);
+              return List.of(mapper.mapRow(rs, 0));
+            });
+  }
+
+  @Test
+  public void findCompressed_returns_stored_bytes() throws Exception {
+    byte[] gzip = JobLogArchiver.gzip("a\nb".getBytes(StandardCharsets.UTF_8));
+    stored(gzip);
+
+    CompressedJobLog compressed = jobLogArchiver.findCompressed(1L).get();
+
+    assertEquals(2L, compressed.getLineCount());
+    assertArrayEquals(gzip, compressed.getGzip());
+  }
+
+  @Test
+  public void readLines_decompresses_and_splits_log() throws Exception {
+    stored(JobLogArchiver.gzip("a\nb".getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(Optional.of(List.of("a", "b")), jobLogArchiver.readLines(1L));
+  }
+
+  @Test
+  public void readLines_of_uncompressed_log_is_empty() {
+    assertEquals(Optional.empty(), jobLogArchiver.readLines(1L));
+  }
+
+  @Test
+  public void readLines_of_corrupt_archive_throws() throws Exception {
+    stored(new byte[] {1, 2, 3});
+
+    assertThrows(UncheckedIOException.class, () -> jobLogArchiver.readLines(1L));
+  }
+
+  private List<String> linesOf(String log, long from, long to) throws Exception {
+    CompressedJobLog compressed =
+        CompressedJobLog.builder()
+            .gzip(JobLogArchiver.gzip(log.getBytes(StandardCharsets.UTF_8)))
+            .build();
+    List<String> lines = new ArrayList<>();
+    JobLogArchiver.forEachLine(compressed, from, to, (line, seq) -> lines.add(seq + ":" + line));
+    return lines;
+  }
+
+  @Test
+  public void forEachLine_passes_on_only_the_lines_in_the_range() throws Exception {
+    assertEquals(List.of("1:b", "2:"), linesOf("a\nb\n\nc", 1, 3));
+    assertEquals(List.of("2:", "3:c"), linesOf("a\nb\n\nc", 2, 10));
+    assertEquals(List.of("0:a", "1:"), linesOf("a\n", 0, 2));
+    assertEquals(List.of(), linesOf("a\nb", 2, 4));
+  }
+
+  @Test
+  public void forEachLine_reads_lines_longer_than_its_buffer() throws Exception {
+    String longLine = "x".repeat(20000);
+
+    assertEquals(List.of("1:" + longLine), linesOf("a\n" + longLine + "\nb", 1, 2));
+  }
+
+  @Test
+  public void forEachLine_of_corrupt_archive_throws() {
+    CompressedJobLog compressed = CompressedJobLog.builder().gzip(new byte[] {1, 2, 3}).build();
+
+    assertThrows(
+        UncheckedIOException.class,
+        () -> JobLogArchiver.forEachLine(compressed, 0, 1, (line, seq) -> {}));
+  }
+}
@@ -0,0 +1,231 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.CompressedJobLog;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class JobLogStreamerTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogWriter jobLogWriter;
+
+  @Mock private JobLogArchiver jobLogArchiver;
+
+  @Mock private JobService jobService;
+
+  @InjectMocks private JobLogStreamer jobLogStreamer;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLogStreamer, "streamTimeoutMs", 1000L);
+  }
+
+  private JobLogLine line(long seq) {
+    return JobLogLine.builder().jobId(1L).seq(seq).message("line " + seq).build();
+  }
+
+  @Test
+  public void subscribe_to_missing_job_throws() {
+    when(jobsRepository.findById(1L)).thenReturn(Optional.empty());
+
+    assertThrows(EntityNotFoundException.class, () -> jobLogStreamer.subscribe(1L, -1L));
+    assertEquals(0, jobLogStreamer.subscriberCount(1L));
+  }
+
+  @Test
+  public void subscribe_to_running_job_replays_missed_lines_and_stays_open() throws Exception {
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(1L, 3L))
+        .thenReturn(List.of(line(4), line(5)));
+
+    SseEmitter emitter = jobLogStreamer.subscribe(1L, 3L);
+
+    verify(jobLogWriter, times(1)).flush();
+    verify(jobLogLinesRepository, times(1)).findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(1L, 3L);
+    assertEquals(1, jobLogStreamer.subscriberCount(1L));
+    assertDoesNotThrow(() -> emitter.send("still open"));
+  }
+
+  private void compressed(long jobId, String log) throws Exception {
+    when(jobLogArchiver.findCompressed(jobId))
+        .thenReturn(
+            Optional.of(
+                CompressedJobLog.builder()
+                    .lineCount(log.split("\n", -1).length)
+                    .gzip(JobLogArchiver.gzip(log.getBytes(StandardCharsets.UTF_8)))
+                    .build()));
+  }
+
+  @Test
+  public void subscribe_to_job_with_compressed_log_replays_it_from_the_archive() throws Exception {
+    Job job = Job.builder().id(1L).status("complete").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    compressed(1L, "a\nb\nc");
+
+    SseEmitter emitter = jobLogStreamer.subscribe(1L, 0L);
+
+    verify(jobLogArchiver, times(1)).findCompressed(1L);
+    assertEquals(0, jobLogStreamer.subscriberCount(1L));
+    assertThrows(IllegalStateException.class, () -> emitter.send("closed"));
+  }
+
+  @Test
+  public void sendArchivedLinesAfter_numbers_lines_from_zero() throws Exception {
+    compressed(1L, "a\nb\nc");
+    when(jobLogArchiver.findCompressed(2L)).thenReturn(Optional.empty());
+
+    List<JobLogLine> all = new ArrayList<>();
+    jobLogStreamer.sendArchivedLinesAfter(1L, -1L, all::add);
+    List<JobLogLine> rest = new ArrayList<>();
+    jobLogStreamer.sendArchivedLinesAfter(1L, 1L, rest::add);
+    List<JobLogLine> none = new ArrayList<>();
+    jobLogStreamer.sendArchivedLinesAfter(2L, -1L, none::add);
+
+    assertEquals(List.of(0L, 1L, 2L), all.stream().map(JobLogLine::getSeq).toList());
+    assertEquals(List.of("c"), rest.stream().map(JobLogLine::getMessage).toList());
+    assertEquals(2L, rest.get(0).getSeq());
+    assertEquals(List.of(), none);
+  }
+
+  @Test
+  public void subscribe_to_finished_job_completes_immediately() {
+    Job job = Job.builder().id(1L).status("complete").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+
+    SseEmitter emitter = jobLogStreamer.subscribe(1L, -1L);
+
+    assertEquals(0, jobLogStreamer.subscriberCount(1L));
+    assertThrows(IllegalStateException.class, () -> emitter.send("closed"));
+  }
+
+  @Test
+  public void subscribe_to_job_deleted_while_subscribing_completes_immediately() {
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job)).thenReturn(Optional.empty());
+
+    SseEmitter emitter = jobLogStreamer.subscribe(1L, -1L);
+
+    assertEquals(0, jobLogStreamer.subscriberCount(1L));
+    assertThrows(IllegalStateException.class, () -> emitter.send("closed"));
+  }
+
+  @Test
+  public void publish_without_subscribers_does_nothing() {
+    assertDoesNotThrow(() -> jobLogStreamer.publish(line(0)));
+  }
+
+  @Test
+  public void publish_to_closed_stream_does_not_throw() {
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    SseEmitter emitter = jobLogStreamer.subscribe(1L, -1L);
+    emitter.complete();
+
+    assertDoesNotThrow(() -> jobLogStreamer.publish(line(0)));
+  }
+
+  @Test
+  public void complete_closes_open_streams() {
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    SseEmitter emitter = jobLogStreamer.subscribe(1L, -1L);
+    jobLogStreamer.publish(line(0));
+
+    jobLogStreamer.complete(1L);
+
+    assertEquals(0, jobLogStreamer.subscriberCount(1L));
+    assertThrows(IllegalStateException.class, () -> emitter.send("closed"));
+  }
+
+  @Test
+  public void complete_without_subscribers_does_nothing() {
+    assertDoesNotThrow(() -> jobLogStreamer.complete(1L));
+  }
+
+  // a job that another node is running: this node only sees what is in the database
+  private SseEmitter subscribeToJobElsewhere(long afterSeq) {
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    when(jobService.isRunningHere(1L)).thenReturn(false);
+    return jobLogStreamer.subscribe(1L, afterSeq);
+  }
+
+  @Test
+  public void pollOtherNodes_sends_lines_written_by_another_node() throws Exception {
+    SseEmitter emitter = subscribeToJobElsewhere(3L);
+    when(jobsRepository.findStatusById(1L)).thenReturn("running");
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(1L, 3L))
+        .thenReturn(List.of(line(4), line(5)));
+
+    jobLogStreamer.pollOtherNodes();
+    jobLogStreamer.pollOtherNodes();
+
+    // the second poll only asks for lines after those already sent
+    verify(jobLogLinesRepository, times(1)).findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(1L, 5L);
+    assertEquals(1, jobLogStreamer.subscriberCount(1L));
+    assertDoesNotThrow(() -> emitter.send("still open"));
+  }
+
+  @Test
+  public void pollOtherNodes_closes_the_stream_of_a_job_finished_by_another_node()
+      throws Exception {
+    SseEmitter emitter = subscribeToJobElsewhere(-1L);
+    when(jobsRepository.findStatusById(1L)).thenReturn("complete");
+    compressed(1L, "a\nb");
+
+    jobLogStreamer.pollOtherNodes();
+
+    verify(jobLogArchiver, times(2)).findCompressed(1L);
+    assertEquals(0, jobLogStreamer.subscriberCount(1L));
+    assertThrows(IllegalStateException.class, () -> emitter.send("closed"));
+  }
+
+  @Test
+  public void pollOtherNodes_closes_the_stream_of_a_deleted_job() {
+    SseEmitter emitter = subscribeToJobElsewhere(-1L);
+    when(jobsRepository.findStatusById(1L)).thenReturn(null);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(1L, -1L))
+        .thenReturn(List.of(line(0)));
+
+    jobLogStreamer.pollOtherNodes();
+
+    assertEquals(0, jobLogStreamer.subscriberCount(1L));
+    assertThrows(IllegalStateException.class, () -> emitter.send("closed"));
+  }
+
+  @Test
+  public void pollOtherNodes_leaves_jobs_running_here_to_publish() {
+    SseEmitter emitter = subscribeToJobElsewhere(-1L);
+    when(jobService.isRunningHere(1L)).thenReturn(true);
+
+    jobLogStreamer.pollOtherNodes();
+
+    verify(jobsRepository, never()).findStatusById(1L);
+    assertEquals(1, jobLogStreamer.subscriberCount(1L));
+    assertDoesNotThrow(() -> emitter.send("still open"));
+  }
+}
@@ -0,0 +1,201 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.sql.PreparedStatement;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobLogWriterTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private JobLogStreamer jobLogStreamer;
+
+  @InjectMocks private JobLogWriter jobLogWriter;
+
+  private JobLogWriter self;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    self = mock(JobLogWriter.class);
+    ReflectionTestUtils.setField(jobLogWriter, "self", self);
+    ReflectionTestUtils.setField(jobLogWriter, "batchSize", 2);
+  }
+
+  private JobLogLine line(long seq) {
+    return JobLogLine.builder()
+        .jobId(1L)
+        .seq(seq)
+        .loggedAt(ZonedDateTime.parse("2025-05-01T00:00:00Z"))
+        .message("line " + seq)
+        .build();
+  }
+
+  @Test
+  public void append_does_not_write_until_flush() {
+    jobLogWriter.append(line(0));
+
+    verify(self, never()).flushAsync();
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @Test
+  public void append_publishes_line_to_live_streams() {
+    jobLogWriter.append(line(0));
+
+    verify(jobLogStreamer, times(1)).publish(line(0));
+  }
+
+  @Test
+  public void append_schedules_async_flush_when_a_batch_is_full() {
+    jobLogWriter.append(line(0));
+    jobLogWriter.append(line(1));
+
+    verify(self, times(1)).flushAsync();
+  }
+
+  @Test
+  public void flush_with_nothing_pending_does_not_touch_database() {
+    jobLogWriter.flush();
+
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void flush_writes_pending_lines_in_batches() throws Exception {
+    jobLogWriter.append(line(0));
+    jobLogWriter.append(line(1));
+    jobLogWriter.append(line(2));
+
+    List<List<JobLogLine>> written = new ArrayList<>();
+    when(jdbcTemplate.batchUpdate(
+            eq(JobLogWriter.INSERT_SQL),
+            any(List.class),
+            anyInt(),
+            any(ParameterizedPreparedStatementSetter.class)))
+        .thenAnswer(
+            invocation -> {
+              written.add(new ArrayList<>(invocation.getArgument(1)));
+              return new int[0][0];
+            });
+
+    jobLogWriter.flush();
+
+    assertEquals(2, written.size());
+    assertEquals(List.of(line(0), line(1)), written.get(0));
+    assertEquals(List.of(line(2)), written.get(1));
+
+    // a second flush has nothing left to write
+    jobLogWriter.flush();
+    assertEquals(2, written.size());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void flush_binds_columns_in_insert_order() throws Exception {
+    jobLogWriter.append(line(5));
+
+    jobLogWriter.flush();
+
+    ArgumentCaptor<ParameterizedPreparedStatementSetter<JobLogLine>> setter =
+        ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+    verify(jdbcTemplate)
+        .batchUpdate(eq(JobLogWriter.INSERT_SQL), any(List.class), eq(1), setter.capture());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    setter.getValue().setValues(ps, line(5));
+    verify(ps).setLong(1, 1L);
+    verify(ps).setLong(2, 5L);
+    verify(ps).setObject(3, line(5).getLoggedAt().toOffsetDateTime());
+    verify(ps).setString(4, "line 5");
+  }
+
+  @SuppressWarnings("unchecked")
+  private void batchFails(RuntimeException e) {
+    when(jdbcTemplate.batchUpdate(
+            eq(JobLogWriter.INSERT_SQL),
+            any(List.class),
+            anyInt(),
+            any(ParameterizedPreparedStatementSetter.class)))
+        .thenThrow(e);
+  }
+
+  private void lineFails(long seq, RuntimeException e) {
+    when(jdbcTemplate.update(eq(JobLogWriter.INSERT_SQL), eq(1L), eq(seq), any(), any()))
+        .thenThrow(e);
+  }
+
+  @Test
+  public void flush_drops_only_the_lines_the_database_rejects_from_a_failed_batch() {
+    jobLogWriter.append(line(0));
+    jobLogWriter.append(line(1));
+    jobLogWriter.append(line(2));
+    batchFails(new DataIntegrityViolationException("job deleted"));
+    lineFails(0, new DuplicateKeyException("written before the batch failed"));
+    lineFails(1, new DataIntegrityViolationException("job deleted"));
+
+    jobLogWriter.flush();
+
+    for (long seq = 0; seq < 3; seq++) {
+      verify(jdbcTemplate, times(1))
+          .update(
+              JobLogWriter.INSERT_SQL,
+              1L,
+              seq,
+              line(seq).getLoggedAt().toOffsetDateTime(),
+              "line " + seq);
+    }
+    // nothing is left to write
+    jobLogWriter.flush();
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList(), anyInt(), any());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void flush_keeps_the_lines_when_the_database_cannot_be_reached() {
+    jobLogWriter.append(line(0));
+    jobLogWriter.append(line(1));
+    batchFails(new DataAccessResourceFailureException("down"));
+    lineFails(0, new DataAccessResourceFailureException("down"));
+
+    assertThrows(DataAccessResourceFailureException.class, () -> jobLogWriter.flush());
+
+    reset(jdbcTemplate);
+    jobLogWriter.flush();
+    ArgumentCaptor<List<JobLogLine>> written = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(1))
+        .batchUpdate(eq(JobLogWriter.INSERT_SQL), written.capture(), eq(2), any());
+    assertEquals(List.of(line(0), line(1)), written.getValue());
+  }
+
+  @Test
+  public void flushAsync_flushes() {
+    jobLogWriter.append(line(0));
+
+    jobLogWriter.flushAsync();
+
+    verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList(), anyInt(), any());
+  }
+}
@@ -0,0 +1,124 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobProgressWriterTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @InjectMocks private JobProgressWriter jobProgressWriter;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobProgressWriter, "mapper", new ObjectMapper());
+  }
+
+  private JobContext context(long id) {
+    return new JobContext(null, null, Job.builder().id(id).build());
+  }
+
+  @Test
+  public void flush_without_changes_does_nothing() {
+    jobProgressWriter.track(context(1L));
+
+    jobProgressWriter.flush();
+
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void flush_writes_only_jobs_whose_progress_changed() throws Exception {
+    JobContext idle = context(1L);
+    JobContext busy = context(2L);
+    jobProgressWriter.track(idle);
+    jobProgressWriter.track(busy);
+    busy.progress(4, 8);
+    busy.increment("rows");
+
+    jobProgressWriter.flush();
+
+    ArgumentCaptor<ParameterizedPreparedStatementSetter<JobContext>> setter =
+        ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+    verify(jdbcTemplate)
+        .batchUpdate(eq(JobProgressWriter.UPDATE_SQL), eq(List.of(busy)), eq(1), setter.capture());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    setter.getValue().setValues(ps, busy);
+    verify(ps).setObject(1, 4L, Types.BIGINT);
+    verify(ps).setObject(2, 8L, Types.BIGINT);
+    verify(ps).setString(3, "{\"rows\":1}");
+    verify(ps).setTimestamp(eq(4), any(Timestamp.class));
+    verify(ps).setLong(5, 2L);
+
+    // nothing changed since
+    jobProgressWriter.flush();
+    verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList(), anyInt(), any());
+  }
+
+  @Test
+  public void release_copies_progress_onto_the_job_and_stops_tracking() {
+    JobContext ctx = context(3L);
+    jobProgressWriter.track(ctx);
+    ctx.progress(10, 10);
+    ctx.increment("rows", 10);
+
+    jobProgressWriter.release(ctx);
+    jobProgressWriter.flush();
+
+    assertEquals(10L, ctx.getJob().getProgressDone());
+    assertEquals(10L, ctx.getJob().getProgressTotal());
+    assertEquals("{\"rows\":10}", ctx.getJob().getCounters());
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @Test
+  public void release_of_job_without_progress_leaves_columns_empty() {
+    JobContext ctx = context(3L);
+
+    jobProgressWriter.release(ctx);
+
+    assertNull(ctx.getJob().getProgressDone());
+    assertNull(ctx.getJob().getProgressTotal());
+    assertNull(ctx.getJob().getCounters());
+  }
+
+  @Test
+  public void release_throws_when_counters_cannot_be_written() throws Exception {
+    ObjectMapper mapper = mock(ObjectMapper.class);
+    when(mapper.writeValueAsString(any())).thenThrow(mock(JsonProcessingException.class));
+    ReflectionTestUtils.setField(jobProgressWriter, "mapper", mapper);
+    JobContext ctx = context(3L);
+    ctx.increment("rows");
+
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> jobProgressWriter.release(ctx));
+
+    assertEquals("Cannot write counters of job 3", e.getMessage());
+  }
+}
@@ -0,0 +1,387 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobQueueWorker.QueuedJob;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobQueueWorkerTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobTypeRegistry jobTypeRegistry;
+
+  @Mock private JobService jobService;
+
+  @Mock private ThreadPoolTaskExecutor jobExecutor;
+
+  @InjectMocks private JobQueueWorker jobQueueWorker;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobQueueWorker, "enabled", true);
+    ReflectionTestUtils.setField(jobQueueWorker, "maxConcurrency", 2);
+    ReflectionTestUtils.setField(jobQueueWorker, "queueCapacity", 10);
+    ReflectionTestUtils.setField(jobQueueWorker, "agingMs", 60000L);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void database(String product) {
+    when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(product);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void queued(String sql, QueuedJob... jobs) {
+    when(jdbcTemplate.query(
+            eq(sql),
+            any(RowMapper.class),
+            any(Timestamp.class),
+            eq(JobQueueWorker.WORKER_ID),
+            eq(10)))
+        .thenReturn(List.of(jobs));
+  }
+
+  private void running(Map<Long, Long> counts) {
+    doAnswer(
+            invocation -> {
+              RowCallbackHandler handler = invocation.getArgument(1);
+              for (Map.Entry<Long, Long> count : counts.entrySet()) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getObject(1, Long.class)).thenReturn(count.getKey());
+                when(rs.getLong(2)).thenReturn(count.getValue());
+                handler.processRow(rs);
+              }
+              return null;
+            })
+        .when(jdbcTemplate)
+        .query(eq(JobQueueWorker.RUNNING_BY_CREATOR_SQL), any(RowCallbackHandler.class));
+  }
+
+  private Job durableJob(long id) {
+    Job job = Job.builder().id(id).status("running").type("TestJob").params("{}").build();
+    when(jobsRepository.findById(id)).thenReturn(Optional.of(job));
+    return job;
+  }
+
+  private void runSubmittedTasks() {
+    doAnswer(
+            invocation -> {
+              ((Runnable) invocation.getArgument(0)).run();
+              return null;
+            })
+        .when(jobExecutor)
+        .execute(any(Runnable.class));
+  }
+
+  @Test
+  public void poll_does_not_claim_when_all_workers_are_busy() {
+    when(jobExecutor.getActiveCount()).thenReturn(1);
+    when(jobExecutor.getQueueSize()).thenReturn(1);
+
+    jobQueueWorker.poll();
+
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @Test
+  public void poll_does_nothing_more_when_nothing_is_queued() {
+    queued(JobQueueWorker.CANDIDATES_SQL);
+
+    jobQueueWorker.poll();
+
+    verify(jdbcTemplate, never())
+        .query(eq(JobQueueWorker.RUNNING_BY_CREATOR_SQL), any(RowCallbackHandler.class));
+    verify(jobExecutor, never()).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void poll_on_postgres_claims_with_skip_locked() throws Exception {
+    database("PostgreSQL");
+    Instant now = Instant.now();
+    queued(
+        JobQueueWorker.CANDIDATES_SQL,
+        new QueuedJob(7L, 1L, JobPriority.NORMAL, now),
+        new QueuedJob(8L, 1L, JobPriority.NORMAL, now));
+    running(Map.of());
+    // job 7 was locked or claimed by another node
+    when(jdbcTemplate.queryForList(
+            eq(JobQueueWorker.CLAIM_SKIP_LOCKED_SQL), eq(Long.class), any(), any(), any(), eq(7L)))
+        .thenReturn(List.of());
+    when(jdbcTemplate.queryForList(
+            eq(JobQueueWorker.CLAIM_SKIP_LOCKED_SQL), eq(Long.class), any(), any(), any(), eq(8L)))
+        .thenReturn(List.of(8L));
+    Job job = durableJob(8L);
+    TestJob testJob = TestJob.builder().build();
+    when(jobTypeRegistry.deserialize("TestJob", "{}")).thenReturn(testJob);
+    runSubmittedTasks();
+
+    jobQueueWorker.poll();
+
+    verify(jobService, times(1)).runJob(job, testJob);
+    verify(jobService, never()).runJob(argThat(j -> j.getId() == 7L), any());
+    verify(jdbcTemplate, never()).update(eq(JobQueueWorker.CLAIM_SQL), any(), any(), any(), any());
+  }
+
+  @Test
+  public void poll_on_h2_claims_with_compare_and_set() throws Exception {
+    database("H2");
+    Instant now = Instant.now();
+    queued(
+        JobQueueWorker.CANDIDATES_SQL,
+        new QueuedJob(3L, 1L, JobPriority.NORMAL, now),
+        new QueuedJob(4L, 1L, JobPriority.NORMAL, now));
+    running(Map.of());
+    // job 3 was claimed by another node first
+    when(jdbcTemplate.update(eq(JobQueueWorker.CLAIM_SQL), any(), any(), any(), eq(3L)))
+        .thenReturn(0);
+    when(jdbcTemplate.update(eq(JobQueueWorker.CLAIM_SQL), any(), any(), any(), eq(4L)))
+        .thenReturn(1);
+    Job job = durableJob(4L);
+    TestJob testJob = TestJob.builder().build();
+    when(jobTypeRegistry.deserialize("TestJob", "{}")).thenReturn(testJob);
+    runSubmittedTasks();
+
+    jobQueueWorker.poll();
+
+    verify(jobService, times(1)).runJob(job, testJob);
+    verify(jobService, never()).runJob(argThat(j -> j.getId() == 3L), any());
+    // the database product is only looked up once
+    verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+  }
+
+  @Test
+  public void poll_shares_free_workers_between_users() throws Exception {
+    database("H2");
+    Instant now = Instant.now();
+    // user 1 queued two jobs before user 2 queued one, and already has a job running
+    queued(
+        JobQueueWorker.CANDIDATES_SQL,
+        new QueuedJob(1L, 1L, JobPriority.NORMAL, now),
+        new QueuedJob(2L, 1L, JobPriority.NORMAL, now),
+        new QueuedJob(3L, 2L, JobPriority.NORMAL, now));
+    running(Map.of(1L, 1L));
+    // two free workers, then one, then none
+    when(jobExecutor.getActiveCount()).thenReturn(0, 0, 1, 2);
+    when(jdbcTemplate.update(eq(JobQueueWorker.CLAIM_SQL), any(), any(), any(), anyLong()))
+        .thenReturn(1);
+    List<Long> started = new ArrayList<>();
+    for (long id = 1; id <= 3; id++) {
+      durableJob(id);
+    }
+    doAnswer(
+            invocation -> {
+              started.add(invocation.<Job>getArgument(0).getId());
+              return null;
+            })
+        .when(jobService)
+        .runJob(any(Job.class), any());
+    runSubmittedTasks();
+
+    jobQueueWorker.poll();
+
+    // user 2 goes first, then user 1, whose running count is now even with user 2's
+    assertEquals(List.of(3L, 1L), started);
+  }
+
+  @Test
+  public void poll_when_disabled_only_runs_local_jobs() {
+    ReflectionTestUtils.setField(jobQueueWorker, "enabled", false);
+    database("H2");
+    queued(JobQueueWorker.LOCAL_CANDIDATES_SQL, new QueuedJob(5L, null, 0, Instant.now()));
+    running(Map.of());
+    when(jdbcTemplate.update(eq(JobQueueWorker.CLAIM_SQL), any(), any(), any(), eq(5L)))
+        .thenReturn(1);
+    Job job = Job.builder().id(5L).status("running").build();
+    when(jobsRepository.findById(5L)).thenReturn(Optional.of(job));
+    JobContextConsumer fn = ctx -> {};
+    when(jobService.takeLocalJob(5L)).thenReturn(fn);
+    runSubmittedTasks();
+
+    jobQueueWorker.poll();
+
+    verify(jobService, times(1)).runJob(job, fn);
+    verifyNoInteractions(jobTypeRegistry);
+  }
+
+  @Test
+  public void candidates_are_read_from_the_jobs_table() throws Exception {
+    Timestamp createdAt = Timestamp.from(Instant.parse("2025-04-01T00:00:00Z"));
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getLong("id")).thenReturn(7L, 8L);
+    when(rs.getObject("created_by_id", Long.class)).thenReturn(1L, null);
+    when(rs.getInt("priority")).thenReturn(-1, 0);
+    when(rs.getTimestamp("queued_at")).thenReturn(createdAt, (Timestamp) null);
+    when(jdbcTemplate.query(
+            eq(JobQueueWorker.CANDIDATES_SQL),
+            any(RowMapper.class),
+            any(Timestamp.class),
+            eq(JobQueueWorker.WORKER_ID),
+            eq(10)))
+        .thenAnswer(
+            invocation -> {
+              RowMapper<QueuedJob> mapper = invocation.getArgument(1);
+              return List.of(mapper.mapRow(rs, 0), mapper.mapRow(rs, 1));
+            });
+
+    Instant before = Instant.now();
+    List<QueuedJob> candidates = jobQueueWorker.candidates();
+
+    assertEquals(new QueuedJob(7L, 1L, -1, createdAt.toInstant()), candidates.get(0));
+    assertEquals(8L, candidates.get(1).id());
+    assertNull(candidates.get(1).createdById());
+    // a job without a creation time counts as just launched
+    assertFalse(candidates.get(1).queuedAt().isBefore(before));
+  }
+
+  @Test
+  public void candidates_leave_out_child_jobs() {
+    // children are queued with this node's worker id, but their parent runs them itself
+    assertTrue(JobQueueWorker.CANDIDATES_SQL.contains("parent_id IS NULL"));
+    assertTrue(JobQueueWorker.LOCAL_CANDIDATES_SQL.contains("parent_id IS NULL"));
+  }
+
+  @Test
+  public void candidates_wait_for_their_next_attempt() {
+    // a retried job is queued again, but not started before its back-off has passed
+    String waiting = "(next_attempt_at IS NULL OR next_attempt_at <= ?)";
+    assertTrue(JobQueueWorker.CANDIDATES_SQL.contains(waiting));
+    assertTrue(JobQueueWorker.LOCAL_CANDIDATES_SQL.contains(waiting));
+  }
+
+  @Test
+  public void runningByCreator_counts_jobs_without_a_creator_together() {
+    Map<Long, Long> counts = new HashMap<>();
+    counts.put(1L, 2L);
+    counts.put(null, 3L);
+    running(counts);
+
+    assertEquals(counts, jobQueueWorker.runningByCreator());
+  }
+
+  @Test
+  public void order_prefers_higher_priority_then_fewer_running_jobs_then_older() {
+    Instant now = Instant.parse("2025-04-01T12:00:00Z");
+    QueuedJob batch = new QueuedJob(1L, 1L, JobPriority.BATCH, now);
+    QueuedJob busyUser = new QueuedJob(2L, 1L, JobPriority.NORMAL, now);
+    QueuedJob idleUser = new QueuedJob(3L, 2L, JobPriority.NORMAL, now);
+    QueuedJob idleUserLater = new QueuedJob(4L, 2L, JobPriority.NORMAL, now);
+    QueuedJob interactive = new QueuedJob(5L, 1L, JobPriority.INTERACTIVE, now);
+    List<QueuedJob> jobs =
+        new ArrayList<>(List.of(batch, busyUser, idleUser, idleUserLater, interactive));
+
+    jobs.sort(JobQueueWorker.order(Map.of(1L, 3L), now, 60000L));
+
+    assertEquals(List.of(interactive, idleUser, idleUserLater, busyUser, batch), jobs);
+  }
+
+  @Test
+  public void waiting_jobs_gain_priority_up_to_interactive() {
+    Instant now = Instant.parse("2025-04-01T12:00:00Z");
+    QueuedJob batch = new QueuedJob(1L, 1L, JobPriority.BATCH, now.minusSeconds(150));
+
+    assertEquals(JobPriority.NORMAL, JobQueueWorker.effectivePriority(batch, now, 100000L));
+    assertEquals(JobPriority.INTERACTIVE, JobQueueWorker.effectivePriority(batch, now, 60000L));
+    assertEquals(JobPriority.INTERACTIVE, JobQueueWorker.effectivePriority(batch, now, 1000L));
+    // a clock that went backwards does not lower a job
+    assertEquals(
+        JobPriority.BATCH,
+        JobQueueWorker.effectivePriority(batch, now.minusSeconds(600), 60000L));
+  }
+
+  @Test
+  public void aged_batch_job_overtakes_new_interactive_jobs() {
+    Instant now = Instant.parse("2025-04-01T12:00:00Z");
+    QueuedJob oldBatch = new QueuedJob(1L, 1L, JobPriority.BATCH, now.minusSeconds(120));
+    QueuedJob newInteractive = new QueuedJob(2L, 2L, JobPriority.INTERACTIVE, now);
+    List<QueuedJob> jobs = new ArrayList<>(List.of(newInteractive, oldBatch));
+
+    jobs.sort(JobQueueWorker.order(Map.of(), now, 60000L));
+
+    assertEquals(List.of(oldBatch, newInteractive), jobs);
+  }
+
+  @Test
+  public void start_of_deleted_job_does_nothing() {
+    when(jobsRepository.findById(9L)).thenReturn(Optional.empty());
+
+    jobQueueWorker.start(9L);
+
+    verifyNoInteractions(jobExecutor);
+  }
+
+  @Test
+  public void start_of_unknown_job_type_fails_the_job() throws Exception {
+    Job job = Job.builder().id(5L).status("running").type("Gone").params("{}").build();
+    when(jobsRepository.findById(5L)).thenReturn(Optional.of(job));
+    when(jobTypeRegistry.deserialize("Gone", "{}"))
+        .thenThrow(new IllegalArgumentException("Unknown job type Gone"));
+    runSubmittedTasks();
+
+    jobQueueWorker.start(5L);
+
+    ArgumentCaptor<JobContextConsumer> captor = ArgumentCaptor.forClass(JobContextConsumer.class);
+    verify(jobService).runJob(eq(job), captor.capture());
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> captor.getValue().accept(null));
+    assertEquals("Unknown job type Gone", e.getMessage());
+  }
+
+  @Test
+  public void start_releases_claim_when_executor_rejects() {
+    durableJob(6L);
+    doThrow(new TaskRejectedException("full")).when(jobExecutor).execute(any(Runnable.class));
+
+    jobQueueWorker.start(6L);
+
+    verify(jdbcTemplate).update(JobQueueWorker.RELEASE_SQL, 6L, JobQueueWorker.WORKER_ID);
+    verify(jobService, never()).runJob(any(), any());
+  }
+
+  @Test
+  public void start_keeps_local_job_on_this_node_when_executor_rejects() {
+    Job job = Job.builder().id(6L).status("running").build();
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(job));
+    JobContextConsumer fn = ctx -> {};
+    when(jobService.takeLocalJob(6L)).thenReturn(fn);
+    doThrow(new TaskRejectedException("full")).when(jobExecutor).execute(any(Runnable.class));
+
+    jobQueueWorker.start(6L);
+
+    verify(jdbcTemplate).update(JobQueueWorker.RELEASE_LOCAL_SQL, 6L, JobQueueWorker.WORKER_ID);
+    verify(jobService).returnLocalJob(6L, fn);
+  }
+}
@@ -0,0 +1,196 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.models.JobResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobResultStoreTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @InjectMocks private JobResultStore jobResultStore;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobResultStore, "chunkSizeBytes", 2);
+  }
+
+  @Test
+  public void save_replaces_the_result_of_the_job_in_chunks() throws Exception {
+    InputStream data = new ByteArrayInputStream(new byte[] {1, 2, 3});
+
+    jobResultStore.save(5L, "text/csv; charset=utf-8", data, 3L);
+
+    InOrder inOrder = inOrder(jdbcTemplate);
+    inOrder.verify(jdbcTemplate).update(JobResultStore.DELETE_SQL, 5L);
+    inOrder
+        .verify(jdbcTemplate)
+        .update(
+            eq(JobResultStore.INSERT_SQL),
+            eq(5L),
+            eq("text/csv;charset=utf-8"),
+            eq(3L),
+            any(OffsetDateTime.class));
+    inOrder
+        .verify(jdbcTemplate)
+        .update(JobResultStore.INSERT_CHUNK_SQL, 5L, 0, new byte[] {1, 2});
+    inOrder.verify(jdbcTemplate).update(JobResultStore.INSERT_CHUNK_SQL, 5L, 1, new byte[] {3});
+    inOrder.verifyNoMoreInteractions();
+  }
+
+  @Test
+  public void save_reads_no_further_than_sizeBytes() throws Exception {
+    InputStream data = new ByteArrayInputStream(new byte[] {1, 2, 3});
+
+    jobResultStore.save(5L, "text/csv", data, 2L);
+
+    verify(jdbcTemplate).update(JobResultStore.INSERT_CHUNK_SQL, 5L, 0, new byte[] {1, 2});
+    verify(jdbcTemplate, never()).update(eq(JobResultStore.INSERT_CHUNK_SQL), eq(5L), eq(1), any());
+    assertEquals(1, data.available());
+  }
+
+  @Test
+  public void save_refuses_data_shorter_than_sizeBytes() throws Exception {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                jobResultStore.save(5L, "text/csv", new ByteArrayInputStream(new byte[] {1}), 3L));
+
+    assertEquals("Result of job 5 ended after 1 of 3 bytes", e.getMessage());
+  }
+
+  @Test
+  public void save_passes_on_read_errors() throws Exception {
+    InputStream data =
+        new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("disk error");
+          }
+        };
+
+    UncheckedIOException e =
+        assertThrows(
+            UncheckedIOException.class, () -> jobResultStore.save(5L, "text/csv", data, 3L));
+
+    assertEquals("disk error", e.getCause().getMessage());
+  }
+
+  @Test
+  public void save_refuses_a_bad_content_type() throws Exception {
+    assertThrows(
+        InvalidMediaTypeException.class,
+        () -> jobResultStore.save(5L, "csv", new ByteArrayInputStream(new byte[0]), 0L));
+
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void find_describes_the_result_without_its_data() throws Exception {
+    OffsetDateTime createdAt = OffsetDateTime.parse("2025-05-01T12:00:00-07:00");
+    when(jdbcTemplate.query(eq(JobResultStore.SELECT_SQL), any(RowMapper.class), eq(5L)))
+        .thenAnswer(
+            invocation -> {
+              RowMapper<JobResult> mapper = invocation.getArgument(1);
+              ResultSet rs = mock(ResultSet.class);
+              when(rs.getLong("job_id")).thenReturn(5L);
+              when(rs.getString("content_type")).thenReturn("application/json");
+              when(rs.getLong("size_bytes")).thenReturn(42L);
+              when(rs.getObject("created_at", OffsetDateTime.class)).thenReturn(createdAt);
+              return List.of(mapper.mapRow(rs, 0));
+            });
+
+    assertEquals(
+        Optional.of(
+            JobResult.builder()
+                .jobId(5L)
+                .contentType("application/json")
+                .sizeBytes(42L)
+                .createdAt(createdAt.toZonedDateTime())
+                .build()),
+        jobResultStore.find(5L));
+    assertEquals(Optional.empty(), jobResultStore.find(6L));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void stored(byte[]... chunks) throws Exception {
+    when(jdbcTemplate.query(
+            eq(JobResultStore.SELECT_CHUNK_SQL), any(RowMapper.class), eq(5L), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              int seq = invocation.getArgument(3);
+              if (seq >= chunks.length) {
+                return List.of();
+              }
+              RowMapper<byte[]> mapper = invocation.getArgument(1);
+              ResultSet rs = mock(ResultSet.class);
+              when(rs.getBytes(1)).thenReturn(chunks[seq]);
+              return List.of(mapper.mapRow(rs, 0));
+            });
+  }
+
+  @Test
+  public void copyTo_streams_the_stored_chunks_in_order() throws Exception {
+    stored(new byte[] {1, 2}, new byte[] {3});
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    jobResultStore.copyTo(5L, out);
+
+    assertArrayEquals(new byte[] {1, 2, 3}, out.toByteArray());
+  }
+
+  @Test
+  public void copyTo_writes_nothing_without_a_result() throws Exception {
+    stored();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    jobResultStore.copyTo(5L, out);
+
+    assertEquals(0, out.size());
+  }
+
+  @Test
+  public void copyTo_passes_on_write_errors() throws Exception {
+    stored(new byte[] {1, 2, 3});
+    OutputStream out =
+        new OutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            throw new IOException("client went away");
+          }
+        };
+
+    IOException e = assertThrows(IOException.class, () -> jobResultStore.copyTo(5L, out));
+
+    assertEquals("client went away", e.getMessage());
+  }
+}
@@ -0,0 +1,165 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobRetentionServiceTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @InjectMocks private JobRetentionService jobRetentionService;
+
+  private JobRetentionService self;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    self = mock(JobRetentionService.class);
+    ReflectionTestUtils.setField(jobRetentionService, "self", self);
+    ReflectionTestUtils.setField(jobRetentionService, "enabled", true);
+    ReflectionTestUtils.setField(jobRetentionService, "maxAgeDays", 30);
+    ReflectionTestUtils.setField(jobRetentionService, "batchSize", 2);
+    ReflectionTestUtils.setField(jobRetentionService, "maxLogLines", 10);
+  }
+
+  @Test
+  public void only_finished_jobs_are_touched() {
+    assertEquals("('cancelled', 'complete', 'error', 'timed_out')", JobRetentionService.FINISHED);
+  }
+
+  @Test
+  public void run_does_nothing_when_disabled() {
+    ReflectionTestUtils.setField(jobRetentionService, "enabled", false);
+
+    jobRetentionService.run();
+
+    verifyNoInteractions(jdbcTemplate, self);
+  }
+
+  @Test
+  public void run_deletes_expired_jobs_and_truncates_logs() {
+    when(jdbcTemplate.queryForList(
+            eq(JobRetentionService.EXPIRED_JOBS_SQL), eq(Long.class), any(Timestamp.class), eq(2)))
+        .thenReturn(List.of(1L));
+    when(jdbcTemplate.queryForList(JobRetentionService.OVERSIZED_LOGS_SQL, Long.class, 10, 2))
+        .thenReturn(List.of(7L));
+
+    jobRetentionService.run();
+
+    verify(jdbcTemplate, times(1))
+        .batchUpdate(eq(JobRetentionService.DELETE_JOB_SQL), eq(List.of(1L)), eq(1), any());
+    verify(self, times(1)).truncateLog(7L);
+  }
+
+  @Test
+  public void run_with_nothing_to_do_deletes_nothing() {
+    jobRetentionService.run();
+
+    verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList(), anyInt(), any());
+    verifyNoInteractions(self);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void deleteExpiredJobs_deletes_in_batches() throws Exception {
+    when(jdbcTemplate.queryForList(
+            eq(JobRetentionService.EXPIRED_JOBS_SQL), eq(Long.class), any(Timestamp.class), eq(2)))
+        .thenReturn(List.of(1L, 2L), List.of(3L));
+
+    assertEquals(3, jobRetentionService.deleteExpiredJobs());
+
+    ArgumentCaptor<ParameterizedPreparedStatementSetter<Long>> setter =
+        ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq(JobRetentionService.DELETE_JOB_SQL), eq(List.of(1L, 2L)), eq(2), setter.capture());
+    verify(jdbcTemplate)
+        .batchUpdate(eq(JobRetentionService.DELETE_JOB_SQL), eq(List.of(3L)), eq(1), any());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    setter.getValue().setValues(ps, 2L);
+    verify(ps).setLong(1, 2L);
+  }
+
+  @Test
+  public void deleteExpiredJobs_stops_when_a_full_batch_is_followed_by_nothing() {
+    when(jdbcTemplate.queryForList(
+            eq(JobRetentionService.EXPIRED_JOBS_SQL), eq(Long.class), any(Timestamp.class), eq(2)))
+        .thenReturn(List.of(1L, 2L), List.of());
+
+    assertEquals(2, jobRetentionService.deleteExpiredJobs());
+  }
+
+  @Test
+  public void truncateOversizedLogs_counts_logs_actually_truncated() {
+    when(jdbcTemplate.queryForList(JobRetentionService.OVERSIZED_LOGS_SQL, Long.class, 10, 2))
+        .thenReturn(List.of(4L, 5L), List.of(6L));
+    when(self.truncateLog(4L)).thenReturn(true);
+    when(self.truncateLog(5L)).thenReturn(false);
+    when(self.truncateLog(6L)).thenReturn(true);
+
+    assertEquals(2, jobRetentionService.truncateOversizedLogs());
+  }
+
+  @Test
+  public void truncateLog_of_deleted_job_does_nothing() {
+    when(jdbcTemplate.queryForList(JobRetentionService.LOCK_JOB_SQL, Long.class, 5L))
+        .thenReturn(List.of());
+
+    assertFalse(jobRetentionService.truncateLog(5L));
+
+    verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+  }
+
+  @Test
+  public void truncateLog_of_short_log_does_nothing() {
+    when(jdbcTemplate.queryForList(JobRetentionService.LOCK_JOB_SQL, Long.class, 5L))
+        .thenReturn(List.of(5L));
+    when(jdbcTemplate.queryForObject(JobRetentionService.COUNT_LINES_SQL, Long.class, 5L))
+        .thenReturn(10L);
+
+    assertFalse(jobRetentionService.truncateLog(5L));
+
+    verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+  }
+
+  @Test
+  public void truncateLog_keeps_head_and_tail_with_contiguous_line_numbers() {
+    when(jdbcTemplate.queryForList(JobRetentionService.LOCK_JOB_SQL, Long.class, 5L))
+        .thenReturn(List.of(5L));
+    when(jdbcTemplate.queryForObject(JobRetentionService.COUNT_LINES_SQL, Long.class, 5L))
+        .thenReturn(25L);
+
+    assertTrue(jobRetentionService.truncateLog(5L));
+
+    // lines 0-4 stay, 5-20 go, 21-24 become 6-9 after the marker at 5
+    verify(jdbcTemplate).update(JobRetentionService.DELETE_MIDDLE_SQL, 5L, 5L, 21L);
+    verify(jdbcTemplate).update(JobRetentionService.PARK_TAIL_SQL, 5L, 21L);
+    verify(jdbcTemplate).update(JobRetentionService.MOVE_TAIL_SQL, 15L, 5L);
+    verify(jdbcTemplate)
+        .update(
+            eq(JobLogWriter.INSERT_SQL),
+            eq(5L),
+            eq(5L),
+            any(),
+            eq("[16 lines removed by log retention]"));
+  }
+}
@@ -0,0 +1,892 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.ChildJobsFailedException;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.CompressedJobLog;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobSummaryPage;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import org.junit.jupiter.api.BeforeEach;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogWriter jobLogWriter;
+
+  @Mock private JobLogStreamer jobLogStreamer;
+
+  @Mock private JobProgressWriter jobProgressWriter;
+
+  @Mock private JobLogArchiver jobLogArchiver;
+
+  @Mock private JobResultStore jobResultStore;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobTypeRegistry jobTypeRegistry;
+
+  @Mock private TaskScheduler taskScheduler;
+
+  @Mock private ThreadPoolTaskExecutor jobExecutor;
+
+  @Mock private JobQueueWorker jobQueueWorker;
+
+  @InjectMocks private JobService jobService;
+
+  private final User user = User.builder().id(1L).email("admin@example.org").build();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobService, "queueCapacity", 10);
+    when(currentUserService.getUser()).thenReturn(user);
+  }
+
+  @Test
+  public void runAsJob_records_job_as_queued_and_offers_it_to_the_worker() {
+    JobContextConsumer fn = ctx -> {};
+
+    Job job = jobService.runAsJob(fn);
+
+    assertEquals("queued", job.getStatus());
+    assertEquals(user, job.getCreatedBy());
+    assertEquals(JobQueueWorker.WORKER_ID, job.getWorkerId());
+    assertEquals(JobPriority.NORMAL, job.getPriority());
+    assertNotNull(job.getHeartbeatAt());
+    // inserted, then made claimable
+    verify(jobsRepository, times(2)).save(job);
+    verify(jobQueueWorker, times(1)).poll();
+    assertEquals(Set.of(job.getId()), jobService.getOwnedJobIds());
+    assertEquals(fn, jobService.takeLocalJob(job.getId()));
+  }
+
+  @Test
+  public void runAsJob_holds_a_local_job_before_a_poll_can_claim_it() throws Exception {
+    JobContextConsumer fn = ctx -> {};
+    List<JobContextConsumer> started = new CopyOnWriteArrayList<>();
+    List<Exception> failures = new CopyOnWriteArrayList<>();
+    // a poll on the scheduler thread runs while each write of the row is in progress, and
+    // starts the job if the row is claimable, as JobQueueWorker.poll and start do
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job row = invocation.getArgument(0);
+              row.setId(60L);
+              boolean claimable =
+                  "queued".equals(row.getStatus())
+                      && row.getType() == null
+                      && JobQueueWorker.WORKER_ID.equals(row.getWorkerId());
+              Thread poll =
+                  new Thread(
+                      () -> {
+                        if (claimable) {
+                          try {
+                            started.add(jobService.takeLocalJob(row.getId()));
+                          } catch (IllegalArgumentException e) {
+                            failures.add(e);
+                          }
+                        }
+                      });
+              poll.start();
+              poll.join();
+              return row;
+            });
+
+    jobService.runAsJob(fn);
+
+    assertEquals(List.of(), failures);
+    assertEquals(List.of(fn), started);
+    assertThrows(IllegalArgumentException.class, () -> jobService.takeLocalJob(60L));
+  }
+
+  @Test
+  public void runAsJob_forgets_a_local_job_it_cannot_make_claimable() {
+    RuntimeException failure = new RuntimeException("connection lost");
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job row = invocation.getArgument(0);
+              row.setId(61L);
+              return row;
+            })
+        .thenThrow(failure);
+
+    RuntimeException e =
+        assertThrows(RuntimeException.class, () -> jobService.runAsJob(ctx -> {}));
+
+    assertEquals(failure, e);
+    assertEquals(Set.of(), jobService.getOwnedJobIds());
+    assertThrows(IllegalArgumentException.class, () -> jobService.takeLocalJob(61L));
+    verify(jobQueueWorker, never()).poll();
+  }
+
+  @JobPriority(JobPriority.BATCH)
+  static class BatchJob implements JobContextConsumer {
+    @Override
+    public void accept(JobContext ctx) {}
+  }
+
+  @JobPriority(5)
+  static class UrgentJob implements JobContextConsumer {
+    @Override
+    public void accept(JobContext ctx) {}
+  }
+
+  @Test
+  public void runAsJob_records_the_priority_of_the_job_class() {
+    Job job = jobService.runAsJob(new BatchJob());
+
+    assertEquals(JobPriority.BATCH, job.getPriority());
+  }
+
+  @Test
+  public void priorityOf_clamps_to_the_known_levels() {
+    assertEquals(JobPriority.NORMAL, JobService.priorityOf(ctx -> {}));
+    assertEquals(JobPriority.BATCH, JobService.priorityOf(new BatchJob()));
+    assertEquals(JobPriority.INTERACTIVE, JobService.priorityOf(new UrgentJob()));
+  }
+
+  @Test
+  public void runAsJob_stores_registered_job_types_in_the_durable_queue() {
+    TestJob testJob = TestJob.builder().fail(false).sleepMs(10).build();
+    when(jobTypeRegistry.typeOf(testJob)).thenReturn(Optional.of("TestJob"));
+    when(jobTypeRegistry.serialize(testJob)).thenReturn("{\"fail\":false,\"sleepMs\":10}");
+
+    Job job = jobService.runAsJob(testJob);
+
+    assertEquals("queued", job.getStatus());
+    assertEquals("TestJob", job.getType());
+    assertEquals("{\"fail\":false,\"sleepMs\":10}", job.getParams());
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobQueueWorker, never()).poll();
+  }
+
+  @Test
+  public void runAsJob_rejects_when_too_many_jobs_are_queued() {
+    when(jobsRepository.countByStatus("queued")).thenReturn(10L);
+
+    assertThrows(JobQueueFullException.class, () -> jobService.runAsJob(ctx -> {}));
+
+    verify(jobsRepository, never()).save(any(Job.class));
+  }
+
+  @Test
+  public void takeLocalJob_hands_each_local_job_over_once() {
+    JobContextConsumer fn = ctx -> {};
+    jobService.returnLocalJob(12L, fn);
+
+    assertEquals(fn, jobService.takeLocalJob(12L));
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> jobService.takeLocalJob(12L));
+    assertEquals("Job 12 is no longer waiting on this node", e.getMessage());
+  }
+
+  @Test
+  public void runJob_marks_job_running_then_complete() throws Exception {
+    Job job = Job.builder().id(3L).status("queued").build();
+    JobContextConsumer fn =
+        ctx -> {
+          assertEquals("running", ctx.getJob().getStatus());
+          assertEquals(JobQueueWorker.WORKER_ID, ctx.getJob().getWorkerId());
+          assertEquals(Set.of(3L), jobService.getOwnedJobIds());
+          ctx.log("working");
+        };
+
+    jobService.runJob(job, fn);
+
+    assertEquals("complete", job.getStatus());
+    verify(jobsRepository, times(2)).save(job);
+    verify(jobLogWriter, times(1)).append(any());
+    verify(jobLogWriter, times(1)).flush();
+    verify(jobLogStreamer, times(1)).complete(3L);
+    assertEquals(Set.of(), jobService.getOwnedJobIds());
+    verify(jobLogArchiver, times(1)).archive(3L);
+    verify(jobProgressWriter, times(1)).track(any(JobContext.class));
+    verify(jobProgressWriter, times(1)).release(any(JobContext.class));
+  }
+
+  @Test
+  public void runJob_of_requeued_job_continues_after_existing_log_lines() throws Exception {
+    Job job = Job.builder().id(8L).status("running").build();
+    when(jobLogLinesRepository.countByJobId(8L)).thenReturn(12L);
+
+    jobService.runJob(job, ctx -> ctx.log("again"));
+
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, times(1)).append(lines.capture());
+    assertEquals(12L, lines.getValue().getSeq());
+  }
+
+  @Test
+  public void runJob_runs_test_job_and_logs_its_lines() throws Exception {
+    Job job = Job.builder().id(4L).status("running").build();
+
+    jobService.runJob(job, TestJob.builder().fail(false).sleepMs(0).build());
+
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, times(2)).append(lines.capture());
+    assertEquals(
+        List.of("Hello World! from test job!", "Goodbye from test job!"),
+        lines.getAllValues().stream().map(JobLogLine::getMessage).toList());
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  public void runJob_records_error_when_job_throws() throws Exception {
+    Job job = Job.builder().id(5L).status("running").build();
+
+    jobService.runJob(job, TestJob.builder().fail(true).sleepMs(0).build());
+
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, times(2)).append(lines.capture());
+    assertEquals("Fail!", lines.getAllValues().get(1).getMessage());
+    assertEquals("error", job.getStatus());
+    verify(jobLogWriter, times(1)).flush();
+    verify(jobLogStreamer, times(1)).complete(5L);
+  }
+
+  @Test
+  public void runAsJob_records_the_timeout() {
+    Job job = jobService.runAsJob(ctx -> {}, 5000L);
+
+    assertEquals(5000L, job.getTimeoutMs());
+  }
+
+  @Test
+  public void runJob_skips_job_cancelled_while_it_was_queued() throws Exception {
+    Job job = Job.builder().id(6L).status("queued").build();
+    when(jobsRepository.findStatusById(6L)).thenReturn("cancelled");
+    JobContextConsumer fn = mock(JobContextConsumer.class);
+
+    jobService.runJob(job, fn);
+
+    verifyNoInteractions(fn);
+    assertEquals("cancelled", job.getStatus());
+    verify(jobsRepository, never()).save(job);
+    verify(jobLogStreamer, times(1)).complete(6L);
+    assertEquals(Set.of(), jobService.getOwnedJobIds());
+  }
+
+  @Test
+  public void cancelJob_cancels_a_queued_job() {
+    Job queued = Job.builder().id(6L).status("queued").build();
+    Job cancelled = Job.builder().id(6L).status("cancelled").build();
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(queued), Optional.of(cancelled));
+    when(jobsRepository.cancelIfQueued(6L)).thenReturn(1);
+
+    assertEquals(cancelled, jobService.cancelJob(6L));
+    verify(jobsRepository, never()).requestCancel(6L);
+    verify(jobLogStreamer, never()).complete(6L);
+  }
+
+  @Test
+  public void cancelJob_forgets_a_queued_local_job() {
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job saved = invocation.getArgument(0);
+              saved.setId(6L);
+              return saved;
+            });
+    Job queued = jobService.runAsJob(ctx -> {});
+    Job cancelled = Job.builder().id(6L).status("cancelled").build();
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(queued), Optional.of(cancelled));
+    when(jobsRepository.cancelIfQueued(6L)).thenReturn(1);
+
+    assertEquals(cancelled, jobService.cancelJob(6L));
+    verify(jobLogStreamer, times(1)).complete(6L);
+    assertEquals(Set.of(), jobService.getOwnedJobIds());
+    assertThrows(IllegalArgumentException.class, () -> jobService.takeLocalJob(6L));
+  }
+
+  @Test
+  public void cancelJob_leaves_finished_jobs_alone() {
+    Job job = Job.builder().id(6L).status("complete").build();
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(job));
+
+    assertEquals(job, jobService.cancelJob(6L));
+    verify(jobsRepository, never()).cancelIfQueued(6L);
+    verify(jobsRepository, never()).requestCancel(6L);
+  }
+
+  @Test
+  public void cancelJob_throws_when_job_does_not_exist() {
+    when(jobsRepository.findById(6L)).thenReturn(Optional.empty());
+
+    assertThrows(EntityNotFoundException.class, () -> jobService.cancelJob(6L));
+  }
+
+  @Test
+  public void cancelJob_of_job_running_elsewhere_only_records_the_request() {
+    Job job = Job.builder().id(6L).status("running").build();
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(job));
+    when(jobsRepository.requestCancel(6L)).thenReturn(1);
+
+    assertEquals(job, jobService.cancelJob(6L));
+    assertFalse(jobService.stopRunningJob(6L, "cancelled"));
+  }
+
+  @Test
+  public void runJob_stops_job_cancelled_while_running() throws Exception {
+    Job job = Job.builder().id(6L).status("queued").build();
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(job));
+    when(jobsRepository.requestCancel(6L)).thenReturn(1);
+
+    jobService.runJob(
+        job,
+        ctx -> {
+          ctx.log("started");
+          jobService.cancelJob(6L);
+          assertTrue(Thread.currentThread().isInterrupted());
+          ctx.checkpoint();
+          ctx.log("never logged");
+        });
+
+    assertEquals("cancelled", job.getStatus());
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, times(2)).append(lines.capture());
+    assertEquals(
+        List.of("started", "Job cancelled"),
+        lines.getAllValues().stream().map(JobLogLine::getMessage).toList());
+    verify(jobLogStreamer, times(1)).complete(6L);
+    // the interrupt must not leak into the next job run on this thread
+    assertFalse(Thread.currentThread().isInterrupted());
+    assertFalse(jobService.stopRunningJob(6L, "cancelled"));
+  }
+
+  @Test
+  public void runJob_interrupts_job_that_runs_past_its_timeout() throws Exception {
+    Job job = Job.builder().id(7L).status("running").timeoutMs(50L).build();
+    ScheduledFuture<?> future = mock(ScheduledFuture.class);
+    ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+    doReturn(future).when(taskScheduler).schedule(timeout.capture(), any(Instant.class));
+
+    jobService.runJob(
+        job,
+        ctx -> {
+          timeout.getValue().run(); // the timeout fires while the job is sleeping
+          Thread.sleep(60000);
+        });
+
+    assertEquals("timed_out", job.getStatus());
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, times(1)).append(lines.capture());
+    assertEquals("Job timed out after 50 ms", lines.getValue().getMessage());
+    verify(future, times(1)).cancel(false);
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  private JobSummary summary(long id, ZonedDateTime createdAt) {
+    return JobSummary.builder().id(id).status("complete").createdAt(createdAt).build();
+  }
+
+  @Test
+  public void getJobSummaries_returns_last_page_without_cursor() {
+    ZonedDateTime t = ZonedDateTime.parse("2025-05-01T12:00:00Z");
+    List<JobSummary> rows = List.of(summary(2L, t), summary(1L, t.minusHours(1)));
+    when(jobsRepository.findSummariesBefore(
+            any(ZonedDateTime.class), eq(Long.MAX_VALUE), eq(PageRequest.of(0, 3))))
+        .thenReturn(rows);
+
+    JobSummaryPage page = jobService.getJobSummaries(null, null, null, 2);
+
+    assertEquals(rows, page.getJobs());
+    assertNull(page.getNextBeforeCreatedAt());
+    assertNull(page.getNextBeforeId());
+  }
+
+  @Test
+  public void getJobSummaries_returns_cursor_of_next_page() {
+    ZonedDateTime t = ZonedDateTime.parse("2025-05-01T12:00:00Z");
+    List<JobSummary> rows = List.of(summary(9L, t), summary(8L, t), summary(7L, t));
+    when(jobsRepository.findSummariesByStatusBefore(
+            "complete", t.plusHours(1), 20L, PageRequest.of(0, 3)))
+        .thenReturn(rows);
+
+    JobSummaryPage page = jobService.getJobSummaries("complete", t.plusHours(1), 20L, 2);
+
+    assertEquals(rows.subList(0, 2), page.getJobs());
+    assertEquals(t, page.getNextBeforeCreatedAt());
+    assertEquals(8L, page.getNextBeforeId());
+  }
+
+  @Test
+  public void getJobSummaries_clamps_page_size_and_ignores_incomplete_cursor() {
+    ZonedDateTime t = ZonedDateTime.parse("2025-05-01T12:00:00Z");
+
+    jobService.getJobSummaries(null, t, null, 100000);
+    jobService.getJobSummaries(null, null, 5L, 0);
+
+    verify(jobsRepository)
+        .findSummariesBefore(
+            t, Long.MAX_VALUE, PageRequest.of(0, JobService.MAX_SUMMARY_PAGE_SIZE + 1));
+    verify(jobsRepository)
+        .findSummariesBefore(
+            any(ZonedDateTime.class), eq(Long.MAX_VALUE), eq(PageRequest.of(0, 2)));
+  }
+
+  @Test
+  public void runJob_finishes_job_even_if_its_log_cannot_be_compressed() throws Exception {
+    Job job = Job.builder().id(9L).status("running").build();
+    when(jobLogArchiver.archive(9L)).thenThrow(new IOException("disk full"));
+
+    jobService.runJob(job, ctx -> ctx.log("done"));
+
+    assertEquals("complete", job.getStatus());
+    verify(jobLogStreamer, times(1)).complete(9L);
+    assertEquals(Set.of(), jobService.getOwnedJobIds());
+  }
+
+  @Test
+  public void getCompressedJobLog_returns_the_stored_bytes() {
+    CompressedJobLog compressed =
+        CompressedJobLog.builder().lineCount(2).gzip(new byte[] {1, 2}).build();
+    when(jobLogArchiver.findCompressed(9L)).thenReturn(Optional.of(compressed));
+
+    assertEquals(Optional.of(compressed), jobService.getCompressedJobLog(9L));
+  }
+
+  // gives child jobs ids as they are saved, the way the database would
+  private List<Job> savedChildren(long firstId) {
+    List<Job> children = new CopyOnWriteArrayList<>();
+    AtomicLong nextId = new AtomicLong(firstId);
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              if (job.getParentId() != null && job.getId() == 0) {
+                job.setId(nextId.getAndIncrement());
+                children.add(job);
+              }
+              return job;
+            });
+    return children;
+  }
+
+  @Test
+  public void runChildren_runs_children_on_the_executor_and_returns_their_results()
+      throws Exception {
+    Job parent = Job.builder().id(10L).createdBy(user).status("queued").build();
+    List<Job> children = savedChildren(11L);
+    when(jobExecutor.getMaxPoolSize()).thenReturn(4);
+    doAnswer(
+            invocation -> {
+              invocation.<Runnable>getArgument(0).run();
+              return null;
+            })
+        .doThrow(new TaskRejectedException("busy"))
+        .when(jobExecutor)
+        .execute(any(Runnable.class));
+    List<List<String>> results = new CopyOnWriteArrayList<>();
+    List<Long> progress = new CopyOnWriteArrayList<>();
+
+    jobService.runJob(
+        parent,
+        ctx -> {
+          results.add(
+              ctx.runChildren(
+                  List.<ChildJob<String>>of(
+                      c -> "a" + c.getJob().getId(),
+                      c -> "b" + c.getJob().getId(),
+                      c -> "c" + c.getJob().getId())));
+          progress.add(ctx.getProgressDone());
+          progress.add(ctx.getProgressTotal());
+        });
+
+    assertEquals("complete", parent.getStatus());
+    assertEquals(List.of(List.of("a11", "b12", "c13")), results);
+    assertEquals(List.of(3L, 3L), progress);
+    verify(jobExecutor, times(2)).execute(any(Runnable.class));
+    assertEquals(3, children.size());
+    for (Job child : children) {
+      assertEquals(10L, child.getParentId());
+      assertEquals(user, child.getCreatedBy());
+      assertEquals("complete", child.getStatus());
+      verify(jobLogStreamer, times(1)).complete(child.getId());
+    }
+    assertEquals(Set.of(), jobService.getOwnedJobIds());
+  }
+
+  @Test
+  public void runChildren_fails_the_parent_when_a_child_fails() throws Exception {
+    Job parent = Job.builder().id(10L).status("queued").build();
+    List<Job> children = savedChildren(11L);
+
+    jobService.runJob(
+        parent,
+        ctx -> {
+          ChildJobsFailedException e =
+              assertThrows(
+                  ChildJobsFailedException.class,
+                  () ->
+                      ctx.runChildren(
+                          List.<ChildJob<String>>of(
+                              c -> "a",
+                              c -> {
+                                throw new IllegalStateException("boom");
+                              })));
+          assertEquals(1, e.getSuppressed().length);
+          throw e;
+        });
+
+    assertEquals("error", parent.getStatus());
+    assertEquals("complete", children.get(0).getStatus());
+    assertEquals("error", children.get(1).getStatus());
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, atLeastOnce()).append(lines.capture());
+    assertEquals(
+        List.of("Started 2 child jobs", "boom", "1 of 2 child jobs failed: boom"),
+        lines.getAllValues().stream().map(JobLogLine::getMessage).toList());
+  }
+
+  @Test
+  public void runChildren_cancels_children_that_have_not_started_when_parent_is_cancelled()
+      throws Exception {
+    Job parent = Job.builder().id(10L).status("queued").build();
+    List<Job> children = savedChildren(11L);
+
+    jobService.runJob(
+        parent,
+        ctx ->
+            ctx.runChildren(
+                List.<ChildJob<String>>of(
+                    c -> {
+                      jobService.stopRunningJob(10L, "cancelled");
+                      c.checkpoint();
+                      return "a";
+                    },
+                    c -> "b")));
+
+    assertEquals("cancelled", parent.getStatus());
+    assertEquals("cancelled", children.get(0).getStatus());
+    assertEquals("cancelled", children.get(1).getStatus());
+    verify(jobLogStreamer, times(1)).complete(12L);
+    assertEquals(Set.of(), jobService.getOwnedJobIds());
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void runChildren_stops_running_children_when_parent_is_cancelled_while_waiting()
+      throws Exception {
+    Job parent = Job.builder().id(20L).status("queued").build();
+    List<Job> children = savedChildren(21L);
+    Thread parentThread = Thread.currentThread();
+    CountDownLatch helperStarted = new CountDownLatch(1);
+    when(jobExecutor.getMaxPoolSize()).thenReturn(2);
+    doAnswer(
+            invocation -> {
+              new Thread(invocation.<Runnable>getArgument(0)).start();
+              helperStarted.await();
+              return null;
+            })
+        .when(jobExecutor)
+        .execute(any(Runnable.class));
+    // cancels the parent once it is waiting for the helper's child
+    Thread canceller =
+        new Thread(
+            () -> {
+              while (parentThread.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+              }
+              jobService.stopRunningJob(20L, "cancelled");
+            });
+
+    jobService.runJob(
+        parent,
+        ctx ->
+            ctx.runChildren(
+                List.<ChildJob<String>>of(
+                    c -> {
+                      // runs on the helper until it is interrupted
+                      helperStarted.countDown();
+                      new CountDownLatch(1).await();
+                      return "a";
+                    },
+                    c -> {
+                      canceller.start();
+                      return "b";
+                    })));
+
+    canceller.join();
+    assertEquals("cancelled", parent.getStatus());
+    assertEquals("cancelled", children.get(0).getStatus());
+    assertEquals("complete", children.get(1).getStatus());
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void runChildren_stops_children_when_parent_times_out() throws Exception {
+    Job parent = Job.builder().id(10L).status("queued").timeoutMs(50L).build();
+    List<Job> children = savedChildren(11L);
+    ScheduledFuture<?> future = mock(ScheduledFuture.class);
+    ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+    doReturn(future).when(taskScheduler).schedule(timeout.capture(), any(Instant.class));
+
+    jobService.runJob(
+        parent,
+        ctx ->
+            ctx.runChildren(
+                List.<ChildJob<String>>of(
+                    c -> {
+                      timeout.getValue().run(); // the parent's timeout fires
+                      Thread.sleep(60000);
+                      return "a";
+                    })));
+
+    assertEquals("timed_out", parent.getStatus());
+    assertEquals("timed_out", children.get(0).getStatus());
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, atLeastOnce()).append(lines.capture());
+    assertEquals(
+        List.of("Started 1 child jobs", "Parent job timed out", "Job timed out after 50 ms"),
+        lines.getAllValues().stream().map(JobLogLine::getMessage).toList());
+  }
+
+  @RetryPolicy(
+      maxAttempts = 2,
+      initialDelayMs = 100,
+      jitter = 0,
+      retryOn = IllegalStateException.class)
+  static class FlakyJob implements JobContextConsumer {
+    private final Exception failure;
+
+    FlakyJob(Exception failure) {
+      this.failure = failure;
+    }
+
+    @Override
+    public void accept(JobContext ctx) throws Exception {
+      if (failure != null) {
+        throw failure;
+      }
+      ctx.log("done");
+    }
+  }
+
+  @RetryPolicy
+  static class DefaultRetryPolicy {}
+
+  private List<String> loggedMessages() {
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogWriter, atLeastOnce()).append(lines.capture());
+    return lines.getAllValues().stream().map(JobLogLine::getMessage).toList();
+  }
+
+  @Test
+  public void runJob_queues_a_local_job_again_when_it_fails_and_can_be_retried() throws Exception {
+    Job job = Job.builder().id(30L).status("queued").build();
+    FlakyJob flakyJob = new FlakyJob(new IllegalStateException("lock timeout"));
+
+    ZonedDateTime before = ZonedDateTime.now();
+    jobService.runJob(job, flakyJob);
+
+    assertEquals("queued", job.getStatus());
+    assertEquals(1, job.getAttempts());
+    assertFalse(job.getNextAttemptAt().isBefore(before.plusNanos(100_000_000L)));
+    assertEquals(JobQueueWorker.WORKER_ID, job.getWorkerId());
+    assertEquals(
+        List.of("lock timeout", "Attempt 1 of 2 failed; retrying in 100 ms"), loggedMessages());
+    verify(jobsRepository, atLeastOnce()).save(job);
+    verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+    verify(jobLogStreamer, never()).complete(30L);
+    verify(jobLogArchiver, never()).archive(30L);
+    // the job keeps its heartbeat while it waits, and JobQueueWorker takes it from here
+    assertEquals(Set.of(30L), jobService.getOwnedJobIds());
+    assertEquals(flakyJob, jobService.takeLocalJob(30L));
+  }
+
+  @Test
+  public void runJob_puts_a_durable_job_back_in_the_queue_when_it_can_be_retried()
+      throws Exception {
+    Job job = Job.builder().id(35L).type("FlakyJob").status("queued").build();
+
+    jobService.runJob(job, new FlakyJob(new IllegalStateException("lock timeout")));
+
+    assertEquals("queued", job.getStatus());
+    assertNotNull(job.getNextAttemptAt());
+    // any worker may claim the next attempt
+    assertNull(job.getWorkerId());
+    assertNull(job.getHeartbeatAt());
+    assertEquals(Set.of(), jobService.getOwnedJobIds());
+    assertThrows(IllegalArgumentException.class, () -> jobService.takeLocalJob(35L));
+  }
+
+  @Test
+  public void runJob_counts_attempts_across_retries() throws Exception {
+    Job job =
+        Job.builder()
+            .id(31L)
+            .status("queued")
+            .attempts(1)
+            .nextAttemptAt(ZonedDateTime.now())
+            .build();
+
+    jobService.runJob(job, new FlakyJob(null));
+
+    assertEquals("complete", job.getStatus());
+    assertEquals(2, job.getAttempts());
+    assertNull(job.getNextAttemptAt());
+    assertEquals(Set.of(), jobService.getOwnedJobIds());
+  }
+
+  @Test
+  public void runJob_fails_job_after_its_last_attempt() throws Exception {
+    Job job = Job.builder().id(32L).status("queued").attempts(1).build();
+
+    jobService.runJob(job, new FlakyJob(new IllegalStateException("lock timeout")));
+
+    assertEquals("error", job.getStatus());
+    assertEquals(2, job.getAttempts());
+    assertEquals(List.of("lock timeout"), loggedMessages());
+    verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+    verify(jobLogStreamer, times(1)).complete(32L);
+  }
+
+  @Test
+  public void runJob_does_not_retry_other_exceptions() throws Exception {
+    Job job = Job.builder().id(33L).status("queued").build();
+
+    jobService.runJob(job, new FlakyJob(new IllegalArgumentException("bad input")));
+
+    assertEquals("error", job.getStatus());
+    verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+  }
+
+  @Test
+  public void retryDelayMs_grows_exponentially_up_to_the_limit_less_jitter() {
+    RetryPolicy policy = DefaultRetryPolicy.class.getAnnotation(RetryPolicy.class);
+
+    assertEquals(1000L, JobService.retryDelayMs(policy, 1, 0.0));
+    assertEquals(2000L, JobService.retryDelayMs(policy, 2, 0.0));
+    assertEquals(4000L, JobService.retryDelayMs(policy, 3, 0.0));
+    assertEquals(60000L, JobService.retryDelayMs(policy, 20, 0.0));
+    assertEquals(1500L, JobService.retryDelayMs(policy, 2, 0.5));
+  }
+
+  @Test
+  public void runAsJob_returns_the_unfinished_job_with_the_same_dedupe_key() {
+    Job existing = Job.builder().id(40L).status("running").dedupeKey("nightly").build();
+    when(jobsRepository.findByDedupeKey("nightly")).thenReturn(Optional.of(existing));
+
+    Job job = jobService.runAsJob(ctx -> {}, null, "nightly");
+
+    assertEquals(existing, job);
+    verify(jobsRepository, never()).save(any(Job.class));
+    verify(jobQueueWorker, never()).poll();
+  }
+
+  @Test
+  public void runAsJob_records_a_new_dedupe_key() {
+    JobContextConsumer fn = ctx -> {};
+
+    Job job = jobService.runAsJob(fn, null, "nightly");
+
+    assertEquals("nightly", job.getDedupeKey());
+    verify(jobsRepository, times(2)).save(job);
+    verify(jobQueueWorker, times(1)).poll();
+  }
+
+  @Test
+  public void runAsJob_returns_the_job_that_won_a_race_for_the_dedupe_key() {
+    Job winner = Job.builder().id(41L).status("queued").dedupeKey("nightly").build();
+    when(jobsRepository.findByDedupeKey("nightly"))
+        .thenReturn(Optional.empty())
+        .thenReturn(Optional.of(winner));
+    when(jobsRepository.save(any(Job.class)))
+        .thenThrow(new DataIntegrityViolationException("JOBS_DEDUPE_KEY_UK"));
+
+    Job job = jobService.runAsJob(ctx -> {}, null, "nightly");
+
+    assertEquals(winner, job);
+    verify(jobQueueWorker, never()).poll();
+  }
+
+  @Test
+  public void runAsJob_rethrows_constraint_violations_unrelated_to_the_dedupe_key() {
+    DataIntegrityViolationException failure = new DataIntegrityViolationException("other");
+    when(jobsRepository.save(any(Job.class))).thenThrow(failure);
+
+    DataIntegrityViolationException e =
+        assertThrows(
+            DataIntegrityViolationException.class,
+            () -> jobService.runAsJob(ctx -> {}, null, "nightly"));
+
+    assertEquals(failure, e);
+  }
+
+  @Test
+  public void runAsJob_rethrows_constraint_violations_of_jobs_without_a_dedupe_key() {
+    DataIntegrityViolationException failure = new DataIntegrityViolationException("other");
+    when(jobsRepository.save(any(Job.class))).thenThrow(failure);
+
+    DataIntegrityViolationException e =
+        assertThrows(
+            DataIntegrityViolationException.class,
+            () -> jobService.runAsJob(ctx -> {}, null, null));
+
+    assertEquals(failure, e);
+    verify(jobsRepository, never()).findByDedupeKey(any());
+  }
+
+  @Test
+  public void runJob_releases_the_dedupe_key_when_the_job_finishes() throws Exception {
+    Job job = Job.builder().id(42L).status("queued").dedupeKey("nightly").build();
+
+    jobService.runJob(job, ctx -> assertEquals("nightly", ctx.getJob().getDedupeKey()));
+
+    assertEquals("complete", job.getStatus());
+    assertNull(job.getDedupeKey());
+  }
+
+  @Test
+  public void saveResult_stores_result_under_job_id() throws Exception {
+    JobContext ctx = new JobContext(null, null, Job.builder().id(21L).build());
+    InputStream data = new ByteArrayInputStream(new byte[] {1});
+
+    jobService.saveResult(ctx, "application/octet-stream", data, 1L);
+
+    verify(jobResultStore).save(21L, "application/octet-stream", data, 1L);
+  }
+}
@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobTypeRegistryTests {
+
+  private JobTypeRegistry jobTypeRegistry;
+
+  /** A job that Jackson cannot serialize because it has no properties. */
+  static class OpaqueJob implements JobContextConsumer {
+    @Override
+    public void accept(JobContext c) {}
+  }
+
+  @BeforeEach
+  public void setup() {
+    jobTypeRegistry = new JobTypeRegistry();
+    ReflectionTestUtils.setField(jobTypeRegistry, "mapper", new ObjectMapper());
+  }
+
+  @Test
+  public void test_job_round_trips_through_the_registry() {
+    TestJob testJob = TestJob.builder().fail(true).sleepMs(25).build();
+
+    assertEquals(Optional.of("TestJob"), jobTypeRegistry.typeOf(testJob));
+    String params = jobTypeRegistry.serialize(testJob);
+    JobContextConsumer rebuilt = jobTypeRegistry.deserialize("TestJob", params);
+
+    TestJob rebuiltTestJob = assertInstanceOf(TestJob.class, rebuilt);
+    assertTrue(rebuiltTestJob.isFail());
+    assertEquals(25, rebuiltTestJob.getSleepMs());
+  }
+
+  @Test
+  public void unregistered_jobs_have_no_type() {
+    JobContextConsumer lambda = ctx -> {};
+
+    assertEquals(Optional.empty(), jobTypeRegistry.typeOf(lambda));
+    assertEquals(Optional.empty(), jobTypeRegistry.typeOf(new OpaqueJob()));
+  }
+
+  @Test
+  public void unknown_type_cannot_be_deserialized() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class, () -> jobTypeRegistry.deserialize("NoSuchJob", "{}"));
+    assertEquals("Unknown job type NoSuchJob", e.getMessage());
+  }
+
+  @Test
+  public void bad_params_cannot_be_deserialized() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> jobTypeRegistry.deserialize("TestJob", "not json"));
+    assertEquals("Cannot read parameters of job type TestJob", e.getMessage());
+  }
+
+  @Test
+  public void unserializable_job_is_reported() {
+    jobTypeRegistry.register(OpaqueJob.class);
+
+    assertEquals(Optional.of("OpaqueJob"), jobTypeRegistry.typeOf(new OpaqueJob()));
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class, () -> jobTypeRegistry.serialize(new OpaqueJob()));
+    assertEquals("Cannot serialize job of type OpaqueJob", e.getMessage());
+  }
+}
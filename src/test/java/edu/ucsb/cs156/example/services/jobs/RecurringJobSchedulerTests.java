@@ -0,0 +1,198 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RecurringJobSchedulerTests {
+
+  @RecurringJob(cron = "${test.cleanup.cron:0 0 3 * * *}")
+  static class CleanupJob implements JobContextConsumer {
+    @Override
+    public void accept(JobContext ctx) {}
+  }
+
+  @RecurringJob(cron = "0 */5 * * * *", name = "every-five-minutes")
+  static class FrequentJob implements JobContextConsumer {
+    @Override
+    public void accept(JobContext ctx) {}
+  }
+
+  @RecurringJob(cron = "0 0 3 * * *")
+  static class NotAJob {}
+
+  @Mock private ApplicationContext applicationContext;
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private JobService jobService;
+
+  @Mock private TaskScheduler taskScheduler;
+
+  @InjectMocks private RecurringJobScheduler recurringJobScheduler;
+
+  private final ScheduledFuture<?> future = mock(ScheduledFuture.class);
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(recurringJobScheduler, "enabled", true);
+    when(applicationContext.getEnvironment()).thenReturn(new StandardEnvironment());
+    doReturn(future).when(taskScheduler).schedule(any(Runnable.class), any(Trigger.class));
+  }
+
+  private void beans(Map<String, Object> beans) {
+    when(applicationContext.getBeansWithAnnotation(RecurringJob.class)).thenReturn(beans);
+    beans.forEach(
+        (name, bean) ->
+            when(applicationContext.findAnnotationOnBean(name, RecurringJob.class))
+                .thenReturn(bean.getClass().getAnnotation(RecurringJob.class)));
+  }
+
+  @Test
+  public void scheduleAnnotatedJobs_does_nothing_when_disabled() {
+    ReflectionTestUtils.setField(recurringJobScheduler, "enabled", false);
+
+    recurringJobScheduler.scheduleAnnotatedJobs();
+
+    verifyNoInteractions(applicationContext, taskScheduler);
+  }
+
+  @Test
+  public void scheduleAnnotatedJobs_schedules_every_annotated_bean() {
+    beans(Map.of("cleanupJob", new CleanupJob(), "frequentJob", new FrequentJob()));
+    when(jdbcTemplate.update(RecurringJobScheduler.UPDATE_CRON_SQL, "0 0 3 * * *", "cleanupJob"))
+        .thenReturn(1);
+
+    recurringJobScheduler.scheduleAnnotatedJobs();
+
+    assertEquals(
+        Set.of("cleanupJob", "every-five-minutes"), recurringJobScheduler.getScheduleNames());
+    verify(jdbcTemplate, never())
+        .update(RecurringJobScheduler.INSERT_SCHEDULE_SQL, "cleanupJob", "0 0 3 * * *");
+    verify(jdbcTemplate)
+        .update(RecurringJobScheduler.INSERT_SCHEDULE_SQL, "every-five-minutes", "0 */5 * * * *");
+    verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Trigger.class));
+  }
+
+  @Test
+  public void scheduleAnnotatedJobs_rejects_beans_that_are_not_jobs() {
+    beans(Map.of("notAJob", new NotAJob()));
+
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class, () -> recurringJobScheduler.scheduleAnnotatedJobs());
+
+    assertEquals("@RecurringJob bean notAJob is not a JobContextConsumer", e.getMessage());
+  }
+
+  @Test
+  public void schedule_tolerates_row_created_by_another_node_and_replaces_old_schedule() {
+    when(jdbcTemplate.update(RecurringJobScheduler.INSERT_SCHEDULE_SQL, "nightly", "0 0 3 * * *"))
+        .thenThrow(new DuplicateKeyException("exists"));
+
+    recurringJobScheduler.schedule("nightly", "0 0 3 * * *", ctx -> {});
+    recurringJobScheduler.schedule("nightly", "0 0 3 * * *", ctx -> {});
+
+    assertEquals(Set.of("nightly"), recurringJobScheduler.getScheduleNames());
+    verify(future, times(1)).cancel(false);
+  }
+
+  @Test
+  public void schedule_rejects_invalid_cron() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> recurringJobScheduler.schedule("broken", "every day", ctx -> {}));
+
+    verifyNoInteractions(jdbcTemplate, taskScheduler);
+  }
+
+  @Test
+  public void scheduled_task_fires_the_job() {
+    JobContextConsumer job = ctx -> {};
+    recurringJobScheduler.schedule("nightly", "0 0 3 * * *", job);
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(taskScheduler).schedule(task.capture(), any(Trigger.class));
+
+    task.getValue().run();
+
+    verify(jdbcTemplate)
+        .update(
+            eq(RecurringJobScheduler.ACQUIRE_SQL),
+            any(Timestamp.class),
+            eq(JobQueueWorker.WORKER_ID),
+            eq("nightly"),
+            any(Timestamp.class));
+  }
+
+  @Test
+  public void fire_starts_job_and_records_it_when_lock_is_acquired() {
+    JobContextConsumer job = ctx -> {};
+    when(jdbcTemplate.update(
+            eq(RecurringJobScheduler.ACQUIRE_SQL), any(), any(), eq("nightly"), any()))
+        .thenReturn(1);
+    when(jobService.runAsJob(job)).thenReturn(Job.builder().id(12L).build());
+
+    assertTrue(recurringJobScheduler.fire("nightly", CronExpression.parse("0 0 3 * * *"), job));
+
+    verify(jdbcTemplate).update(RecurringJobScheduler.RECORD_RUN_SQL, 12L, "nightly");
+  }
+
+  @Test
+  public void fire_skips_run_held_by_another_node_or_still_running() {
+    JobContextConsumer job = ctx -> {};
+
+    assertFalse(recurringJobScheduler.fire("nightly", CronExpression.parse("0 0 3 * * *"), job));
+
+    verifyNoInteractions(jobService);
+  }
+
+  @Test
+  public void fire_skips_run_when_job_queue_is_full() {
+    JobContextConsumer job = ctx -> {};
+    when(jdbcTemplate.update(
+            eq(RecurringJobScheduler.ACQUIRE_SQL), any(), any(), eq("nightly"), any()))
+        .thenReturn(1);
+    when(jobService.runAsJob(job)).thenThrow(new JobQueueFullException(100));
+
+    assertFalse(recurringJobScheduler.fire("nightly", CronExpression.parse("0 0 3 * * *"), job));
+
+    verify(jdbcTemplate, never()).update(eq(RecurringJobScheduler.RECORD_RUN_SQL), any(), any());
+  }
+
+  @Test
+  public void lockDuration_is_half_the_gap_between_runs() {
+    ZonedDateTime now = ZonedDateTime.parse("2025-05-01T12:01:00Z");
+
+    assertEquals(
+        Duration.ofMinutes(5),
+        RecurringJobScheduler.lockDuration(CronExpression.parse("0 */10 * * * *"), now));
+  }
+}